@@ -6,6 +6,9 @@ package jp.kaiz.kaizpatch.fixrtm.caching
 
 import jp.kaiz.kaizpatch.fixrtm.mkParent
 import java.io.*
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
 import java.util.*
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.ExecutorService
@@ -17,9 +20,20 @@ class FileCache<TValue>(
     private val serialize: (OutputStream, TValue) -> Unit,
     private val deserialize: (InputStream) -> TValue,
     private val withTwoCharDir: Boolean = true,
+    /**
+     * if not null, cache files are read into a [ByteBuffer] by this instead of [deserialize].
+     * files larger than [MAP_THRESHOLD] are mapped with [FileChannel.map], smaller ones are copied to the heap.
+     * the value may keep views of the buffer.
+     */
+    private val deserializeMapped: ((ByteBuffer) -> TValue)? = null,
+    /**
+     * keeps read values. keyed by the path of the file so it can be shared with other caches.
+     */
+    private val memory: MemoryTier<TValue> = MemoryTier(Long.MAX_VALUE),
 ) {
-    private val cache = ConcurrentHashMap<String, TValue>()
     private var writings = Collections.newSetFromMap<String>(ConcurrentHashMap())
+    // files which couldn't be deleted because a loaded value still maps them (Windows)
+    private val discarded = Collections.newSetFromMap<String>(ConcurrentHashMap())
     private val baseDigestFile = baseDir.resolve("base-digest")
     val cacheDiscarded: Boolean
 
@@ -53,46 +67,83 @@ class FileCache<TValue>(
             .filter { isHex40(it.name) }
             .forEach { file ->
                 executor.submit {
-                    if (cache[file.name] == null)
-                        readCache(file, file.name)
+                    if (file.path !in memory)
+                        readCache(file)
                 }
             }
     }
 
-    private fun getCacheValue(sha1: String) = cache[sha1]
-
     fun getCachedValue(sha1: String): TValue? {
         require(isHex40IgnoreCase(sha1)) { "invalid sha hash" }
-        getCacheValue(sha1)?.let { return it }
-        if (sha1 in writings) return null
         val file = getFile(sha1)
+        memory[file.path]?.let { return it }
+        if (sha1 in writings || file.path in discarded) return null
         if (!file.exists()) return null
-        return readCache(file, sha1)
+        return readCache(file)
     }
 
-    private fun readCache(file: File, sha1: String): TValue? {
+    private fun readCache(file: File): TValue? {
         try {
-            return deserialize(file.inputStream().buffered())
-                .also { cache[sha1] = it }
+            val value: TValue
+            val weight: Long
+            if (deserializeMapped != null) {
+                val buffer = readBuffer(file)
+                value = try {
+                    deserializeMapped.invoke(buffer)
+                } catch (e: Exception) {
+                    // nothing refers to the buffer, so the file can be deleted below
+                    unmap(buffer)
+                    throw e
+                }
+                // a mapped file is outside of the heap. only the objects made from it are counted
+                weight = if (buffer.isDirect) MAPPED_VALUE_WEIGHT else buffer.capacity() + MAPPED_VALUE_WEIGHT
+            } else {
+                value = file.inputStream().buffered().use { deserialize(it) }
+                weight = file.length()
+            }
+            memory.put(file.path, value, weight)
+            return value
         } catch (e: IOException) {
             file.delete()
             return null
-        } finally {
+        } catch (e: RuntimeException) {
+            // BufferUnderflowException etc. from a truncated mapped file
+            file.delete()
+            return null
         }
     }
 
+    private fun readBuffer(file: File): ByteBuffer =
+        FileChannel.open(file.toPath(), StandardOpenOption.READ).use { channel ->
+            val size = channel.size()
+            if (size > MAP_THRESHOLD) {
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+            } else {
+                val buffer = ByteBuffer.allocate(size.toInt())
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) throw EOFException()
+                }
+                buffer.flip()
+                buffer
+            }
+        }
+
     fun putCachedValue(sha1: String, value: TValue) {
         require(isHex40IgnoreCase(sha1)) { "invalid sha hash" }
         executor.submit {
             val file = getFile(sha1).prepare()
+            // written to a temporary file and renamed, so a half-written file is never read
+            val temp = file.resolveSibling(file.name + ".tmp")
             writings.add(sha1)
             try {
-                val bas = ByteArrayOutputStream()
-                serialize(bas, value)
-                file.outputStream().buffered().use { bas.writeTo(it) }
+                temp.outputStream().buffered().use { serialize(it, value) }
+                file.delete()
+                if (!temp.renameTo(file)) throw IOException("can't rename $temp")
             } catch (e: IOException) {
+                temp.delete()
                 file.delete()
             } catch (throwable: Throwable) {
+                temp.delete()
                 throwable.printStackTrace()
             } finally {
                 writings.remove(sha1)
@@ -102,7 +153,13 @@ class FileCache<TValue>(
 
     fun discordCachedValue(sha1: String) {
         require(isHex40IgnoreCase(sha1)) { "invalid sha hash" }
-        getFile(sha1).delete()
+        val file = getFile(sha1)
+        memory.remove(file.path)
+        if (!file.delete() && file.exists()) {
+            // still mapped by a value in use. not read again in this session
+            discarded.add(file.path)
+            file.deleteOnExit()
+        }
     }
 
     private fun getFile(sha1In: String): File {
@@ -124,6 +181,29 @@ class FileCache<TValue>(
     }
 
     companion object {
+        /**
+         * files up to this size are copied to the heap. mappings can't be released while a value uses them,
+         * and a mapped file can't be deleted or replaced on Windows.
+         */
+        private const val MAP_THRESHOLD = 1L shl 20
+
+        /**
+         * estimated heap of the objects made from a buffer (names, materials, views), excluding the buffer itself
+         */
+        private const val MAPPED_VALUE_WEIGHT = 1L shl 10
+
+        /**
+         * releases a mapping which no value refers to. if it fails, the mapping is released by GC.
+         */
+        private fun unmap(buffer: ByteBuffer) {
+            if (!buffer.isDirect) return
+            try {
+                val cleaner = buffer.javaClass.getMethod("cleaner").apply { isAccessible = true }.invoke(buffer) ?: return
+                cleaner.javaClass.getMethod("clean").apply { isAccessible = true }.invoke(cleaner)
+            } catch (e: Exception) {
+            }
+        }
+
         private fun hexDigest(c: Char) = c in '0'..'9' || c in 'a'..'f'
         private fun isHex2(v: String) = v.length == 2 && v.all { hexDigest(it) }
         private fun isHex40(v: String) = v.length == 40 && v.all { hexDigest(it) }
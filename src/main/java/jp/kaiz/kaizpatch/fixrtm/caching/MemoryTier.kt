@@ -0,0 +1,97 @@
+/// Copyright (c) 2020 anatawa12 and other contributors
+/// This file is/was part of fixRTM, released under GNU LGPL v3 with few exceptions
+/// See LICENSE at https://github.com/fixrtm/fixRTM for more details
+
+package jp.kaiz.kaizpatch.fixrtm.caching
+
+import java.lang.ref.SoftReference
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Memory tier of deserialized cache values, weighted by the heap they hold in bytes.
+ * Mapped files are outside of the heap, so values read from them weigh little.
+ * Can be shared by several [FileCache]s so they have one budget.
+ *
+ * Evicting a value only frees its memory once nothing else refers to it.
+ * Models in use are also held by ModelPackManager until they are unloaded as idle.
+ *
+ * Values over [maxBytes] are evicted in LRU order. Evicted values are kept by [SoftReference]
+ * so they can be restored without reading the file again until GC clears them.
+ */
+class MemoryTier<TValue>(private val maxBytes: Long) {
+    private val values = LinkedHashMap<String, Entry<TValue>>(16, 0.75f, true)
+    private val evicted = ConcurrentHashMap<String, SoftReference<Entry<TValue>>>()
+    private var residentBytes = 0L
+
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val evictions = AtomicLong()
+
+    operator fun get(key: String): TValue? {
+        synchronized(values) {
+            values[key]?.let {
+                hits.incrementAndGet()
+                return it.value
+            }
+        }
+        val entry = evicted.remove(key)?.get()
+        if (entry == null) {
+            misses.incrementAndGet()
+            return null
+        }
+        hits.incrementAndGet()
+        put(entry)
+        return entry.value
+    }
+
+    /**
+     * doesn't count as a hit nor a miss
+     */
+    operator fun contains(key: String): Boolean =
+        synchronized(values) { key in values } || evicted[key]?.get() != null
+
+    fun put(key: String, value: TValue, weight: Long) {
+        put(Entry(key, value, weight))
+    }
+
+    private fun put(entry: Entry<TValue>) {
+        synchronized(values) {
+            values.put(entry.key, entry)?.let { residentBytes -= it.weight }
+            residentBytes += entry.weight
+            val iterator = values.values.iterator()
+            // keeps at least the newest value even if it's over the budget
+            while (residentBytes > maxBytes && values.size > 1) {
+                val eldest = iterator.next()
+                iterator.remove()
+                residentBytes -= eldest.weight
+                evicted[eldest.key] = SoftReference(eldest)
+                evictions.incrementAndGet()
+            }
+        }
+    }
+
+    fun remove(key: String) {
+        synchronized(values) {
+            values.remove(key)?.let { residentBytes -= it.weight }
+        }
+        evicted.remove(key)
+    }
+
+    fun stats(): Stats = synchronized(values) {
+        Stats(hits.get(), misses.get(), evictions.get(), values.size, residentBytes)
+    }
+
+    private class Entry<TValue>(val key: String, val value: TValue, val weight: Long)
+
+    data class Stats(
+        val hits: Long,
+        val misses: Long,
+        val evictions: Long,
+        val residentCount: Int,
+        val residentBytes: Long,
+    ) {
+        override fun toString(): String =
+            "hits: $hits, misses: $misses, evictions: $evictions, resident: $residentCount (${residentBytes shr 10}KB)"
+    }
+}
@@ -9,12 +9,19 @@ import jp.kaiz.kaizpatch.fixrtm.modelpack.FIXFileLoader
 import jp.kaiz.kaizpatch.fixrtm.modelpack.FIXModelPack
 import java.io.File
 
+/**
+ * @param maxMemoryBytes budget of read values shared by all model packs, in bytes of heap.
+ * @param preload reads all cache files at startup. if false, each file is read when it's requested first.
+ */
 class ModelPackBasedCache(
     baseDir: File,
     vararg serializers: Pair<Int, TaggedFileManager.Serializer<*>>,
+    maxMemoryBytes: Long = Long.MAX_VALUE,
+    preload: Boolean = false,
 ) {
     private val caches: Map<FIXModelPack, FileCache<Any>>
     private val taggedFileManager = TaggedFileManager()
+    private val memory = MemoryTier<Any>(maxMemoryBytes)
 
     init {
         for ((id, serializer) in serializers) {
@@ -38,9 +45,11 @@ class ModelPackBasedCache(
                 executor = fixRTMCommonExecutor,
                 serialize = taggedFileManager::serialize,
                 deserialize = taggedFileManager::deserialize,
-                withTwoCharDir = false
+                withTwoCharDir = false,
+                deserializeMapped = taggedFileManager::deserialize,
+                memory = memory,
             )
-            cache.loadAll()
+            if (preload) cache.loadAll()
             caches[modelPack] = cache
         }
 
@@ -55,6 +64,8 @@ class ModelPackBasedCache(
         caches[pack]?.putCachedValue(sha1, model)
     }
 
+    fun stats(): MemoryTier.Stats = memory.stats()
+
     fun discord(pack: FIXModelPack, sha1: String) {
         caches[pack]?.discordCachedValue(sha1)
     }
@@ -0,0 +1,213 @@
+/// Copyright (c) 2020 anatawa12 and other contributors
+/// This file is/was part of fixRTM, released under GNU LGPL v3 with few exceptions
+/// See LICENSE at https://github.com/fixrtm/fixRTM for more details
+
+package jp.kaiz.kaizpatch.fixrtm.caching
+
+import jp.kaiz.kaizpatch.fixrtm.fixCacheDir
+import jp.kaiz.kaizpatch.fixrtm.mkParent
+import jp.kaiz.kaizpatch.fixrtm.util.DigestUtils
+import jp.ngt.ngtlib.io.NGTFileLoader
+import jp.ngt.rtm.RTMCore
+import org.apache.logging.log4j.LogManager
+import java.io.*
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Startup manifest of model packs, kept across launches.
+ *
+ * Each pack (zip/jar, or a loose file) is recorded with its path, size, mtime and SHA-1.
+ * While size and mtime are unchanged the recorded SHA-1 is used without reading the file,
+ * and the model configs parsed from it are restored from binary instead of parsing json again.
+ * When size or mtime changed the SHA-1 is computed, and the configs are kept only if it is still the same.
+ */
+object ModelPackManifest {
+    private const val MAGIC = 0x524d4d46 // RMMF
+    private const val FORMAT_VERSION = 1
+
+    private val logger = LogManager.getLogger("ModelPackManifest")
+    private val file = fixCacheDir.resolve("model-manifest.bin")
+
+    /**
+     * records loaded from the file
+     */
+    private val stored = ConcurrentHashMap<String, PackRecord>()
+
+    /**
+     * records checked in this launch
+     */
+    private val current = ConcurrentHashMap<String, PackRecord>()
+
+    @Volatile
+    private var dirty = false
+    private var hit = 0
+    private var miss = 0
+
+    init {
+        load()
+    }
+
+    /**
+     * @param digest computes SHA-1 of the file. called only if size or mtime has changed.
+     */
+    fun sha1Of(file: File, digest: () -> String): String = getPack(file, digest).sha1
+
+    /**
+     * SHA-1 of the whole file, computed only if size or mtime has changed.
+     */
+    @JvmStatic
+    fun sha1Of(file: File): String = sha1Of(file) { file.inputStream().buffered().use { DigestUtils.sha1Hex(it) } }
+
+    /**
+     * forgets the record checked in this launch, for a file replaced while running.
+     */
+    @JvmStatic
+    fun invalidate(file: File) {
+        current.remove(file.absolutePath)
+    }
+
+    private fun getPack(file: File, digest: () -> String): PackRecord {
+        val path = file.absolutePath
+        current[path]?.let { return it }
+
+        // hashed outside of the map so other packs are not blocked during file I/O.
+        // two threads may hash the same pack at once, the first one is kept.
+        val size = file.length()
+        val mtime = file.lastModified()
+        val old = stored[path]
+        val record = if (old != null && old.size == size && old.mtime == mtime) {
+            old
+        } else {
+            PackRecord(size, mtime, digest()).also {
+                if (old != null && old.sha1 == it.sha1) it.configs.putAll(old.configs)
+            }
+        }
+        current.putIfAbsent(path, record)?.let { return it }
+        if (record !== old) dirty = true
+        return record
+    }
+
+    private fun locate(jsonFile: File): Pair<PackRecord, String> {
+        val path = jsonFile.absolutePath
+        val suffix = NGTFileLoader.getArchiveSuffix(path)
+        val packFile = if (suffix.isEmpty()) jsonFile else File(NGTFileLoader.getArchivePath(path, suffix))
+        val pack = getPack(packFile) { packFile.inputStream().buffered().use { DigestUtils.sha1Hex(it) } }
+        val entryName = if (packFile === jsonFile) "" else path.substring(packFile.path.length)
+        return pack to entryName
+    }
+
+    /**
+     * @return the config parsed on a previous launch, or null if the pack has changed or no cache exists.
+     */
+    @JvmStatic
+    fun <T : Any> getConfig(jsonFile: File, clazz: Class<T>): T? {
+        val (pack, entryName) = locate(jsonFile)
+        val record = pack.configs[entryName]
+        if (record == null || record.className != clazz.name || record.signature != ReflectiveBinaryCodec.signature(clazz)) {
+            synchronized(this) { ++miss }
+            return null
+        }
+
+        try {
+            val config = ReflectiveBinaryCodec.readObject(DataInputStream(ByteArrayInputStream(record.data)), clazz)
+            synchronized(this) { ++hit }
+            return config
+        } catch (e: Exception) {
+            logger.warn("broken cache for ${jsonFile.name}", e)
+            pack.configs.remove(entryName)
+            dirty = true
+            synchronized(this) { ++miss }
+            return null
+        }
+    }
+
+    /**
+     * stores the config just after parsing json, before any init.
+     */
+    @JvmStatic
+    fun putConfig(jsonFile: File, config: Any) {
+        val (pack, entryName) = locate(jsonFile)
+        val clazz = config.javaClass
+        try {
+            val bytes = ByteArrayOutputStream()
+            ReflectiveBinaryCodec.writeObject(DataOutputStream(bytes), clazz, config)
+            pack.configs[entryName] = ConfigRecord(clazz.name, ReflectiveBinaryCodec.signature(clazz), bytes.toByteArray())
+            dirty = true
+        } catch (e: Exception) {
+            logger.debug("can't cache ${jsonFile.name}", e)
+        }
+    }
+
+    /**
+     * writes the packs checked in this launch. packs not seen in this launch are dropped.
+     */
+    @JvmStatic
+    @Synchronized
+    fun save() {
+        logger.info("model configs restored: $hit, parsed: $miss")
+        if (!dirty && current.size == stored.size) return
+        val temp = file.resolveSibling(file.name + ".tmp")
+        try {
+            DataOutputStream(temp.mkParent().outputStream().buffered()).use { out ->
+                out.writeInt(MAGIC)
+                out.writeInt(FORMAT_VERSION)
+                out.writeUTF(RTMCore.VERSION)
+                out.writeInt(current.size)
+                for ((path, pack) in current) {
+                    out.writeUTF(path)
+                    out.writeLong(pack.size)
+                    out.writeLong(pack.mtime)
+                    out.writeUTF(pack.sha1)
+                    out.writeInt(pack.configs.size)
+                    for ((entryName, config) in pack.configs) {
+                        out.writeUTF(entryName)
+                        out.writeUTF(config.className)
+                        out.writeInt(config.signature)
+                        out.writeInt(config.data.size)
+                        out.write(config.data)
+                    }
+                }
+            }
+            file.delete()
+            if (!temp.renameTo(file)) throw IOException("can't rename $temp")
+            stored.clear()
+            stored.putAll(current)
+            dirty = false
+        } catch (e: IOException) {
+            logger.warn("can't save model manifest", e)
+            temp.delete()
+        }
+    }
+
+    private fun load() {
+        if (!file.exists()) return
+        try {
+            DataInputStream(file.inputStream().buffered()).use { input ->
+                if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || input.readUTF() != RTMCore.VERSION)
+                    return
+                repeat(input.readInt()) {
+                    val path = input.readUTF()
+                    val pack = PackRecord(input.readLong(), input.readLong(), input.readUTF())
+                    repeat(input.readInt()) {
+                        val entryName = input.readUTF()
+                        val className = input.readUTF()
+                        val signature = input.readInt()
+                        val data = ByteArray(input.readInt())
+                        input.readFully(data)
+                        pack.configs[entryName] = ConfigRecord(className, signature, data)
+                    }
+                    stored[path] = pack
+                }
+            }
+        } catch (e: IOException) {
+            logger.warn("can't load model manifest, ignored", e)
+            stored.clear()
+        }
+    }
+
+    private class PackRecord(val size: Long, val mtime: Long, val sha1: String) {
+        val configs = ConcurrentHashMap<String, ConfigRecord>()
+    }
+
+    private class ConfigRecord(val className: String, val signature: Int, val data: ByteArray)
+}
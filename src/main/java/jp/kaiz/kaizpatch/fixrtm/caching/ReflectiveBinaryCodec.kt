@@ -0,0 +1,244 @@
+/// Copyright (c) 2020 anatawa12 and other contributors
+/// This file is/was part of fixRTM, released under GNU LGPL v3 with few exceptions
+/// See LICENSE at https://github.com/fixrtm/fixRTM for more details
+
+package jp.kaiz.kaizpatch.fixrtm.caching
+
+import jp.kaiz.kaizpatch.fixrtm.readUTFNullable
+import jp.kaiz.kaizpatch.fixrtm.writeUTFNullable
+import java.io.DataInput
+import java.io.DataOutput
+import java.io.IOException
+import java.lang.reflect.Field
+import java.lang.reflect.Modifier
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Binary codec for plain objects parsed by Gson (model configs).
+ * Uses the same fields as Gson does: every non-static, non-transient field of the class and its superclasses.
+ * Values typed as [Any] are stored as the types Gson creates for them (Boolean, Double, String, List, Map).
+ */
+object ReflectiveBinaryCodec {
+    private val fieldsCache = ConcurrentHashMap<Class<*>, Array<Field>>()
+    private val signatureCache = ConcurrentHashMap<Class<*>, Int>()
+
+    private const val TAG_NULL = 0
+    private const val TAG_BOOLEAN = 1
+    private const val TAG_NUMBER = 2
+    private const val TAG_STRING = 3
+    private const val TAG_LIST = 4
+    private const val TAG_MAP = 5
+
+    fun writeObject(out: DataOutput, clazz: Class<*>, value: Any) {
+        for (field in fieldsOf(clazz)) {
+            writeValue(out, field.type, field.get(value))
+        }
+    }
+
+    fun <T : Any> readObject(input: DataInput, clazz: Class<T>): T = clazz.cast(readFields(input, clazz))
+
+    private fun readFields(input: DataInput, clazz: Class<*>): Any {
+        val value = newInstance(clazz)
+        for (field in fieldsOf(clazz)) {
+            field.set(value, readValue(input, field.type))
+        }
+        return value
+    }
+
+    /**
+     * hash of field names and types of the class and all classes reachable from it.
+     * changes when the layout of the class changes, so stale caches can be detected.
+     */
+    fun signature(clazz: Class<*>): Int = signatureCache.computeIfAbsent(clazz) {
+        val builder = StringBuilder()
+        appendSignature(builder, it, mutableSetOf())
+        builder.toString().hashCode()
+    }
+
+    private fun appendSignature(builder: StringBuilder, clazz: Class<*>, visited: MutableSet<Class<*>>) {
+        builder.append(clazz.name)
+        if (!visited.add(clazz) || !isObjectType(clazz)) return
+        builder.append('{')
+        for (field in fieldsOf(clazz)) {
+            builder.append(field.name).append(':')
+            var type = field.type
+            while (type.isArray) type = type.componentType
+            appendSignature(builder, field.type, visited)
+            if (type != field.type) appendSignature(builder, type, visited)
+            builder.append(';')
+        }
+        builder.append('}')
+    }
+
+    private fun isObjectType(type: Class<*>) = !type.isPrimitive && !type.isArray && !type.isEnum
+            && type != String::class.java && type != Any::class.java && !isBoxed(type)
+
+    private fun isBoxed(type: Class<*>) = type == java.lang.Boolean::class.java || type == java.lang.Byte::class.java
+            || type == java.lang.Short::class.java || type == java.lang.Character::class.java
+            || type == java.lang.Integer::class.java || type == java.lang.Long::class.java
+            || type == java.lang.Float::class.java || type == java.lang.Double::class.java
+
+    private fun fieldsOf(clazz: Class<*>): Array<Field> = fieldsCache.computeIfAbsent(clazz) { type ->
+        generateSequence(type) { it.superclass }
+            .takeWhile { it != Any::class.java }
+            .toList()
+            .asReversed()
+            .flatMap { it.declaredFields.asList() }
+            .filter { !Modifier.isStatic(it.modifiers) && !Modifier.isTransient(it.modifiers) && !it.isSynthetic }
+            .onEach { it.isAccessible = true }
+            .toTypedArray()
+    }
+
+    private fun newInstance(clazz: Class<*>): Any {
+        if (Modifier.isAbstract(clazz.modifiers)) throw IOException("abstract class: ${clazz.name}")
+        val constructor = clazz.getDeclaredConstructor()
+        constructor.isAccessible = true
+        return constructor.newInstance()
+    }
+
+    private fun writeValue(out: DataOutput, type: Class<*>, value: Any?) {
+        when {
+            type.isPrimitive -> writePrimitive(out, type, value!!)
+            type == String::class.java -> out.writeUTFNullable(value as String?)
+            type == Any::class.java -> writeDynamic(out, value)
+            type.isArray -> writeArray(out, type.componentType, value)
+            type.isEnum -> out.writeUTFNullable((value as Enum<*>?)?.name)
+            Collection::class.java.isAssignableFrom(type) || Map::class.java.isAssignableFrom(type) ->
+                throw IOException("unsupported type: ${type.name}")
+            else -> {
+                out.writeBoolean(value != null)
+                if (value == null) return
+                if (isBoxed(type)) writePrimitive(out, type, value)
+                else writeObject(out, type, value)
+            }
+        }
+    }
+
+    private fun readValue(input: DataInput, type: Class<*>): Any? = when {
+        type.isPrimitive -> readPrimitive(input, type)
+        type == String::class.java -> input.readUTFNullable()
+        type == Any::class.java -> readDynamic(input)
+        type.isArray -> readArray(input, type.componentType)
+        type.isEnum -> input.readUTFNullable()?.let { name -> type.enumConstants!!.first { (it as Enum<*>).name == name } }
+        !input.readBoolean() -> null
+        isBoxed(type) -> readPrimitive(input, type)
+        else -> readFields(input, type)
+    }
+
+    private fun writePrimitive(out: DataOutput, type: Class<*>, value: Any) {
+        when (value) {
+            is Boolean -> out.writeBoolean(value)
+            is Byte -> out.writeByte(value.toInt())
+            is Short -> out.writeShort(value.toInt())
+            is Char -> out.writeChar(value.code)
+            is Int -> out.writeInt(value)
+            is Long -> out.writeLong(value)
+            is Float -> out.writeFloat(value)
+            is Double -> out.writeDouble(value)
+            else -> throw IOException("unsupported type: ${type.name}")
+        }
+    }
+
+    private fun readPrimitive(input: DataInput, type: Class<*>): Any = when (type) {
+        java.lang.Boolean.TYPE, java.lang.Boolean::class.java -> input.readBoolean()
+        java.lang.Byte.TYPE, java.lang.Byte::class.java -> input.readByte()
+        java.lang.Short.TYPE, java.lang.Short::class.java -> input.readShort()
+        java.lang.Character.TYPE, java.lang.Character::class.java -> input.readChar()
+        java.lang.Integer.TYPE, java.lang.Integer::class.java -> input.readInt()
+        java.lang.Long.TYPE, java.lang.Long::class.java -> input.readLong()
+        java.lang.Float.TYPE, java.lang.Float::class.java -> input.readFloat()
+        java.lang.Double.TYPE, java.lang.Double::class.java -> input.readDouble()
+        else -> throw IOException("unsupported type: ${type.name}")
+    }
+
+    private fun writeArray(out: DataOutput, component: Class<*>, value: Any?) {
+        if (value == null) {
+            out.writeInt(-1)
+            return
+        }
+        when (value) {
+            is FloatArray -> {
+                out.writeInt(value.size)
+                value.forEach { out.writeFloat(it) }
+            }
+            is IntArray -> {
+                out.writeInt(value.size)
+                value.forEach { out.writeInt(it) }
+            }
+            is DoubleArray -> {
+                out.writeInt(value.size)
+                value.forEach { out.writeDouble(it) }
+            }
+            else -> {
+                val length = java.lang.reflect.Array.getLength(value)
+                out.writeInt(length)
+                for (i in 0 until length) {
+                    writeValue(out, component, java.lang.reflect.Array.get(value, i))
+                }
+            }
+        }
+    }
+
+    private fun readArray(input: DataInput, component: Class<*>): Any? {
+        val length = input.readInt()
+        if (length < 0) return null
+        return when (component) {
+            java.lang.Float.TYPE -> FloatArray(length) { input.readFloat() }
+            java.lang.Integer.TYPE -> IntArray(length) { input.readInt() }
+            java.lang.Double.TYPE -> DoubleArray(length) { input.readDouble() }
+            else -> {
+                val array = java.lang.reflect.Array.newInstance(component, length)
+                for (i in 0 until length) {
+                    java.lang.reflect.Array.set(array, i, readValue(input, component))
+                }
+                array
+            }
+        }
+    }
+
+    private fun writeDynamic(out: DataOutput, value: Any?) {
+        when (value) {
+            null -> out.writeByte(TAG_NULL)
+            is Boolean -> {
+                out.writeByte(TAG_BOOLEAN)
+                out.writeBoolean(value)
+            }
+            is Number -> {
+                out.writeByte(TAG_NUMBER)
+                out.writeDouble(value.toDouble())
+            }
+            is String -> {
+                out.writeByte(TAG_STRING)
+                out.writeUTFNullable(value)
+            }
+            is List<*> -> {
+                out.writeByte(TAG_LIST)
+                out.writeInt(value.size)
+                value.forEach { writeDynamic(out, it) }
+            }
+            is Map<*, *> -> {
+                out.writeByte(TAG_MAP)
+                out.writeInt(value.size)
+                value.forEach { (k, v) ->
+                    out.writeUTFNullable(k as String)
+                    writeDynamic(out, v)
+                }
+            }
+            else -> throw IOException("unsupported value: ${value.javaClass.name}")
+        }
+    }
+
+    private fun readDynamic(input: DataInput): Any? = when (val tag = input.readByte().toInt()) {
+        TAG_NULL -> null
+        TAG_BOOLEAN -> input.readBoolean()
+        TAG_NUMBER -> input.readDouble()
+        TAG_STRING -> input.readUTFNullable()
+        TAG_LIST -> MutableList(input.readInt()) { readDynamic(input) }
+        TAG_MAP -> {
+            val map = LinkedHashMap<String, Any?>()
+            repeat(input.readInt()) { map[input.readUTFNullable()!!] = readDynamic(input) }
+            map
+        }
+        else -> throw IOException("invalid tag: $tag")
+    }
+}
@@ -9,6 +9,7 @@ import java.io.EOFException
 import java.io.IOException
 import java.io.InputStream
 import java.io.OutputStream
+import java.nio.ByteBuffer
 import java.util.concurrent.ConcurrentHashMap
 
 class TaggedFileManager {
@@ -21,6 +22,15 @@ class TaggedFileManager {
         return serializer.deserialize(stream)
     }
 
+    /**
+     * reads from a mapped file. the serializer may keep views of the buffer instead of copying it.
+     */
+    fun deserialize(buffer: ByteBuffer): Any {
+        val serializer = map[readVInt(buffer)]
+            ?: throw IOException("invalid stream: invalid id")
+        return serializer.deserialize(buffer.slice())
+    }
+
     fun serialize(stream: OutputStream, value: Any) {
         val serializer = getSerializerFor(value)
         val id = map.inverse()[serializer]
@@ -78,9 +88,41 @@ class TaggedFileManager {
         }
     }
 
+    private fun readVInt(buffer: ByteBuffer): Int {
+        if (!buffer.hasRemaining()) throw EOFException()
+        val first = buffer.get().toInt() and 0xFF
+        if (first and 0x80 == 0) {
+            // 0xxxxxxx
+            return first
+        } else {
+            // 1xxxxxxx xxxxxxxx
+            if (!buffer.hasRemaining()) throw EOFException()
+            return first and 0x7F shl 8 or (buffer.get().toInt() and 0xFF)
+        }
+    }
+
     interface Serializer<T : Any> {
         val type: Class<T>
         fun serialize(stream: OutputStream, value: T)
         fun deserialize(stream: InputStream): T
+
+        /**
+         * @param buffer starts just after the id. override to read without copying.
+         */
+        fun deserialize(buffer: ByteBuffer): T = deserialize(ByteBufferInputStream(buffer))
+    }
+
+    private class ByteBufferInputStream(private val buffer: ByteBuffer) : InputStream() {
+        override fun read(): Int = if (buffer.hasRemaining()) buffer.get().toInt() and 0xFF else -1
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            if (len == 0) return 0
+            if (!buffer.hasRemaining()) return -1
+            val count = minOf(len, buffer.remaining())
+            buffer.get(b, off, count)
+            return count
+        }
+
+        override fun available(): Int = buffer.remaining()
     }
 }
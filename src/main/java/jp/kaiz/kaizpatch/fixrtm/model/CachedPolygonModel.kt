@@ -8,18 +8,26 @@ import jp.kaiz.kaizpatch.fixrtm.caching.ModelPackBasedCache
 import jp.kaiz.kaizpatch.fixrtm.caching.TaggedFileManager
 import jp.kaiz.kaizpatch.fixrtm.fixCacheDir
 import jp.kaiz.kaizpatch.fixrtm.modelpack.FIXModelPack
-import jp.kaiz.kaizpatch.fixrtm.readUTFNullable
 import jp.kaiz.kaizpatch.fixrtm.util.DigestUtils
-import jp.kaiz.kaizpatch.fixrtm.writeUTFNullable
 import jp.ngt.ngtlib.io.FileType
+import jp.ngt.ngtlib.io.NGTLog
 import jp.ngt.ngtlib.renderer.model.*
+import jp.ngt.rtm.RTMConfig
 import net.minecraft.util.ResourceLocation
-import java.io.*
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
 
 object CachedPolygonModel {
     private val cache = ModelPackBasedCache(
         fixCacheDir.resolve("polygon-model"),
-        0x0000 to Serializer
+        // 0x0000 was the old big-endian per-Face format. the key is unchanged, so such files are
+        // read once more, rejected as an invalid id and deleted, then written again in this format.
+        0x0001 to Serializer,
+        maxMemoryBytes = RTMConfig.modelCacheMemory.toLong() shl 20,
+        preload = RTMConfig.preloadModelCache,
     )
 
     val type = FileType("fixrtm-cached-polygon-model-file", "fixrtm cached polygon model file.")
@@ -34,6 +42,11 @@ object CachedPolygonModel {
         cache.put(pack, sha1, model)
     }
 
+    @JvmStatic
+    fun logStats() {
+        NGTLog.debug("[CachedPolygonModel] %s", cache.stats())
+    }
+
     private object Serializer : TaggedFileManager.Serializer<PolygonModel> {
         override val type: Class<PolygonModel> get() = PolygonModel::class.java
 
@@ -42,167 +55,196 @@ object CachedPolygonModel {
         }
 
         override fun deserialize(stream: InputStream): PolygonModel {
-            return CachedModel(stream)
+            return CachedModel(ByteBuffer.wrap(stream.readBytes()))
+        }
+
+        override fun deserialize(buffer: ByteBuffer): PolygonModel {
+            return CachedModel(buffer)
         }
     }
 
-    private class CachedModel(file: InputStream) : PolygonModel() {
+    /**
+     * reads the model from a mapped file.
+     * arrays of each GroupObject are kept as views of the buffer and rendered by [FaceBuffer] without creating Faces.
+     */
+    private class CachedModel(buffer: ByteBuffer) : PolygonModel() {
         private val materials = mutableMapOf<String, Material>()
 
         init {
-            val reader = DataInputStream(file) as DataInput
-            drawMode = reader.readInt()
+            val reader = buffer.order(ByteOrder.LITTLE_ENDIAN)
+            drawMode = reader.int
             accuracy = readVecAccuracy(reader)
             readSizeBox(reader)
-            repeat(reader.readInt()) {
+            repeat(reader.int) {
                 groupObjects.add(readGroupObject(reader))
             }
-            repeat(reader.readInt()) {
-                materials[reader.readUTF()] = readMaterial(reader)
+            repeat(reader.int) {
+                materials[readString(reader)!!] = readMaterial(reader)
             }
         }
 
-        private fun readVecAccuracy(reader: DataInput) = when (val value = reader.readUnsignedByte()) {
+        private fun readVecAccuracy(reader: ByteBuffer) = when (val value = reader.get().toInt() and 0xFF) {
             0 -> VecAccuracy.LOW
             1 -> VecAccuracy.MEDIUM
             else -> error("invalid VecAccuracy: $value")
         }
 
-        private fun readSizeBox(reader: DataInput) {
-            sizeBox[0] = reader.readFloat()
-            sizeBox[1] = reader.readFloat()
-            sizeBox[2] = reader.readFloat()
-            sizeBox[3] = reader.readFloat()
-            sizeBox[4] = reader.readFloat()
-            sizeBox[5] = reader.readFloat()
-        }
-
-        private fun readGroupObject(reader: DataInput): GroupObject {
-            val obj = GroupObject(reader.readUTF(), reader.readByte().toInt())
-            obj.smoothingAngle = reader.readFloat()
-            repeat(reader.readInt()) {
-                obj.faces.add(readFace(reader))
+        private fun readSizeBox(reader: ByteBuffer) {
+            for (i in 0 until 6) {
+                sizeBox[i] = reader.float
             }
-            return obj
         }
 
-        private fun readFace(reader: DataInput): Face {
-            val material = reader.readByte().toInt()
-            val size = reader.readInt()
-            val face = Face(size, material)
-            face.vertexNormals = arrayOfNulls(size)
-            repeat(size) { i ->
-                face.vertices[i] = readVertex(reader)
-                face.textureCoordinates[i] = readTextureCoordinate(reader)
-                face.vertexNormals[i] = readVertex(reader)
-            }
-            face.faceNormal = readVertex(reader)
-
-            return face
+        private fun readGroupObject(reader: ByteBuffer): GroupObject {
+            val obj = GroupObject(readString(reader)!!, reader.get().toInt())
+            obj.smoothingAngle = reader.float
+            val faceCount = reader.int
+            val vertexCount = reader.int
+            obj.setFaceBuffer(
+                FaceBuffer(
+                    faceCount,
+                    accuracy,
+                    view(reader, (faceCount + 1) * 4).asIntBuffer(),
+                    view(reader, faceCount),
+                    view(reader, vertexCount * 3 * 4).asFloatBuffer(),
+                    view(reader, vertexCount * 2 * 4).asFloatBuffer(),
+                    view(reader, vertexCount * 3 * 4).asFloatBuffer(),
+                    view(reader, faceCount * 3 * 4).asFloatBuffer(),
+                )
+            )
+            return obj
         }
 
-        private fun readVertex(reader: DataInput): Vertex {
-            return Vertex.create(
-                reader.readFloat(),
-                reader.readFloat(),
-                reader.readFloat(),
-                accuracy
-            )
+        /**
+         * @return little-endian view of the next [size] bytes. no copy is made.
+         */
+        private fun view(reader: ByteBuffer, size: Int): ByteBuffer {
+            if (size < 0 || size > reader.remaining()) throw IOException("broken cache")
+            val view = reader.slice()
+            view.limit(size)
+            reader.position(reader.position() + size)
+            return view.order(ByteOrder.LITTLE_ENDIAN)
         }
 
-        private fun readTextureCoordinate(reader: DataInput): TextureCoordinate {
-            return TextureCoordinate.create(
-                reader.readFloat(),
-                reader.readFloat(),
-                accuracy
-            )
+        private fun readString(reader: ByteBuffer): String? {
+            val size = reader.int
+            if (size < 0) return null
+            val bytes = ByteArray(size)
+            reader.get(bytes)
+            return String(bytes, Charsets.UTF_8)
         }
 
-        private fun readMaterial(reader: DataInput): Material {
-            return Material(reader.readByte(), reader.readUTFNullable()?.let { ResourceLocation(it) })
+        private fun readMaterial(reader: ByteBuffer): Material {
+            return Material(reader.get(), readString(reader)?.let { ResourceLocation(it) })
         }
 
         override fun getMaterials(): Map<String, Material> = materials
         override fun getType(): FileType = CachedPolygonModel.type
 
-        override fun parseLine(p0: String?, p1: Int) = TODO("Not yet implemented")
+        override fun parseLine(p0: ModelTokenizer?) = TODO("Not yet implemented")
         override fun postInit() = TODO("Not yet implemented")
     }
 
     private object CachedModelWriter {
 
         fun writeCachedModel(writer: OutputStream, value: PolygonModel) {
-            writeCachedModel(DataOutputStream(writer) as DataOutput, value)
-        }
-
-        fun writeCachedModel(writer: DataOutput, value: PolygonModel) {
-            writer.writeInt(value.drawMode)
-            writeVecAccuracy(writer, value.accuracy)
-            writeSizeBox(writer, value.sizeBox)
-            writer.writeInt(value.groupObjects.size)
+            val header = allocate(4 + 1 + 6 * 4 + 4)
+            header.putInt(value.drawMode)
+            writeVecAccuracy(header, value.accuracy)
+            writeSizeBox(header, value.sizeBox)
+            header.putInt(value.groupObjects.size)
+            writer.write(header.array())
             for (groupObject in value.groupObjects) {
-                writeGroupObject(writer, groupObject)
+                writer.write(writeGroupObject(groupObject).array())
             }
-            writer.writeInt(value.materials.size)
+            writer.write(allocate(4).putInt(value.materials.size).array())
             for ((name, material) in value.materials) {
-                writer.writeUTF(name)
-                writeMaterial(writer, material)
+                val nameBytes = name.toByteArray(Charsets.UTF_8)
+                val textureBytes = material.texture?.toString()?.toByteArray(Charsets.UTF_8)
+                val buffer = allocate(4 + nameBytes.size + 1 + 4 + (textureBytes?.size ?: 0))
+                writeString(buffer, nameBytes)
+                buffer.put(material.id)
+                writeString(buffer, textureBytes)
+                writer.write(buffer.array())
             }
         }
 
+        private fun allocate(size: Int) = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN)
 
-        @Suppress("REDUNDANT_ELSE_IN_WHEN")
-        private fun writeVecAccuracy(writer: DataOutput, value: VecAccuracy) = when (value) {
-            VecAccuracy.LOW -> writer.writeByte(0)
-            VecAccuracy.MEDIUM -> writer.writeByte(1)
-            else -> error("invalid VecAccuracy: $value")
+        private fun writeString(buffer: ByteBuffer, bytes: ByteArray?) {
+            if (bytes == null) {
+                buffer.putInt(-1)
+            } else {
+                buffer.putInt(bytes.size)
+                buffer.put(bytes)
+            }
         }
 
-        private fun writeSizeBox(writer: DataOutput, value: FloatArray) {
-            writer.writeFloat(value[0])
-            writer.writeFloat(value[1])
-            writer.writeFloat(value[2])
-            writer.writeFloat(value[3])
-            writer.writeFloat(value[4])
-            writer.writeFloat(value[5])
+        @Suppress("REDUNDANT_ELSE_IN_WHEN")
+        private fun writeVecAccuracy(writer: ByteBuffer, value: VecAccuracy) = when (value) {
+            VecAccuracy.LOW -> writer.put(0)
+            VecAccuracy.MEDIUM -> writer.put(1)
+            else -> error("invalid VecAccuracy: $value")
         }
 
-        private fun writeGroupObject(writer: DataOutput, value: GroupObject) {
-            writer.writeUTF(value.name)
-            writer.writeByte(value.drawMode.toInt())
-            writer.writeFloat(value.smoothingAngle)
-            writer.writeInt(value.faces.size)
-            for (face in value.faces) {
-                writeFace(writer, face)
+        private fun writeSizeBox(writer: ByteBuffer, value: FloatArray) {
+            for (i in 0 until 6) {
+                writer.putFloat(value[i])
             }
         }
 
-        private fun writeFace(writer: DataOutput, value: Face) {
-            writer.writeByte(value.materialId.toInt())
-            writer.writeInt(value.vertices.size)
-            for (i in value.vertices.indices) {
-                writeVertex(writer, value.vertices[i])
-                writeTextureCoordinate(writer, value.textureCoordinates[i])
-                writeVertex(writer, value.vertexNormals[i])
+        private fun writeGroupObject(value: GroupObject): ByteBuffer {
+            val faces = value.faces
+            val vertexCount = faces.sumOf { it.vertices.size }
+            val nameBytes = value.name.toByteArray(Charsets.UTF_8)
+            val writer = allocate(
+                4 + nameBytes.size + 1 + 4 + 4 + 4
+                        + (faces.size + 1) * 4 + faces.size
+                        + vertexCount * (3 + 2 + 3) * 4 + faces.size * 3 * 4
+            )
+            writeString(writer, nameBytes)
+            writer.put(value.drawMode)
+            writer.putFloat(value.smoothingAngle)
+            writer.putInt(faces.size)
+            writer.putInt(vertexCount)
+
+            var start = 0
+            writer.putInt(start)
+            for (face in faces) {
+                start += face.vertices.size
+                writer.putInt(start)
             }
-
-            writeVertex(writer, value.faceNormal)
-        }
-
-        private fun writeVertex(writer: DataOutput, value: Vertex) {
-            writer.writeFloat(value.x)
-            writer.writeFloat(value.y)
-            writer.writeFloat(value.z)
-        }
-
-        private fun writeTextureCoordinate(writer: DataOutput, value: TextureCoordinate) {
-            writer.writeFloat(value.u)
-            writer.writeFloat(value.v)
+            for (face in faces) {
+                writer.put(face.materialId)
+            }
+            for (face in faces) {
+                face.vertices.forEach { writeVertex(writer, it) }
+            }
+            for (face in faces) {
+                val uvs = face.textureCoordinates
+                for (i in face.vertices.indices) {
+                    if (uvs != null && uvs.isNotEmpty()) {
+                        writer.putFloat(uvs[i].u)
+                        writer.putFloat(uvs[i].v)
+                    } else {
+                        writer.putFloat(0.0f)
+                        writer.putFloat(0.0f)
+                    }
+                }
+            }
+            for (face in faces) {
+                face.vertexNormals.forEach { writeVertex(writer, it) }
+            }
+            for (face in faces) {
+                writeVertex(writer, face.faceNormal)
+            }
+            return writer
         }
 
-        private fun writeMaterial(writer: DataOutput, value: Material) {
-            writer.writeByte(value.id.toInt())
-            writer.writeUTFNullable(value.texture?.toString())
+        private fun writeVertex(writer: ByteBuffer, value: Vertex) {
+            writer.putFloat(value.x)
+            writer.putFloat(value.y)
+            writer.putFloat(value.z)
         }
     }
 
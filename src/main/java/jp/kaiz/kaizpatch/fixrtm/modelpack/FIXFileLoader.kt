@@ -5,9 +5,12 @@
 package jp.kaiz.kaizpatch.fixrtm.modelpack
 
 import jp.kaiz.kaizpatch.fixrtm.MS932
+import jp.kaiz.kaizpatch.fixrtm.caching.ModelPackManifest
 import jp.kaiz.kaizpatch.fixrtm.directoryDigestBaseStream
 import jp.kaiz.kaizpatch.fixrtm.minecraftDir
 import jp.kaiz.kaizpatch.fixrtm.util.DigestUtils
+import jp.ngt.ngtlib.io.AssetIndex
+import jp.ngt.ngtlib.io.NGTFileLoader
 import jp.ngt.rtm.RTMCore
 import net.minecraft.crash.CrashReport
 import net.minecraft.launchwrapper.Launch
@@ -18,7 +21,6 @@ import java.io.FileNotFoundException
 import java.io.InputStream
 import java.net.URI
 import java.nio.charset.Charset
-import java.util.zip.ZipFile
 
 object FIXFileLoader {
     val allModelPacks: Set<FIXModelPack>
@@ -87,6 +89,8 @@ object FIXFileLoader {
             try {
                 if (file.isFile) {
                     if (file.extension != "jar" && file.extension != "zip") return null
+                    // jars of other mods are not indexed and not kept open
+                    if (NGTFileLoader.getAssetIndex().isSkipped(file)) return null
                     return ZipModelPack(file)
                 } else {
                     return DirectoryModelPack(file)
@@ -114,31 +118,21 @@ object FIXFileLoader {
     }
 
     private class ZipModelPack(override val file: File, charset: Charset = Charsets.UTF_8) : FIXModelPack {
-        private val zipFile = ZipFile(file, charset)
+        // reuse the archive opened by the asset index instead of opening and listing the zip again.
+        // the reference is held for the whole session, so the index does not close it on rebuild
+        private val archive: AssetIndex.Archive = NGTFileLoader.getAssetIndex().getArchive(file)
+            ?.takeIf { it.retain() }
+            ?: AssetIndex.Archive.create(file, charset)
 
-        override val sha1Hash: String = DigestUtils.sha1Hex(file.inputStream().buffered())
+        // full-file hashing only when size or mtime has changed since the last launch
+        override val sha1Hash: String = ModelPackManifest.sha1Of(file)
 
-        override val domains: Set<String>
-        private val ignoreCaseMap: Map<String, String>
-
-        init {
-            val domains = mutableSetOf<String>()
-            val ignoreCaseMap = mutableMapOf<String, String>()
-            zipFile.stream().forEach { entry ->
-                val parts = entry.name.split("/")
-                if (parts[0] == "assets" && parts.size >= 2 && parts[1].isNotEmpty())
-                    domains.add(parts[1])
-                ignoreCaseMap[entry.name.lowercase()] = entry.name
-            }
-            this.domains = domains
-            this.ignoreCaseMap = ignoreCaseMap
-        }
+        override val domains: Set<String> = archive.domains
 
         override fun getFile(location: ResourceLocation): FIXResource? {
-            var path = "assets/${location.resourceDomain}/${location.resourcePath}"
-            path = ignoreCaseMap[path] ?: path
-            val file = zipFile.getEntry(path) ?: return null
-            return FIXResource(this, zipFile.getInputStream(file))
+            val path = "assets/${location.resourceDomain}/${location.resourcePath}"
+            val entry = archive.getZipEntry(path) ?: return null
+            return FIXResource(this, archive.zipFile.getInputStream(entry))
         }
     }
 
@@ -0,0 +1,348 @@
+package jp.ngt.ngtlib.io;
+
+import jp.kaiz.kaizpatch.fixrtm.modelpack.FIXFileLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * modsフォルダ以下のモデルパックのファイル一覧<br>
+ * Zipは全て, Jarはモデルパックのファイルを含むもののみ対象とし, 1度だけ開いて保持する.
+ * 以降の検索や読み込みはこの一覧を使う
+ */
+public final class AssetIndex {
+    /**
+     * Jarをモデルパックとして扱うかの判定に使うファイル名 (NGTFileLoader.findFile()で探されるもの)
+     */
+    private static final Pattern MODEL_PACK_FILE = Pattern.compile("(Model.*|SignBoard.*|Flag_.*|sounds.*|pack)\\.json|rrs_.*\\.png");
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Archive> archives = new HashMap<>();
+    /**
+     * 対象外だったJar (パス -> {長さ, 更新日時}), 更新されるまで開き直さない
+     */
+    private final Map<String, long[]> skipped = new HashMap<>();
+
+    private AssetIndex() {
+    }
+
+    /**
+     * @param prev 前回の一覧, 更新されていないZipはそのまま引き継ぐ (null可)<br>
+     *             引き継がなかったZipは, {@link FIXFileLoader}などが使用していなければ閉じる
+     */
+    public static AssetIndex build(List<File> dirs, AssetIndex prev) {
+        AssetIndex index = new AssetIndex();
+        long l0 = System.nanoTime();
+        dirs.forEach(dir -> index.scanDirectory(dir, prev));
+        if (prev != null) {
+            prev.archives.values().stream()
+                    .filter(archive -> index.archives.get(archive.file.getAbsolutePath()) != archive)
+                    .forEach(Archive::release);
+        }
+        NGTLog.debug("[AssetIndex] %d archives (%d skipped), %d files (%dms)",
+                index.archives.size(), index.skipped.size(), index.entries.size(), (System.nanoTime() - l0) / 1000000L);
+        return index;
+    }
+
+    /**
+     * 一覧から外し, 他に使用されていなければ閉じる (ファイルの置き換え前に呼ぶ)
+     */
+    public void removeArchive(File file) {
+        Archive archive = this.archives.remove(file.getAbsolutePath());
+        if (archive != null) {
+            this.entries.removeIf(entry -> entry.archive == archive);
+            archive.release();
+        }
+    }
+
+    private void scanDirectory(File dir, AssetIndex prev) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.stream(files).forEach(file -> {
+            if (file.isFile()) {
+                String name = file.getName();
+                if (FileType.ZIP.match(name) || FileType.JAR.match(name)) {
+                    this.scanArchive(file, prev);
+                } else {
+                    this.entries.add(new Entry(null, file.getName(), file.length(), -1L, file));
+                }
+            } else if (file.isDirectory() && !NGTFileLoader.isExeptFolder(file)) {
+                this.scanDirectory(file, prev);
+            }
+        });
+    }
+
+    private void scanArchive(File file, AssetIndex prev) {
+        String path = file.getAbsolutePath();
+        long[] stamp = {file.length(), file.lastModified()};
+        long[] prevStamp = prev != null ? prev.skipped.get(path) : null;
+        if (prevStamp != null && Arrays.equals(prevStamp, stamp)) {
+            this.skipped.put(path, stamp);
+            return;
+        }
+
+        Archive archive = prev != null ? prev.archives.get(path) : null;
+        if (archive == null || !archive.isValid()) {
+            archive = Archive.open(file);
+            if (archive == null) {
+                return;
+            }
+
+            if (FileType.JAR.match(file.getName()) && !archive.isModelPack()) {
+                //他のModのJarは保持しない
+                archive.release();
+                this.skipped.put(path, stamp);
+                return;
+            }
+        }
+        this.archives.put(path, archive);
+        this.entries.addAll(archive.entries.values());
+    }
+
+    /**
+     * @return モデルパックではないとして除外されたJarならtrue
+     */
+    public boolean isSkipped(File file) {
+        return this.skipped.containsKey(file.getAbsolutePath());
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(this.entries);
+    }
+
+    /**
+     * 保持しているZip, Jar (モデルパックのもののみ)
+     */
+    public Collection<Archive> getArchives() {
+        return Collections.unmodifiableCollection(this.archives.values());
+    }
+
+    /**
+     * @return 一覧に無い場合はnull
+     */
+    public Archive getArchive(File file) {
+        return this.archives.get(file.getAbsolutePath());
+    }
+
+    public static final class Entry {
+        /**
+         * Zip外のファイルならnull
+         */
+        public final Archive archive;
+        public final String name;
+        public final long size;
+        /**
+         * Zip外のファイルは-1 (読み込みを避けるため計算しない)
+         */
+        public final long crc;
+        /**
+         * Zip内ならnull, 必要な時に作る
+         */
+        private final File file;
+
+        private Entry(Archive archive, String name, long size, long crc, File file) {
+            this.archive = archive;
+            this.name = name;
+            this.size = size;
+            this.crc = crc;
+            this.file = file;
+        }
+
+        /**
+         * 検索結果として返すファイル (Zip内ならZipのパス以下)
+         */
+        public File getFile() {
+            return this.file != null ? this.file : new File(this.archive.file.getAbsolutePath(), this.name);
+        }
+    }
+
+    public static final class Archive {
+        public final File file;
+        public final ZipFile zipFile;
+        private final long length;
+        private final long lastModified;
+        private final Map<String, Entry> entries = new LinkedHashMap<>();
+        private final Set<String> domains = new HashSet<>();
+        private final boolean modelPack;
+        /**
+         * 最初の検索の失敗時に作る
+         */
+        private Map<String, String> ignoreCaseMap;
+        private Map<String, String> fileNameMap;
+        /**
+         * 一覧と{@link FIXFileLoader}などの使用者の数, 0になったら閉じる
+         */
+        private int refCount = 1;
+
+        private Archive(File file, ZipFile zipFile) {
+            this.file = file;
+            this.zipFile = zipFile;
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+
+            boolean[] modelPack = {false};
+            zipFile.stream().filter(zipEntry -> !zipEntry.isDirectory()).forEach(zipEntry -> {
+                String name = zipEntry.getName();
+                this.entries.put(name, new Entry(this, name, zipEntry.getSize(), zipEntry.getCrc(), null));
+                if (!modelPack[0] && MODEL_PACK_FILE.matcher(getFileName(name)).matches()) {
+                    modelPack[0] = true;
+                }
+
+                String[] parts = name.split("/");
+                if (parts[0].equals("assets") && parts.length >= 2 && !parts[1].isEmpty()) {
+                    this.domains.add(parts[1]);
+                }
+            });
+            this.modelPack = modelPack[0];
+        }
+
+        /**
+         * 一覧に含まれないZip用, 開けなかった場合は閉じてから例外を投げる
+         */
+        public static Archive create(File file, Charset charset) throws IOException {
+            ZipFile zip = new ZipFile(file, charset);
+            try {
+                return new Archive(file, zip);
+            } catch (RuntimeException e) {
+                zip.close();
+                throw e;
+            }
+        }
+
+        private static Archive open(File file) {
+            NGTFileLoader.log("[NGTFL] Scan zip : " + file.getName());
+            try {
+                return openArchive(file, "");
+            } catch (IllegalArgumentException e) {
+                try {
+                    return openArchive(file, "MS932");//SJISで再読込
+                } catch (IOException | IllegalArgumentException e2) {
+                    e2.printStackTrace();
+                    NGTLog.debug("[NGTFL] IllegalArgumentException:" + file.getName());
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                NGTLog.debug("[NGTFL] IOException:" + file.getName());
+            }
+            return null;
+        }
+
+        private static Archive openArchive(File file, String encoding) throws IOException {
+            ZipFile zip = NGTFileLoader.getArchive(file, encoding);
+            try {
+                return new Archive(file, zip);
+            } catch (RuntimeException e) {
+                zip.close();
+                throw e;
+            }
+        }
+
+        private static String getFileName(String name) {
+            return name.substring(name.lastIndexOf('/') + 1);
+        }
+
+        /**
+         * 使用を開始する, 使い終わったら{@link #release()}を呼ぶこと
+         *
+         * @return 既に閉じられていた場合false
+         */
+        public synchronized boolean retain() {
+            if (this.refCount <= 0) {
+                return false;
+            }
+            ++this.refCount;
+            return true;
+        }
+
+        public synchronized void release() {
+            if (this.refCount > 0 && --this.refCount == 0) {
+                try {
+                    this.zipFile.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        boolean isModelPack() {
+            return this.modelPack;
+        }
+
+        private boolean isValid() {
+            return this.file.length() == this.length && this.file.lastModified() == this.lastModified;
+        }
+
+        /**
+         * "assets/"直下のフォルダ名
+         */
+        public Set<String> getDomains() {
+            return Collections.unmodifiableSet(this.domains);
+        }
+
+        /**
+         * 大文字小文字が一致しない場合も探す
+         *
+         * @return 無い場合はnull
+         */
+        public ZipEntry getZipEntry(String name) {
+            ZipEntry entry = this.zipFile.getEntry(name);
+            if (entry == null) {
+                String s = this.getIgnoreCaseMap().get(name.toLowerCase(Locale.ROOT));
+                if (s != null) {
+                    entry = this.zipFile.getEntry(s);
+                }
+            }
+            return entry;
+        }
+
+        /**
+         * ファイル名(パスを除く)から探す
+         *
+         * @return 無い場合はnull
+         */
+        public ZipEntry getZipEntryByFileName(String fileName) {
+            String name = this.getFileNameMap().get(fileName);
+            return name != null ? this.zipFile.getEntry(name) : null;
+        }
+
+        public Entry getEntry(String name) {
+            return this.entries.get(name);
+        }
+
+        private synchronized Map<String, String> getIgnoreCaseMap() {
+            if (this.ignoreCaseMap == null) {
+                Map<String, String> map = new HashMap<>();
+                this.entries.keySet().forEach(name -> map.put(name.toLowerCase(Locale.ROOT), name));
+                this.ignoreCaseMap = map;
+            }
+            return this.ignoreCaseMap;
+        }
+
+        private synchronized Map<String, String> getFileNameMap() {
+            if (this.fileNameMap == null) {
+                Map<String, String> map = new HashMap<>();
+                this.entries.keySet().forEach(name -> map.putIfAbsent(getFileName(name), name));
+                this.fileNameMap = map;
+            }
+            return this.fileNameMap;
+        }
+    }
+}
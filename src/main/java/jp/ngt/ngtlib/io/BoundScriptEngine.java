@@ -0,0 +1,77 @@
+package jp.ngt.ngtlib.io;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import java.io.Reader;
+
+/**
+ * 共有のScriptEngine上で, 個別のグローバル(Bindings)を持つScriptEngine<br>
+ * エンジン自体を作るよりも軽く, コンパイル済みのスクリプトも共有できる
+ */
+public final class BoundScriptEngine extends AbstractScriptEngine implements Invocable {
+    private final ScriptEngine sharedEngine;
+    private final Bindings global;
+
+    BoundScriptEngine(ScriptEngine sharedEngine) {
+        this.sharedEngine = sharedEngine;
+        this.global = sharedEngine.createBindings();
+        this.setBindings(this.global, ScriptContext.ENGINE_SCOPE);
+    }
+
+    /**
+     * このエンジンのグローバル
+     */
+    public Bindings getGlobal() {
+        return this.global;
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        return this.sharedEngine.eval(script, context);
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return this.sharedEngine.eval(reader, context);
+    }
+
+    @Override
+    public Bindings createBindings() {
+        return this.sharedEngine.createBindings();
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return this.sharedEngine.getFactory();
+    }
+
+    @Override
+    public Object invokeMethod(Object thiz, String name, Object... args) throws ScriptException, NoSuchMethodException {
+        return ((Invocable) this.sharedEngine).invokeMethod(thiz, name, args);
+    }
+
+    @Override
+    public Object invokeFunction(String name, Object... args) throws ScriptException, NoSuchMethodException {
+        return ((Invocable) this.sharedEngine).invokeMethod(this.global, name, args);
+    }
+
+    @Override
+    public <T> T getInterface(Class<T> clazz) {
+        return ((Invocable) this.sharedEngine).getInterface(this.global, clazz);
+    }
+
+    @Override
+    public <T> T getInterface(Object thiz, Class<T> clazz) {
+        return ((Invocable) this.sharedEngine).getInterface(thiz, clazz);
+    }
+
+    @Override
+    public String toString() {
+        return "BoundScriptEngine(" + this.sharedEngine + ")";
+    }
+}
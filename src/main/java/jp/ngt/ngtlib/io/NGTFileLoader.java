@@ -25,6 +25,8 @@ public final class NGTFileLoader {
 
     private static List<File> MODS_DIR;
     private static File PREV_OPENED_FOLDER;
+    private static AssetIndex ASSET_INDEX;
+    private static boolean indexOutdated;
 
     public static void log(String par1, Object... par2) {
         if (NGTCore.debugLog) {
@@ -40,16 +42,48 @@ public final class NGTFileLoader {
         return result.asList();
     }
 
+    /**
+     * 複数の条件で1度に探す, Zipを開き直さず{@link AssetIndex}から探す
+     */
     public static ScanResult findFile(FileMatcher... matchers) {
         ScanResult findFiles = new ScanResult();
-        List<File> modsDir = getModsDir();
-        modsDir.forEach(dir -> {
-            log("[NGTFL] Set search path : " + dir.getAbsolutePath());
-            findFileInDirectory(findFiles, dir, matchers);
+        getAssetIndex().getEntries().forEach(entry -> {
+            File file = entry.getFile();
+            String key = entry.archive != null ? entry.archive.file.getName() : NO_ZIP;
+            Arrays.stream(matchers).filter(matcher -> matcher.match(file)).forEach(matcher -> findFiles.add(key, matcher, file));
         });
         return findFiles;
     }
 
+    /**
+     * modsフォルダ以下の一覧, 初回のみ全体を走査する
+     */
+    public static synchronized AssetIndex getAssetIndex() {
+        if (ASSET_INDEX == null || indexOutdated) {
+            List<File> modsDir = getModsDir();
+            modsDir.forEach(dir -> log("[NGTFL] Set search path : " + dir.getAbsolutePath()));
+            ASSET_INDEX = AssetIndex.build(modsDir, ASSET_INDEX);
+            indexOutdated = false;
+        }
+        return ASSET_INDEX;
+    }
+
+    /**
+     * 一覧が開いているZipを閉じる, ファイルを削除/置き換えする前に呼ぶ
+     */
+    public static synchronized void releaseArchive(File file) {
+        if (ASSET_INDEX != null) {
+            ASSET_INDEX.removeArchive(file);
+        }
+    }
+
+    /**
+     * modsフォルダにファイルを追加した場合, 次回の検索時に一覧を作り直す
+     */
+    public static synchronized void markAssetIndexOutdated() {
+        indexOutdated = true;
+    }
+
     public static List<File> findFileInDirectory(File dir, FileMatcher matcher) {
         ScanResult result = new ScanResult();
         findFileInDirectory(result, dir, matcher);
@@ -108,7 +142,7 @@ public final class NGTFileLoader {
     /**
      * 次の除外対象フォルダに該当するか (lang, block, item, gui)
      */
-    private static boolean isExeptFolder(File folder) {
+    static boolean isExeptFolder(File folder) {
         if (folder.getAbsolutePath().contains("sounds")) {
             return false;//sounds以下のblock, itemフォルダは除外しないため
         }
@@ -262,6 +296,15 @@ public final class NGTFileLoader {
 
     public static InputStream getStreamFromArchive(File file, String suffix) throws IOException {
         String zipPath = getArchivePath(file.getAbsolutePath(), suffix);
+        AssetIndex.Archive archive = getAssetIndex().getArchive(new File(zipPath));
+        if (archive != null) {
+            ZipEntry entry = archive.getZipEntryByFileName(file.getName());
+            if (entry == null) {
+                throw new FileNotFoundException("On get stream : " + file.getName());
+            }
+            return new BufferedInputStream(archive.zipFile.getInputStream(entry));
+        }
+
         ZipFile zip = getArchive(new File(zipPath), "");
         Enumeration<? extends ZipEntry> enu = zip.entries();
         while (enu.hasMoreElements()) {
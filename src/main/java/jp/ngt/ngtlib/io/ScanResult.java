@@ -25,6 +25,15 @@ public class ScanResult {
         return list;
     }
 
+    /**
+     * 指定した条件に一致したファイル (全てのZip)
+     */
+    public List<File> get(FileMatcher matcher) {
+        List<File> list = new ArrayList<>();
+        this.result.values().stream().map(result -> result.get(matcher)).forEach(list::addAll);
+        return list;
+    }
+
     public void add(String key1, FileMatcher key2, File file) {
         this.getMatchResult(key1).add(key2, file);
     }
@@ -45,6 +54,10 @@ public class ScanResult {
             return list;
         }
 
+        public List<File> get(FileMatcher key) {
+            return this.result.getOrDefault(key, new ArrayList<>());
+        }
+
         public void add(FileMatcher key, File file) {
             this.getList(key).add(file);
             NGTFileLoader.log("[NGTFL] Add file : %s (%d)", file.getName(), this.getList(key).size());
@@ -0,0 +1,72 @@
+package jp.ngt.ngtlib.io;
+
+import javax.script.Invocable;
+import javax.script.ScriptEngine;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * スクリプトの関数をJavaのインターフェースとして取得<br>
+ * インターフェースのメソッド名と同名の関数を, エンジンごとに1度だけ解決する<br>
+ * 毎回名前で関数を探すinvokeFunctionより速く, 戻り値もプリミティブで受け取れる
+ *
+ * <pre>
+ * public interface OnUpdate { void onUpdate(Object entity); }
+ * private static final ScriptFunctionHandle&lt;OnUpdate&gt; ON_UPDATE = ScriptFunctionHandle.of(OnUpdate.class);
+ *
+ * OnUpdate func = ON_UPDATE.get(se);
+ * if (func != null) func.onUpdate(entity);
+ * </pre>
+ */
+public final class ScriptFunctionHandle<T> {
+    /**
+     * 関数が無い場合の目印
+     */
+    private static final Object ABSENT = new Object();
+
+    private final Class<T> type;
+    private final Map<ScriptEngine, Object> resolved = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private ScriptFunctionHandle(Class<T> type) {
+        if (!type.isInterface()) {
+            throw new IllegalArgumentException("Not interface : " + type.getName());
+        }
+        this.type = type;
+    }
+
+    public static <T> ScriptFunctionHandle<T> of(Class<T> type) {
+        return new ScriptFunctionHandle<>(type);
+    }
+
+    /**
+     * @return スクリプトに関数が無い場合はnull
+     */
+    @SuppressWarnings("unchecked")
+    public T get(ScriptEngine se) {
+        if (se == null) {
+            return null;
+        }
+
+        Object func = this.resolved.get(se);
+        if (func == null) {
+            func = this.resolve(se);
+            this.resolved.put(se, func);
+        }
+        return func == ABSENT ? null : (T) func;
+    }
+
+    public boolean exists(ScriptEngine se) {
+        return this.get(se) != null;
+    }
+
+    private Object resolve(ScriptEngine se) {
+        if (se instanceof Invocable) {
+            T func = ((Invocable) se).getInterface(this.type);
+            if (func != null) {
+                return func;
+            }
+        }
+        return ABSENT;
+    }
+}
@@ -5,13 +5,37 @@ import net.minecraft.launchwrapper.Launch;
 import net.minecraft.launchwrapper.LaunchClassLoader;
 import net.minecraft.util.ResourceLocation;
 
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public final class ScriptUtil {
     private static NashornScriptEngineFactory SEM;
+    /**
+     * 全スクリプトで共有するエンジン, スクリプトごとのグローバルは{@link BoundScriptEngine}
+     */
+    private static ScriptEngine SHARED_ENGINE;
+    private static CompiledScript COMPAT_SCRIPT;
+    /**
+     * include展開済みのソース -> コンパイル済みスクリプト, コンパイル中のものは完了を待つ
+     */
+    private static final Map<String, CompletableFuture<CompiledScript>> COMPILED_CACHE = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger ENGINE_COUNT = new AtomicInteger();
+    private static final AtomicInteger COMPILE_COUNT = new AtomicInteger();
+    private static final AtomicInteger CACHE_HIT_COUNT = new AtomicInteger();
+    private static final AtomicLong COMPILE_TIME = new AtomicLong();
+    private static final AtomicLong EVAL_TIME = new AtomicLong();
 
 
     private static void init() {
@@ -34,25 +58,101 @@ public final class ScriptUtil {
     }
 
     public static ScriptEngine doScript(String s) {
-        if (SEM == null) {
-            init();
-        }
-        ScriptEngine se = SEM.getScriptEngine("-doe", "--language=es6");
+        ScriptEngine shared = getSharedEngine();
+        BoundScriptEngine se = new BoundScriptEngine(shared);
+        ENGINE_COUNT.incrementAndGet();
         try {
-            if (se.toString().contains("Nashorn")) {
+            CompiledScript script = compile(s);
+            long l0 = System.nanoTime();
+            ScriptContext context = se.getContext();
+            if (COMPAT_SCRIPT != null) {
                 //Java8ではimportPackage()が使えないので、その対策
-                se.eval("load(\"nashorn:mozilla_compat.js\");");
+                COMPAT_SCRIPT.eval(context);
             }
 
             //se.put("packreg", REGISTER);
 
-            se.eval(s);
+            script.eval(context);
+            EVAL_TIME.addAndGet(System.nanoTime() - l0);
             return se;
         } catch (ScriptException e) {
             throw new RuntimeException("Script exec error" + "\n" + s, e);
         }
     }
 
+    /**
+     * 実行はせずにコンパイルのみ行う (読み込みの先行用)
+     */
+    public static void precompile(String s) {
+        try {
+            compile(s);
+        } catch (ScriptException e) {
+            throw new RuntimeException("Script compile error" + "\n" + s, e);
+        }
+    }
+
+    private static synchronized ScriptEngine getSharedEngine() {
+        if (SHARED_ENGINE == null) {
+            if (SEM == null) {
+                init();
+            }
+            SHARED_ENGINE = SEM.getScriptEngine("-doe", "--language=es6");
+            if (SHARED_ENGINE.toString().contains("Nashorn")) {
+                try {
+                    COMPAT_SCRIPT = ((Compilable) SHARED_ENGINE).compile("load(\"nashorn:mozilla_compat.js\");");
+                } catch (ScriptException e) {
+                    throw new RuntimeException("Script compile error : mozilla_compat.js", e);
+                }
+            }
+        }
+        return SHARED_ENGINE;
+    }
+
+    /**
+     * 同じソースは1度だけコンパイル, 異なるソースは並行してコンパイルできる
+     */
+    private static CompiledScript compile(String s) throws ScriptException {
+        CompletableFuture<CompiledScript> future = COMPILED_CACHE.get(s);
+        if (future == null) {
+            CompletableFuture<CompiledScript> created = new CompletableFuture<>();
+            future = COMPILED_CACHE.putIfAbsent(s, created);
+            if (future == null) {
+                try {
+                    long l0 = System.nanoTime();
+                    CompiledScript script = ((Compilable) getSharedEngine()).compile(s);
+                    COMPILE_TIME.addAndGet(System.nanoTime() - l0);
+                    COMPILE_COUNT.incrementAndGet();
+                    created.complete(script);
+                    return script;
+                } catch (ScriptException | RuntimeException e) {
+                    //失敗したものは残さない
+                    COMPILED_CACHE.remove(s, created);
+                    created.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+
+        CACHE_HIT_COUNT.incrementAndGet();
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ScriptException) {
+                throw (ScriptException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * コンパイルのキャッシュ状況をログに出力
+     */
+    public static void logStats() {
+        NGTLog.debug("[Script] engines:%d, compiled:%d, cache hit:%d, compile:%dms, eval:%dms",
+                ENGINE_COUNT.get(), COMPILE_COUNT.get(), CACHE_HIT_COUNT.get(),
+                COMPILE_TIME.get() / 1000000L, EVAL_TIME.get() / 1000000L);
+    }
+
     public static Object doScriptFunction(ScriptEngine se, String func, Object... args) {
         try {
             return ((Invocable) se).invokeFunction(func, args);
@@ -6,12 +6,21 @@ import java.util.stream.IntStream;
 
 public final class BezierCurve implements ILine {
     public static final int QUANTIZE = 32;
+    /**
+     * 弧長テーブルの1ブロックあたりのサンプル数
+     */
+    public static final int LUT_QUANTIZE = 4;
+    /**
+     * 最近点探索の粗探索で調べるサンプル数
+     */
+    private static final int NEAREST_COARSE = 32;
 
     public final double[] sp;//StartPoint
     public final double[] cpS;//ControlPoint
     public final double[] cpE;//ControlPoint
     public final double[] ep;//EndPoint
     private float[] normalizedParameters;
+    private ArcLengthTable arcLengthTable;
     private final double length;
     private final int split;
 
@@ -41,11 +50,25 @@ public final class BezierCurve implements ILine {
         return this.getPointFromParameter(this.getHomogenizedParameter(par1, par2));
     }
 
+    @Override
+    public double[] getPoint(int par1, int par2, double[] dest) {
+        return this.getPointFromParameter(this.getHomogenizedParameter(par1, par2), dest);
+    }
+
     /**
      * @param par1 媒介変数(0.0 ~ 1.0)
      * @return double[]{x, y}
      */
     private double[] getPointFromParameter(double par1) {
+        return this.getPointFromParameter(par1, new double[2]);
+    }
+
+    /**
+     * @param par1 媒介変数(0.0 ~ 1.0)
+     * @param dest 結果の格納先
+     * @return dest
+     */
+    private double[] getPointFromParameter(double par1, double[] dest) {
         double t = par1 < 0 ? 0.0D : (par1 > 1 ? 1.0D : par1);
         double tp = 1.0D - t;
 
@@ -53,28 +76,135 @@ public final class BezierCurve implements ILine {
         double d1 = 3.0D * t * t * tp;
         double d2 = 3.0D * t * tp * tp;
         double d3 = tp * tp * tp;
-        double x = d0 * ep[0] + d1 * cpE[0] + d2 * cpS[0] + d3 * sp[0];//X
-        double y = d0 * ep[1] + d1 * cpE[1] + d2 * cpS[1] + d3 * sp[1];//Y
-        return new double[]{x, y};
+        dest[0] = d0 * ep[0] + d1 * cpE[0] + d2 * cpS[0] + d3 * sp[0];//X
+        dest[1] = d0 * ep[1] + d1 * cpE[1] + d2 * cpS[1] + d3 * sp[1];//Y
+        return dest;
     }
 
+    /**
+     * 弧長テーブルで粗探索し, 距離の微分の符号で二分探索して絞り込む
+     */
     @Override
     public int getNearlestPoint(int par1, double par2, double par3) {
-        int i = 0;
+        if (par1 <= 0) {
+            return -1;
+        } else if (par1 < 4) {
+            return 0;//全ての点が始点と一致
+        }
+
+        //曲線は{z, x}で保持されている
+        double px = par3;
+        double py = par2;
+
+        ArcLengthTable table = this.getArcLengthTable();
+        int n = table.size;
+        int step = Math.max(1, n / NEAREST_COARSE);
+        double[] buf = new double[2];
+
+        //粗探索での極小点ごとに絞り込み, 最も近いものを採用
+        double bestT = 0.0D;
         double pd = Double.MAX_VALUE;
+        int count = (n + step - 1) / step;//粗探索の区間数
+        double prev = Double.MAX_VALUE;
+        double current = table.getDistanceSq(0, px, py);
+        for (int k = 0; k <= count; ++k) {
+            int i = Math.min(k * step, n);
+            double next = k < count ? table.getDistanceSq(Math.min((k + 1) * step, n), px, py) : Double.MAX_VALUE;
+            if (current <= prev && current <= next) {
+                double t = this.refineNearlestParameter(Math.max(0, i - step), Math.min(n, i + step), n, par1, px, py, buf);
+                double d = this.getDistanceSqFromParameter(t, px, py, buf);
+                if (d < pd) {
+                    pd = d;
+                    bestT = t;
+                }
+            }
+            prev = current;
+            current = next;
+        }
+
+        double s = table.getLengthFromParameter(bestT) / table.getTotalLength();
+        int index = MathHelper.clamp_int((int) Math.round(s * (double) par1), 0, par1 - 1);
+
+        //正規化パラメータとの誤差を隣接点で補正
+        int result = index;
+        pd = this.getDistanceSq(par1, index, px, py, buf);
+        for (int i = index - 1; i <= index + 1; i += 2) {
+            if (i >= 0 && i < par1) {
+                double distance = this.getDistanceSq(par1, i, px, py, buf);
+                if (distance < pd) {
+                    pd = distance;
+                    result = i;
+                }
+            }
+        }
+        return result;
+    }
 
-        for (int j = 0; j < par1; ++j) {
-            double[] point = this.getPoint(par1, j);
-            double dx = par2 - point[1];
-            double dy = par3 - point[0];
-            double distance = (dx * dx) + (dy * dy);
-            if (distance < pd) {
-                pd = distance;
-                i = j;
+    /**
+     * f(t) = |B(t) - P|^2 の極小をf'(t)の符号で二分探索
+     *
+     * @return 媒介変数(0.0 ~ 1.0)
+     */
+    private double refineNearlestParameter(int from, int to, int n, int split, double px, double py, double[] buf) {
+        double lo = (double) from / (double) n;
+        double hi = (double) to / (double) n;
+        double eps = 0.25D / ((double) split * (double) n);
+        if (this.getDistanceDerivative(lo, px, py, buf) >= 0.0D) {
+            return lo;
+        } else if (this.getDistanceDerivative(hi, px, py, buf) <= 0.0D) {
+            return hi;
+        }
+        while (hi - lo > eps) {
+            double mid = (lo + hi) * 0.5D;
+            if (this.getDistanceDerivative(mid, px, py, buf) < 0.0D) {
+                lo = mid;
+            } else {
+                hi = mid;
             }
         }
+        return (lo + hi) * 0.5D;
+    }
+
+    private double getDistanceSqFromParameter(double t, double px, double py, double[] buf) {
+        this.getPointFromParameter(t, buf);
+        double dx = px - buf[0];
+        double dy = py - buf[1];
+        return dx * dx + dy * dy;
+    }
+
+    private double getDistanceSq(int split, int index, double px, double py, double[] buf) {
+        this.getPoint(split, index, buf);
+        double dx = px - buf[0];
+        double dy = py - buf[1];
+        return dx * dx + dy * dy;
+    }
 
-        return pd < Double.MAX_VALUE ? i : -1;
+    /**
+     * @return |B(t) - P|^2 のtでの微分の1/2
+     */
+    private double getDistanceDerivative(double t, double px, double py, double[] buf) {
+        this.getPointFromParameter(t, buf);
+        double ex = buf[0] - px;
+        double ey = buf[1] - py;
+        this.getDerivativeFromParameter(t, buf);
+        return ex * buf[0] + ey * buf[1];
+    }
+
+    /**
+     * @param par1 媒介変数(0.0 ~ 1.0)
+     * @param dest 結果の格納先
+     * @return dest = B'(t)
+     */
+    private double[] getDerivativeFromParameter(double par1, double[] dest) {
+        double t = par1 < 0 ? 0.0D : (par1 > 1 ? 1.0D : par1);
+        double tp = 1.0D - t;
+
+        double d0 = t * t;
+        double d1 = 2.0D * t * tp;
+        double d2 = tp * tp;
+        dest[0] = 3.0D * (d0 * (ep[0] - cpE[0]) + d1 * (cpE[0] - cpS[0]) + d2 * (cpS[0] - sp[0]));
+        dest[1] = 3.0D * (d0 * (ep[1] - cpE[1]) + d1 * (cpE[1] - cpS[1]) + d2 * (cpS[1] - sp[1]));
+        return dest;
     }
 
     @Override
@@ -132,24 +262,27 @@ public final class BezierCurve implements ILine {
         float[] dd = new float[this.split + 1];
 
         float tt = 0.0F;//区間ごとのt
-        double[] p = this.sp;
-        double[] q;
+        double[] p = {this.sp[0], this.sp[1]};
+        double[] q = new double[2];
 
         dd[0] = 0;
         for (int i = 1; i < this.split + 1; i++) {
             tt += ni;//時間での区間を進める
-            q = this.getPointFromParameter(tt);//ttでの通常のベジェ曲線上の点を得る
+            this.getPointFromParameter(tt, q);//ttでの通常のベジェ曲線上の点を得る
             dd[i] = dd[i - 1] + (float) this.getDistance(p[0], q[0], p[1], q[1]);//距離を足し込んで保持
+            double[] swap = p;
             p = q;
+            q = swap;
         }
 
         //距離の合計(=dd[n])で正規化,ddはdd[0]=0<dd[1]<dd[2]<...<dd[N-1]<dd[N]=1となる
         IntStream.range(1, this.split + 1).forEach(i -> dd[i] /= dd[this.split]);
 
+        //tもddも単調増加なので区間の探索は前回の位置から続ける
+        int k = 0;
         for (int i = 0; i < this.split; ++i) {
             float t = (float) i / (float) this.split;
-            int k;
-            for (k = 0; k < this.split - 1; ++k) {
+            for (; k < this.split - 1; ++k) {
                 if (dd[k] <= t && t <= dd[k + 1]) break;
             }
 
@@ -164,6 +297,16 @@ public final class BezierCurve implements ILine {
         return this.length;
     }
 
+    private ArcLengthTable getArcLengthTable() {
+        ArcLengthTable table = this.arcLengthTable;
+        if (table == null) {
+            int n = Math.max(4, MathHelper.ceiling_double_int(this.length * (double) LUT_QUANTIZE));
+            table = new ArcLengthTable(this, n);
+            this.arcLengthTable = table;
+        }
+        return table;
+    }
+
 
     private double calcLength() {
         double x0 = this.sp[0] - this.ep[0];
@@ -190,4 +333,52 @@ public final class BezierCurve implements ILine {
         double yDis = Math.abs(par3 - par4);
         return Math.sqrt(xDis * xDis + yDis * yDis);
     }
-}
\ No newline at end of file
+
+    /**
+     * 媒介変数を等分割した点の座標と累積弧長
+     */
+    private static final class ArcLengthTable {
+        private final int size;
+        private final double[] xs;
+        private final double[] ys;
+        private final double[] lengths;
+
+        private ArcLengthTable(BezierCurve curve, int n) {
+            this.size = n;
+            this.xs = new double[n + 1];
+            this.ys = new double[n + 1];
+            this.lengths = new double[n + 1];
+
+            double[] buf = new double[2];
+            for (int i = 0; i <= n; ++i) {
+                curve.getPointFromParameter((double) i / (double) n, buf);
+                this.xs[i] = buf[0];
+                this.ys[i] = buf[1];
+                if (i > 0) {
+                    this.lengths[i] = this.lengths[i - 1] + curve.getDistance(this.xs[i - 1], buf[0], this.ys[i - 1], buf[1]);
+                }
+            }
+        }
+
+        private double getDistanceSq(int index, double px, double py) {
+            double dx = px - this.xs[index];
+            double dy = py - this.ys[index];
+            return dx * dx + dy * dy;
+        }
+
+        private double getTotalLength() {
+            return this.lengths[this.size];
+        }
+
+        /**
+         * @param t 媒介変数(0.0 ~ 1.0)
+         * @return 始点からの弧長
+         */
+        private double getLengthFromParameter(double t) {
+            double d = (t < 0.0D ? 0.0D : (t > 1.0D ? 1.0D : t)) * (double) this.size;
+            int i = Math.min((int) d, this.size - 1);
+            double f = d - (double) i;
+            return this.lengths[i] + (this.lengths[i + 1] - this.lengths[i]) * f;
+        }
+    }
+}
@@ -8,6 +8,21 @@ public interface ILine {
      */
     double[] getPoint(int par1, int par2);
 
+    /**
+     * {@link #getPoint(int, int)}の配列を生成しない版
+     *
+     * @param par1 分割数
+     * @param par2 進める割合
+     * @param dest 結果の格納先(長さ2以上)
+     * @return dest
+     */
+    default double[] getPoint(int par1, int par2, double[] dest) {
+        double[] point = this.getPoint(par1, par2);
+        dest[0] = point[0];
+        dest[1] = point[1];
+        return dest;
+    }
+
     /**
      * @param par1 分割数
      * @param par2 x
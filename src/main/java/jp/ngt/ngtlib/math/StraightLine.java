@@ -40,11 +40,16 @@ public final class StraightLine implements ILine {
 
     @Override
     public double[] getPoint(int par1, int par2) {
+        return this.getPoint(par1, par2, new double[2]);
+    }
+
+    @Override
+    public double[] getPoint(int par1, int par2, double[] dest) {
         int i0 = par2 < 0 ? 0 : (Math.min(par2, par1));
         double d0 = (double) i0 / (double) par1;
-        double x = this.startX + ((this.endX - this.startX) * d0);
-        double y = this.startY + ((this.endY - this.startY) * d0);
-        return new double[]{x, y};
+        dest[0] = this.startX + ((this.endX - this.startX) * d0);
+        dest[1] = this.startY + ((this.endY - this.startY) * d0);
+        return dest;
     }
 
     @Override
@@ -93,7 +93,7 @@ public final class NGTRenderHelper {
         List<GroupObject> list = model.getGroupObjects();
         list.stream()
                 .filter(group -> parts == null || parts.length == 0 || Arrays.stream(parts).anyMatch(part -> group.name.equals(part)) != except)
-                .forEach(group -> group.faces.stream().filter(face -> face.materialId == matId).forEach(face -> addFace(face, tessellator, smoothing)));
+                .forEach(group -> group.tessellate(tessellator, null, -1, matId, smoothing));
         tessellator.draw();
     }
 
@@ -149,7 +149,7 @@ public final class NGTRenderHelper {
         });
     }
 
-    private static void addVertexWithMatrix(float x, float y, float z, float u, float v, IRenderer tessellator, FloatBuffer matrix, int index) {
+    public static void addVertexWithMatrix(float x, float y, float z, float u, float v, IRenderer tessellator, FloatBuffer matrix, int index) {
         int i = index << 4;
         float x0 = x * matrix.get(i) + y * matrix.get(i + 4) + z * matrix.get(i + 8) + matrix.get(i + 12);
         float y0 = x * matrix.get(i + 1) + y * matrix.get(i + 5) + z * matrix.get(i + 9) + matrix.get(i + 13);
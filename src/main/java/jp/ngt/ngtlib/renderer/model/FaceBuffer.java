@@ -0,0 +1,147 @@
+package jp.ngt.ngtlib.renderer.model;
+
+import cpw.mods.fml.relauncher.Side;
+import cpw.mods.fml.relauncher.SideOnly;
+import jp.ngt.ngtlib.renderer.IRenderer;
+import jp.ngt.ngtlib.renderer.NGTRenderHelper;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * GroupObjectの面を配列のまま保持 (キャッシュから読み込んだモデル用)<br>
+ * Face, Vertexを生成せずに描画する. バッファはmmapしたファイルをそのまま参照する
+ */
+@SideOnly(Side.CLIENT)
+public final class FaceBuffer {
+    public final int faceCount;
+    private final VecAccuracy accuracy;
+    /**
+     * 面ごとの先頭頂点 (faceCount + 1)
+     */
+    private final IntBuffer faceStart;
+    /**
+     * 面ごとのマテリアル番号 (faceCount)
+     */
+    private final ByteBuffer materialIds;
+    /**
+     * 頂点座標 (頂点数 * 3)
+     */
+    private final FloatBuffer positions;
+    /**
+     * UV (頂点数 * 2)
+     */
+    private final FloatBuffer uvs;
+    /**
+     * 頂点の法線 (頂点数 * 3)
+     */
+    private final FloatBuffer normals;
+    /**
+     * 面の法線 (faceCount * 3)
+     */
+    private final FloatBuffer faceNormals;
+
+    public FaceBuffer(int faceCount, VecAccuracy accuracy, IntBuffer faceStart, ByteBuffer materialIds,
+                      FloatBuffer positions, FloatBuffer uvs, FloatBuffer normals, FloatBuffer faceNormals) {
+        this.faceCount = faceCount;
+        this.accuracy = accuracy;
+        this.faceStart = faceStart;
+        this.materialIds = materialIds;
+        this.positions = positions;
+        this.uvs = uvs;
+        this.normals = normals;
+        this.faceNormals = faceNormals;
+    }
+
+    public byte getMaterialId(int face) {
+        return this.materialIds.get(face);
+    }
+
+    /**
+     * {@link NGTRenderHelper#addFaceWithMatrix}と同じ
+     *
+     * @param matId 負の値で全てのマテリアル
+     */
+    public void tessellate(IRenderer tessellator, FloatBuffer matrix, int index, int matId, boolean smoothing) {
+        for (int face = 0; face < this.faceCount; ++face) {
+            if (matId >= 0 && this.materialIds.get(face) != matId) {
+                continue;
+            }
+
+            if (!smoothing) {
+                int n = face * 3;
+                tessellator.setNormal(this.faceNormals.get(n), this.faceNormals.get(n + 1), this.faceNormals.get(n + 2));
+            }
+
+            int end = this.faceStart.get(face + 1);
+            for (int i = this.faceStart.get(face); i < end; ++i) {
+                int p = i * 3;
+                int t = i * 2;
+                if (smoothing) {
+                    tessellator.setNormal(this.normals.get(p), this.normals.get(p + 1), this.normals.get(p + 2));
+                }
+                if (matrix == null) {
+                    tessellator.addVertexWithUV(this.positions.get(p), this.positions.get(p + 1), this.positions.get(p + 2), this.uvs.get(t), this.uvs.get(t + 1));
+                } else {
+                    NGTRenderHelper.addVertexWithMatrix(this.positions.get(p), this.positions.get(p + 1), this.positions.get(p + 2), this.uvs.get(t), this.uvs.get(t + 1), tessellator, matrix, index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Faceを生成, 描画以外でGroupObject.facesを使う場合のみ
+     */
+    public Face toFace(int face) {
+        int start = this.faceStart.get(face);
+        int size = this.faceStart.get(face + 1) - start;
+        Face f = new Face(size, this.materialIds.get(face));
+        f.vertexNormals = new Vertex[size];
+        for (int i = 0; i < size; ++i) {
+            int p = (start + i) * 3;
+            int t = (start + i) * 2;
+            f.vertices[i] = Vertex.create(this.positions.get(p), this.positions.get(p + 1), this.positions.get(p + 2), this.accuracy);
+            f.textureCoordinates[i] = TextureCoordinate.create(this.uvs.get(t), this.uvs.get(t + 1), this.accuracy);
+            f.vertexNormals[i] = Vertex.create(this.normals.get(p), this.normals.get(p + 1), this.normals.get(p + 2), this.accuracy);
+        }
+        int n = face * 3;
+        f.faceNormal = Vertex.create(this.faceNormals.get(n), this.faceNormals.get(n + 1), this.faceNormals.get(n + 2), this.accuracy);
+        return f;
+    }
+
+    /**
+     * 初めて要素を参照した時に全てのFaceを生成するList<br>
+     * size()のみなら生成しない
+     */
+    public List<Face> asFaceList() {
+        return new FaceList();
+    }
+
+    private final class FaceList extends AbstractList<Face> {
+        private Face[] faces;
+
+        @Override
+        public Face get(int index) {
+            return this.getFaces()[index];
+        }
+
+        @Override
+        public int size() {
+            return FaceBuffer.this.faceCount;
+        }
+
+        private synchronized Face[] getFaces() {
+            if (this.faces == null) {
+                Face[] array = new Face[FaceBuffer.this.faceCount];
+                for (int i = 0; i < array.length; ++i) {
+                    array[i] = FaceBuffer.this.toFace(i);
+                }
+                this.faces = array;
+            }
+            return this.faces;
+        }
+    }
+}
@@ -4,8 +4,10 @@ import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
 import jp.ngt.ngtlib.math.NGTMath;
 import jp.ngt.ngtlib.renderer.IRenderer;
+import jp.ngt.ngtlib.renderer.NGTRenderHelper;
 import jp.ngt.ngtlib.renderer.NGTTessellator;
 
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -18,6 +20,10 @@ public final class GroupObject {
     public byte drawMode;
     public float smoothingAngle;
     public List<Face> faces = new ArrayList<>();
+    /**
+     * キャッシュから読み込んだ場合のみ, 描画時はfacesの代わりに使う
+     */
+    private FaceBuffer faceBuffer;
 
     public GroupObject(int par1) {
         this("", par1);
@@ -28,6 +34,14 @@ public final class GroupObject {
         this.drawMode = (byte) par2;
     }
 
+    /**
+     * facesは参照した時に生成される
+     */
+    public void setFaceBuffer(FaceBuffer buffer) {
+        this.faceBuffer = buffer;
+        this.faces = buffer.asFaceList();
+    }
+
     public void calcVertexNormals(VecAccuracy accuracy) {
         //頂点を共有している面のリストを格納
         Map<Vertex, List<Face>> faceMap = new HashMap<>(this.faces.size() * 4);
@@ -55,7 +69,24 @@ public final class GroupObject {
 
     public void render(IRenderer tessellator, boolean smoothing) {
         if (this.faces.size() > 0) {
-            faces.forEach(face -> face.addFaceForRender(tessellator, smoothing));
+            this.tessellate(tessellator, null, -1, -1, smoothing);
+        }
+    }
+
+    /**
+     * @param matrix null可
+     * @param matId  負の値で全てのマテリアル
+     */
+    public void tessellate(IRenderer tessellator, FloatBuffer matrix, int index, int matId, boolean smoothing) {
+        if (this.faceBuffer != null) {
+            this.faceBuffer.tessellate(tessellator, matrix, index, matId, smoothing);
+            return;
+        }
+
+        for (Face face : this.faces) {
+            if (matId < 0 || face.materialId == matId) {
+                NGTRenderHelper.addFaceWithMatrix(face, tessellator, matrix, index, smoothing);
+            }
         }
     }
 
@@ -0,0 +1,470 @@
+package jp.ngt.ngtlib.renderer.model;
+
+import cpw.mods.fml.relauncher.Side;
+import cpw.mods.fml.relauncher.SideOnly;
+import net.minecraftforge.client.model.ModelFormatException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * モデルファイルを行ごとにバイト列のまま読む<br>
+ * 数値はバッファから直接変換し, Stringを生成するのは名前のみ<br>
+ * 空白文字(\s)の連続は1つの区切りとして扱う
+ */
+@SideOnly(Side.CLIENT)
+public final class ModelTokenizer {
+    // allocating huge array makes GC many times so cache them
+    // but the buffer will be not necessary after finish loading models,
+    // so it should be weak/soft reference.
+    private static final ThreadLocal<SoftReference<byte[]>> BUFFER = new ThreadLocal<>();
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    // windows-31j: Shift_JIS with Microsoft Extension. Also known as Microsoft Code Page 932
+    private static final Charset WINDOWS_31J = Charset.forName("windows-31j");
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final InputStream inputStream;
+    private final Charset charset;
+    private byte[] buf;
+    private int limit;
+    private boolean eof;
+    private long bytesRead;
+
+    private int lineStart;
+    private int lineEnd;
+    private int nextLineStart;
+    private int pos;
+    private int lineNumber;
+
+    public ModelTokenizer(InputStream inputStream) {
+        this.inputStream = inputStream;
+        this.buf = getBuffer();
+        this.fill();
+        this.charset = this.detectCharset();
+        //UTF-8のBOM
+        if (this.limit >= 3 && this.buf[0] == (byte) 0xEF && this.buf[1] == (byte) 0xBB && this.buf[2] == (byte) 0xBF) {
+            this.nextLineStart = 3;
+        }
+    }
+
+    private static byte[] getBuffer() {
+        SoftReference<byte[]> ref = BUFFER.get();
+        byte[] bytes = ref == null ? null : ref.get();
+        if (bytes == null) {
+            BUFFER.set(new SoftReference<>(bytes = new byte[BUFFER_SIZE]));
+        }
+        return bytes;
+    }
+
+    /**
+     * 最初に読んだ部分のみで判定, UTF-8として不正ならwindows-31j
+     */
+    private Charset detectCharset() {
+        // empty: any charset should return empty string so use default one
+        if (this.limit == 0) {
+            return Charset.defaultCharset();
+        }
+        // trim last few bytes to not make error for last bytes
+        int length = this.eof ? this.limit : Math.max(this.limit - 4, 0);
+        if (isValidUtf8(this.buf, length)) {
+            return StandardCharsets.UTF_8;
+        }
+        // No U+FFFD should mean no decoding error.
+        String s = new String(this.buf, 0, length, WINDOWS_31J);
+        return s.indexOf('\ufffd') == -1 ? WINDOWS_31J : StandardCharsets.UTF_8;
+    }
+
+    /**
+     * 冗長な表現, サロゲート, U+10FFFFより大きいものも不正とする (Javaのデコーダと同じ)
+     */
+    private static boolean isValidUtf8(byte[] bytes, int length) {
+        int i = 0;
+        while (i < length) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                ++i;
+                continue;
+            }
+            int n;
+            //2バイト目の範囲
+            int min = 0x80;
+            int max = 0xBF;
+            if (b >= 0xC2 && b <= 0xDF) {
+                n = 1;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                n = 2;
+                if (b == 0xE0) {
+                    min = 0xA0;
+                } else if (b == 0xED) {
+                    max = 0x9F;
+                }
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                n = 3;
+                if (b == 0xF0) {
+                    min = 0x90;
+                } else if (b == 0xF4) {
+                    max = 0x8F;
+                }
+            } else {
+                return false;
+            }
+            for (int j = 1; j <= n; ++j) {
+                if (i + j >= length) {
+                    return true;//末尾の途中で切れた文字
+                }
+                int c = bytes[i + j] & 0xFF;
+                if (j == 1 ? (c < min || c > max) : (c & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+            i += n + 1;
+        }
+        return true;
+    }
+
+    /**
+     * 未読部分を先頭に詰め, バッファが一杯になるかEOFまで読む
+     */
+    private void fill() {
+        int remain = this.limit - this.nextLineStart;
+        if (this.nextLineStart > 0) {
+            System.arraycopy(this.buf, this.nextLineStart, this.buf, 0, remain);
+        } else if (remain == this.buf.length) {
+            //1行がバッファより長い
+            byte[] bytes = new byte[this.buf.length * 2];
+            System.arraycopy(this.buf, 0, bytes, 0, remain);
+            this.buf = bytes;
+        }
+        this.limit = remain;
+        this.nextLineStart = 0;
+
+        try {
+            int i;
+            while (this.limit < this.buf.length && (i = this.inputStream.read(this.buf, this.limit, this.buf.length - this.limit)) != -1) {
+                this.limit += i;
+                this.bytesRead += i;
+            }
+            this.eof = this.limit < this.buf.length;
+        } catch (IOException e) {
+            throw new ModelFormatException("On read model file", e);
+        }
+    }
+
+    /**
+     * 次の行へ進む, 行頭と行末の空白は除く
+     *
+     * @return EOFならfalse
+     */
+    public boolean nextLine() {
+        int end = this.indexOfLineEnd(this.nextLineStart);
+        while (end < 0) {
+            if (this.eof) {
+                if (this.nextLineStart >= this.limit) {
+                    return false;
+                }
+                end = this.limit;
+                break;
+            }
+            int searched = this.limit - this.nextLineStart;
+            this.fill();
+            end = this.indexOfLineEnd(searched);
+        }
+
+        int start = this.nextLineStart;
+        this.nextLineStart = end < this.limit ? end + 1 : end;
+        while (end > start && isSpace(this.buf[end - 1])) {
+            --end;
+        }
+        this.lineStart = start;
+        this.lineEnd = end;
+        this.pos = start;
+        this.skipSpaces();
+        ++this.lineNumber;
+        return true;
+    }
+
+    private int indexOfLineEnd(int from) {
+        byte[] bytes = this.buf;
+        for (int i = from; i < this.limit; ++i) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B || b == '\n';
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return isSpace(b) || b == ')' || b == '/';
+    }
+
+    private void skipSpaces() {
+        while (this.pos < this.lineEnd && isSpace(this.buf[this.pos])) {
+            ++this.pos;
+        }
+    }
+
+    public int getLineNumber() {
+        return this.lineNumber;
+    }
+
+    /**
+     * 入力から読んだバイト数
+     */
+    public long getBytesRead() {
+        return this.bytesRead;
+    }
+
+    /**
+     * 行に未読のトークンがあるか
+     */
+    public boolean hasNext() {
+        return this.pos < this.lineEnd;
+    }
+
+    /**
+     * 現在位置がprefixで始まるか, 位置は進めない
+     */
+    public boolean startsWith(String prefix) {
+        int length = prefix.length();
+        if (this.lineEnd - this.pos < length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (this.buf[this.pos + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 現在位置が空白で区切られたkeywordなら, その次のトークンまで進める
+     */
+    public boolean keyword(String keyword) {
+        int end = this.pos + keyword.length();
+        if (end < this.lineEnd && isSpace(this.buf[end]) && this.startsWith(keyword)) {
+            this.pos = end;
+            this.skipSpaces();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 現在位置がcなら1つ進める
+     */
+    public boolean skip(char c) {
+        if (this.pos < this.lineEnd && this.buf[this.pos] == c) {
+            ++this.pos;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 行頭から"name("を探し, その直後へ進める
+     *
+     * @return 見つからなければfalse, 位置は変わらない
+     */
+    public boolean seekField(String name) {
+        int length = name.length();
+        for (int i = this.lineStart; i + length < this.lineEnd; ++i) {
+            if (this.buf[i + length] == '(' && (i == this.lineStart || isSpace(this.buf[i - 1]))) {
+                int j = 0;
+                while (j < length && this.buf[i + j] == name.charAt(j)) {
+                    ++j;
+                }
+                if (j == length) {
+                    this.pos = i + length + 1;
+                    this.skipSpaces();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int tokenEnd() {
+        int end = this.pos;
+        while (end < this.lineEnd && !isDelimiter(this.buf[end])) {
+            ++end;
+        }
+        return end;
+    }
+
+    private void endToken(int end) {
+        this.pos = end;
+        this.skipSpaces();
+    }
+
+    /**
+     * @throws NumberFormatException 整数でない場合, トークンは読み飛ばす
+     */
+    public int nextInt() {
+        int end = this.tokenEnd();
+        int i = this.pos;
+        boolean negative = i < end && this.buf[i] == '-';
+        if (negative || (i < end && this.buf[i] == '+')) {
+            ++i;
+        }
+        if (i == end) {
+            throw this.numberError(end);
+        }
+        //10桁と-2147483648も読めるようにlongで数える
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0L;
+        for (; i < end; ++i) {
+            int digit = this.buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw this.numberError(end);
+            }
+            value = value * 10L + digit;
+            if (value > limit) {
+                throw this.numberError(end);
+            }
+        }
+        this.endToken(end);
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * 符号, 小数点, 指数表記に対応<br>
+     * それ以外("-NAN"等)は{@link Float#parseFloat}に任せる
+     *
+     * @throws NumberFormatException 数値でない場合, トークンは読み飛ばす
+     */
+    public float nextFloat() {
+        int end = this.tokenEnd();
+        byte[] bytes = this.buf;
+        int i = this.pos;
+        boolean negative = i < end && bytes[i] == '-';
+        if (negative || (i < end && bytes[i] == '+')) {
+            ++i;
+        }
+
+        long mantissa = 0L;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        boolean hasDigit = false;
+        boolean valid = true;
+        for (; i < end; ++i) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                hasDigit = true;
+                //2^53未満ならdoubleで正確に表せる
+                if (digits < 15) {
+                    mantissa = mantissa * 10L + (b - '0');
+                    if (mantissa != 0L) {
+                        ++digits;
+                    }
+                    if (dot) {
+                        --scale;
+                    }
+                } else if (!dot) {
+                    ++scale;//精度外の桁
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else if ((b == 'e' || b == 'E') && i + 1 < end) {
+                int exp = 0;
+                int j = i + 1;
+                boolean expNegative = bytes[j] == '-';
+                if (expNegative || bytes[j] == '+') {
+                    ++j;
+                }
+                valid = j < end && end - j <= 3;
+                for (; valid && j < end; ++j) {
+                    int digit = bytes[j] - '0';
+                    valid = digit >= 0 && digit <= 9;
+                    exp = exp * 10 + digit;
+                }
+                scale += expNegative ? -exp : exp;
+                break;
+            } else {
+                valid = false;
+                break;
+            }
+        }
+
+        if (valid && hasDigit && scale >= -POW10.length + 1 && scale < POW10.length) {
+            double d = scale < 0 ? mantissa / POW10[-scale] : mantissa * POW10[scale];
+            this.endToken(end);
+            return (float) (negative ? -d : d);
+        }
+
+        String s = new String(bytes, this.pos, end - this.pos, StandardCharsets.ISO_8859_1);
+        this.endToken(end);
+        return Float.parseFloat(s);
+    }
+
+    private NumberFormatException numberError(int end) {
+        String s = new String(this.buf, this.pos, end - this.pos, StandardCharsets.ISO_8859_1);
+        this.endToken(end);
+        return new NumberFormatException("For input string: \"" + s + "\"");
+    }
+
+    /**
+     * 空白までを文字列として読む
+     */
+    public String nextString() {
+        int end = this.pos;
+        while (end < this.lineEnd && !isSpace(this.buf[end])) {
+            ++end;
+        }
+        String s = new String(this.buf, this.pos, end - this.pos, this.charset);
+        this.endToken(end);
+        return s;
+    }
+
+    /**
+     * 行内で最初の""で囲まれた文字列
+     *
+     * @return 無ければ空文字
+     */
+    public String nextQuoted() {
+        int start = this.indexOf('"', this.lineStart);
+        int end = start < 0 ? -1 : this.indexOf('"', start + 1);
+        if (end < 0) {
+            return "";
+        }
+        this.endToken(end + 1);
+        return new String(this.buf, start + 1, end - start - 1, this.charset);
+    }
+
+    private int indexOf(char c, int from) {
+        for (int i = from; i < this.lineEnd; ++i) {
+            if (this.buf[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 現在位置から行末まで
+     */
+    public String rest() {
+        String s = new String(this.buf, this.pos, this.lineEnd - this.pos, this.charset);
+        this.pos = this.lineEnd;
+        return s;
+    }
+
+    /**
+     * エラー表示用
+     */
+    public String getLine() {
+        return new String(this.buf, this.lineStart, this.lineEnd - this.lineStart, this.charset);
+    }
+}
@@ -12,20 +12,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.IntStream;
 
 /**
  * Metasequoiaのモデルデータ
  */
 @SideOnly(Side.CLIENT)
 public class MqoModel extends PolygonModel {
-    private static final Pattern GROUP_PATTERN = Pattern.compile("\"(.+?)\"");
-    private static final Pattern VERTEX_INDEX_PATTERN = Pattern.compile("V\\((.+?)\\)");
-    private static final Pattern UV_PATTERN = Pattern.compile("UV\\((.+?)\\)");
-    private static final Pattern MATERIAL_PATTERN = Pattern.compile("M\\((.+?)\\)");
-
     private static final byte Type_Object = 0;
     private static final byte Type_Vertex = 1;
     private static final byte Type_Face = 2;
@@ -39,6 +31,13 @@ public class MqoModel extends PolygonModel {
     private byte currentType = -1;
     private byte mirrorType = -1;
 
+    /**
+     * 読み込み中の面の頂点番号とUV
+     */
+    private int[] faceIndices;
+    private float[] faceUVs;
+    private boolean hasUV;
+
     protected MqoModel(InputStream[] is, String name, int mode, VecAccuracy par3) throws ModelFormatException {
         super(is, name, mode, par3);
     }
@@ -49,25 +48,23 @@ public class MqoModel extends PolygonModel {
         this.materials = new HashMap<>();
         this.currentVertices = new ArrayList<>(256);
         this.mirrorVertex = new HashMap<>(256);
+        this.faceIndices = new int[4];
+        this.faceUVs = new float[8];
 
         super.init(is);
     }
 
     @Override
-    protected void parseLine(String currentLine, int lineCount) {
-        if (currentLine.isEmpty()) {
-            return;
-        }
-
+    protected void parseLine(ModelTokenizer tokenizer) {
         if (this.currentType >= 0) {
-            if (currentLine.startsWith("}")) {
+            if (tokenizer.startsWith("}")) {
                 this.currentType = -1;
             } else if (this.currentType == Type_Face) {
                 if (this.currentGroupObject == null) {
                     this.currentGroupObject = new GroupObject("Default", this.drawMode);
                 }
 
-                Face face = this.parseFace(currentLine, lineCount);
+                Face face = this.parseFace(tokenizer);
 
                 if (face != null) {
                     this.currentGroupObject.faces.add(face);
@@ -77,26 +74,26 @@ public class MqoModel extends PolygonModel {
                     }
                 }
             } else if (this.currentType == Type_Vertex) {
-                Vertex vertex = this.parseVertex(currentLine, lineCount);
+                Vertex vertex = this.parseVertex(tokenizer);
                 if (vertex != null) {
                     this.currentVertices.add(vertex);
                     this.calcSizeBox(vertex);
                 }
             } else if (this.currentType == Type_Thumbnail) {
             } else if (this.currentType == Type_Material) {
-                this.parseMaterial(currentLine, lineCount);
+                this.parseMaterial(tokenizer);
             }
         } else {
-            if (currentLine.startsWith("vertex ")) {
+            if (tokenizer.keyword("vertex")) {
                 this.currentType = Type_Vertex;
                 this.vertices.addAll(this.currentVertices);
                 this.currentVertices.clear();
-            } else if (currentLine.startsWith("face ")) {
+            } else if (tokenizer.keyword("face")) {
                 this.currentType = Type_Face;
-            } else if (currentLine.startsWith("Material ")) {
+            } else if (tokenizer.keyword("Material")) {
                 this.currentType = Type_Material;
-            } else if (currentLine.startsWith("Object ")) {
-                GroupObject group = this.parseGroupObject(currentLine, lineCount);
+            } else if (tokenizer.keyword("Object")) {
+                GroupObject group = this.parseGroupObject(tokenizer);
 
                 if (this.currentGroupObject != null) {
                     this.groupObjects.add(this.currentGroupObject);
@@ -105,15 +102,13 @@ public class MqoModel extends PolygonModel {
                 this.currentGroupObject = group;
                 this.mirrorType = -1;
                 this.mirrorVertex.clear();
-            } else if (currentLine.startsWith("mirror_axis "))//{x,y,z}={1,2,4}
+            } else if (tokenizer.keyword("mirror_axis"))//{x,y,z}={1,2,4}
             {
-                String[] sa = this.split(currentLine, ' ');
-                int axis = Integer.parseInt(sa[1]);
+                int axis = tokenizer.nextInt();
                 this.mirrorType = (byte) (axis == 1 ? 0 : (axis == 2 ? 1 : 2));
-            } else if (currentLine.startsWith("facet ")) {
-                String[] sa = this.split(currentLine, ' ');
-                this.currentGroupObject.smoothingAngle = this.getFloat(sa[1]);
-            } else if (currentLine.startsWith("Thumbnail ")) {
+            } else if (tokenizer.keyword("facet")) {
+                this.currentGroupObject.smoothingAngle = this.getFloat(tokenizer);
+            } else if (tokenizer.keyword("Thumbnail")) {
                 this.currentType = Type_Thumbnail;
             }
         }
@@ -129,141 +124,131 @@ public class MqoModel extends PolygonModel {
         this.mirrorVertex.clear();
     }
 
-    private void parseMaterial(String line, int lineCount) throws ModelFormatException {
-        String[] tokens = this.split(line, ' ');
-        if (tokens.length > 1) {
-            String matName = tokens[0].replaceAll("\"", "");
+    private void parseMaterial(ModelTokenizer tokenizer) throws ModelFormatException {
+        String matName = tokenizer.nextString().replace("\"", "");
+        if (tokenizer.hasNext()) {
             Material material = new Material((byte) this.materials.size(), null);
             this.materials.put(matName, material);
         } else {
-            throw new ModelFormatException("Error parsing material ('" + line + "'" + ", line " + lineCount + ") in file '" + fileName + "'");
+            throw this.formatError("material", tokenizer);
         }
     }
 
-    private Vertex parseVertex(String line, int lineCount) throws ModelFormatException {
-        String[] tokens = this.split(line, ' ');
-        try {
-            if (tokens.length == 2) {
-                return Vertex.create(this.getCorrectValue(tokens[0]), this.getCorrectValue(tokens[1]), 0.0F, this.accuracy);
-            } else if (tokens.length == 3) {
-                return Vertex.create(this.getCorrectValue(tokens[0]), this.getCorrectValue(tokens[1]), this.getCorrectValue(tokens[2]), this.accuracy);
-            }
-        } catch (NumberFormatException e) {
-            throw new ModelFormatException(String.format("Number formatting error at line %d", lineCount), e);
+    private Vertex parseVertex(ModelTokenizer tokenizer) {
+        float x = this.getCorrectValue(tokenizer);
+        if (!tokenizer.hasNext()) {
+            return null;
+        }
+        float y = this.getCorrectValue(tokenizer);
+        if (!tokenizer.hasNext()) {
+            return Vertex.create(x, y, 0.0F, this.accuracy);
         }
-        return null;
+        float z = this.getCorrectValue(tokenizer);
+        return tokenizer.hasNext() ? null : Vertex.create(x, y, z, this.accuracy);
     }
 
     /**
-     * 文字列を浮動小数に変換<br>
+     * 浮動小数を読む<br>
      * MQOでは単位がcmなのでmに補正
      */
-    private float getCorrectValue(String s) {
-        return this.getFloat(s) * 0.01F;//精度的にはDoubleでなくてもOK?
+    private float getCorrectValue(ModelTokenizer tokenizer) {
+        return this.getFloat(tokenizer) * 0.01F;//精度的にはDoubleでなくてもOK?
     }
 
     private @Nullable
-    Face parseFace(String line, int lineCount) throws ModelFormatException {
-        String[] tokens = this.split(line, ' ');
-        String mat = this.getMaterial(line);
-        int matId = mat.length() == 0 ? 0 : Integer.parseInt(mat);
-        int vertexCount = Integer.parseInt(tokens[0]);
-
-        if (vertexCount == 4 && this.drawMode == GL11.GL_QUADS) {
-            return this.parseFaceQuads(line, (byte) matId, lineCount);
-        } else {
+    Face parseFace(ModelTokenizer tokenizer) throws ModelFormatException {
+        try {
+            int vertexCount = tokenizer.nextInt();
+            int matId = tokenizer.seekField("M") ? tokenizer.nextInt() : 0;
+            boolean quads = vertexCount == 4 && this.drawMode == GL11.GL_QUADS;
+
             //点と線は除外
-            return (vertexCount < 3) ? null : this.parsePolygon(line, (byte) matId, lineCount, vertexCount);
+            if (!quads && vertexCount < 3) {
+                return null;
+            }
+
+            if (!quads && this.drawMode != GL11.GL_TRIANGLES) {
+                throw this.formatError("face", tokenizer);
+            }
+
+            this.readFace(tokenizer, vertexCount);
+            return quads ? this.parseFaceQuads((byte) matId) : this.parsePolygon((byte) matId, vertexCount);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new ModelFormatException(String.format("Error parsing face at line %d in file '%s'", tokenizer.getLineNumber(), this.fileName), e);
         }
     }
 
+    /**
+     * V(...)とUV(...)を配列に読み込む
+     */
+    private void readFace(ModelTokenizer tokenizer, int vertexCount) {
+        if (this.faceIndices.length < vertexCount) {
+            this.faceIndices = new int[vertexCount];
+            this.faceUVs = new float[vertexCount * 2];
+        }
+
+        if (!tokenizer.seekField("V")) {
+            throw this.formatError("face", tokenizer);
+        }
+        for (int i = 0; i < vertexCount; ++i) {
+            this.faceIndices[i] = tokenizer.nextInt();
+        }
+
+        this.hasUV = tokenizer.seekField("UV");
+        if (this.hasUV) {
+            for (int i = 0; i < vertexCount * 2; ++i) {
+                this.faceUVs[i] = this.getFloat(tokenizer);
+            }
+        }
+    }
+
+    private TextureCoordinate getUV(int index) {
+        float u = this.hasUV ? this.faceUVs[index * 2] : 0.0F;
+        float v = this.hasUV ? this.faceUVs[(index * 2) + 1] : 0.0F;
+        return TextureCoordinate.create(u, v, this.accuracy);
+    }
+
     /**
      * 四角ポリゴンの生成<br>
      * ※GL_QUAD限定
      */
-    private Face parseFaceQuads(String line, byte matId, int lineCount) {
+    private Face parseFaceQuads(byte matId) {
         Face face = new Face(4, matId);
-        String vertexIndex = this.getVertexIndex(line);
-        String[] vertexes = this.split(vertexIndex, ' ');
-        String uv = this.getUV(line);
-        String[] uvs = (uv.length() == 0) ? null : this.split(uv, ' ');
-
-        IntStream.range(0, 4).forEach(i -> {
-            Vertex vertex = this.currentVertices.get(Integer.parseInt(vertexes[i]));
-            float u = (uvs == null) ? 0.0F : this.getFloat(uvs[i * 2]);
-            float v = (uvs == null) ? 0.0F : this.getFloat(uvs[(i * 2) + 1]);
-            TextureCoordinate tex = TextureCoordinate.create(u, v, this.accuracy);
-            face.addVertex(3 - i, vertex, tex);
-        });
+        for (int i = 0; i < 4; ++i) {
+            Vertex vertex = this.currentVertices.get(this.faceIndices[i]);
+            face.addVertex(3 - i, vertex, this.getUV(i));
+        }
 
         face.calculateFaceNormal(this.accuracy);
         return face;
     }
 
-    private Face parsePolygon(String line, byte matId, int lineCount, int vertexCount) {
-        if (this.drawMode != GL11.GL_TRIANGLES) {
-            String msg = String.format("Error parsing face ('%s', line %d) in file '%s'", line, lineCount, this.fileName);
-            throw new ModelFormatException(msg);
-        }
-
+    private Face parsePolygon(byte matId, int vertexCount) {
         int size = (vertexCount - 2) * 3;//三角面化時の頂点数
         Face face = new Face(size, matId);
 
-        String vertexIndex = this.getVertexIndex(line);
-        String[] vertexes = this.split(vertexIndex, ' ');
-        String uv = this.getUV(line);
-        String[] uvs = (uv.length() == 0) ? null : this.split(uv, ' ');
-
         for (int i = 0; i < size; ++i) {
             int index = (i % 3 == 0) ? 0 : (i / 3) + (i % 3);
             index = (vertexCount - index) % vertexCount;//メタセコは面の張り方が逆(0,3,2,1)
-            Vertex vertex = this.currentVertices.get(Integer.parseInt(vertexes[index]));
-            float u = (uvs == null) ? 0.0F : this.getFloat(uvs[index * 2]);
-            float v = (uvs == null) ? 0.0F : this.getFloat(uvs[(index * 2) + 1]);
-            TextureCoordinate tex = TextureCoordinate.create(u, v, this.accuracy);
-            face.addVertex(i, vertex, tex);
+            Vertex vertex = this.currentVertices.get(this.faceIndices[index]);
+            face.addVertex(i, vertex, this.getUV(index));
         }
 
         face.calculateFaceNormal(this.accuracy);
         return face;
     }
 
-    private GroupObject parseGroupObject(String line, int lineCount) throws ModelFormatException {
-        String s = this.getGroupObjectName(line);
-        if (s != null && s.length() > 0) {
+    private GroupObject parseGroupObject(ModelTokenizer tokenizer) throws ModelFormatException {
+        String s = tokenizer.nextQuoted();
+        if (s.length() > 0) {
             return new GroupObject(s, this.drawMode);
         } else {
-            throw new ModelFormatException("Error parsing object ('" + line + "'" + ", line " + lineCount + ") in file '" + fileName + "'");
+            throw this.formatError("object", tokenizer);
         }
     }
 
-    private String getVertexIndex(String line) {
-        return this.getMatchedString(VERTEX_INDEX_PATTERN.matcher(line));
-    }
-
-    private String getUV(String line) {
-        return this.getMatchedString(UV_PATTERN.matcher(line));
-    }
-
-    private String getMaterial(String line) {
-        return this.getMatchedString(MATERIAL_PATTERN.matcher(line));
-    }
-
-    /**
-     * オブジェクト名を取得
-     */
-    private String getGroupObjectName(String line) {
-        return this.getMatchedString(GROUP_PATTERN.matcher(line));
-    }
-
-    private String getMatchedString(Matcher matcher) {
-        try {
-            matcher.find();
-            return matcher.group(1);
-        } catch (IllegalStateException e) {
-            //e.printStackTrace();
-            return "";
-        }
+    private ModelFormatException formatError(String entry, ModelTokenizer tokenizer) {
+        return new ModelFormatException("Error parsing " + entry + " ('" + tokenizer.getLine() + "'" + ", line " + tokenizer.getLineNumber() + ") in file '" + fileName + "'");
     }
 
     @Override
@@ -8,9 +8,9 @@ import org.lwjgl.opengl.GL11;
 
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 /**
  * ForgeのWavefrontObjectがマルチスレッド未対応のためRTMなどではこちらを使用<br>
@@ -20,24 +20,18 @@ import java.util.regex.Pattern;
 public final class ObjModel extends PolygonModel {
     public static final float SMOOTHING = 60.0F;
 
-    /**
-     * 小数点含む必要あり
-     */
-    private static final Pattern vertexPattern = Pattern.compile("(v( (\\-)?\\d+\\.\\d+){3,4} *\\n)|(v( (\\-)?\\d+\\.\\d+){3,4} *$)");
-    private static final Pattern vertexNormalPattern = Pattern.compile("(vn( (\\-)?\\d+\\.\\d+){3,4} *\\n)|(vn( (\\-)?\\d+\\.\\d+){3,4} *$)");
-    private static final Pattern textureCoordinatePattern = Pattern.compile("(vt( (\\-)?\\d+\\.\\d+){2,3} *\\n)|(vt( (\\-)?\\d+\\.\\d+){2,3} *$)");
-    private static final Pattern face_V_VT_VN_Pattern = Pattern.compile("(f( \\d+/\\d+/\\d+){3,4} *\\n)|(f( \\d+/\\d+/\\d+){3,4} *$)");
-    private static final Pattern face_V_VT_Pattern = Pattern.compile("(f( \\d+/\\d+){3,4} *\\n)|(f( \\d+/\\d+){3,4} *$)");
-    private static final Pattern face_V_VN_Pattern = Pattern.compile("(f( \\d+//\\d+){3,4} *\\n)|(f( \\d+//\\d+){3,4} *$)");
-    private static final Pattern face_V_Pattern = Pattern.compile("(f( \\d+){3,4} *\\n)|(f( \\d+){3,4} *$)");
-    private static final Pattern groupObjectPattern = Pattern.compile("([go]( [\\w\\d]+) *\\n)|([go]( [\\w\\d]+) *$)");
-
     private List<Vertex> vertexNormals;
     private List<TextureCoordinate> textureCoordinates;
     private Map<String, Material> materials;
 
     private byte currentMaterial;
 
+    /**
+     * 読み込み中の面の頂点番号とUV番号
+     */
+    private int[] faceVertices;
+    private int[] faceTexCoords;
+
     protected ObjModel(InputStream[] is, String name, VecAccuracy par2) throws ModelFormatException {
         super(is, name, GL11.GL_TRIANGLES, par2);
     }
@@ -47,6 +41,8 @@ public final class ObjModel extends PolygonModel {
         //呼び出し順序的に、ここで初期化しとかないといけない
         this.vertexNormals = new ArrayList<>();
         this.textureCoordinates = new ArrayList<>();
+        this.faceVertices = new int[4];
+        this.faceTexCoords = new int[4];
 
         InputStream is2 = null;
         if (is.length >= 2) {
@@ -58,50 +54,40 @@ public final class ObjModel extends PolygonModel {
     }
 
     @Override
-    protected void parseLine(String currentLine, int lineCount) {
-        if (currentLine.isEmpty()) {
-            return;
-        }
-        //currentLine.startsWith("#")
+    protected void parseLine(ModelTokenizer tokenizer) {
+        //tokenizer.startsWith("#")
 
-        if (currentLine.startsWith("f ")) {
+        if (tokenizer.keyword("f")) {
             if (this.currentGroupObject == null) {
                 this.currentGroupObject = new GroupObject("Default", GL11.GL_TRIANGLES);
                 this.currentGroupObject.smoothingAngle = SMOOTHING;
             }
 
-            Face face = this.parseFace(currentLine, lineCount);
+            Face face = this.parseFace(tokenizer);
 
             if (face != null) {
                 this.currentGroupObject.faces.add(face);
             }
-        } else if (currentLine.startsWith("vt ")) {
-            TextureCoordinate textureCoordinate = this.parseTextureCoordinate(currentLine, lineCount);
+        } else if (tokenizer.keyword("vt")) {
+            TextureCoordinate textureCoordinate = this.parseTextureCoordinate(tokenizer);
             this.textureCoordinates.add(textureCoordinate);
-        } else if (currentLine.startsWith("v ")) {
-            Vertex vertex = this.parseVertex(currentLine, lineCount);
-            if (vertex != null) {
-                this.vertices.add(vertex);
-                this.calcSizeBox(vertex);
-            }
-        } else if (currentLine.startsWith("usemtl ")) {
-            String[] sa = this.split(currentLine, ' ');
-            Material mat = this.materials.get(sa[1]);
+        } else if (tokenizer.keyword("v")) {
+            Vertex vertex = this.parseVertex(tokenizer, true);
+            this.vertices.add(vertex);
+            this.calcSizeBox(vertex);
+        } else if (tokenizer.keyword("usemtl")) {
+            Material mat = this.materials.get(tokenizer.nextString());
             if (mat != null) {
                 this.currentMaterial = mat.id;
             }
-        } else if (currentLine.startsWith("vn ")) {
-            Vertex vertex = this.parseVertexNormal(currentLine, lineCount);
-            if (vertex != null) {
-                this.vertexNormals.add(vertex);
-            }
-        } else if (currentLine.startsWith("g ") | currentLine.startsWith("o ")) {
-            GroupObject group = this.parseGroupObject(currentLine, lineCount);
-
-            if (group != null) {
-                if (this.currentGroupObject != null) {
-                    this.groupObjects.add(this.currentGroupObject);
-                }
+        } else if (tokenizer.keyword("vn")) {
+            Vertex vertex = this.parseVertex(tokenizer, false);
+            this.vertexNormals.add(vertex);
+        } else if (tokenizer.keyword("g") || tokenizer.keyword("o")) {
+            GroupObject group = new GroupObject(tokenizer.rest(), GL11.GL_TRIANGLES);
+
+            if (this.currentGroupObject != null) {
+                this.groupObjects.add(this.currentGroupObject);
             }
 
             this.currentGroupObject = group;
@@ -117,222 +103,81 @@ public final class ObjModel extends PolygonModel {
     }
 
     /**
-     * 頂点生成
+     * 頂点, 頂点法線生成 (wは無視)
+     *
+     * @param allow2D zが無い場合に0とする (頂点のみ)
      */
-    private Vertex parseVertex(String line, int lineCount) throws ModelFormatException {
-        if (isValidVertexLine(line)) {
-            line = line.substring(line.indexOf(' ') + 1);
-            String[] tokens = this.split(line, ' ');
-
-            try {
-                if (tokens.length == 2) {
-                    return Vertex.create(Float.parseFloat(tokens[0]), Float.parseFloat(tokens[1]), 0.0F, this.accuracy);
-                } else if (tokens.length == 3) {
-                    return Vertex.create(Float.parseFloat(tokens[0]), Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2]), this.accuracy);
-                }
-            } catch (NumberFormatException e) {
-                throw new ModelFormatException(String.format("Number formatting error at line %d", lineCount), e);
-            }
-        } else {
-            throw new ModelFormatException("Error parsing entry ('" + line + "'" + ", line " + lineCount + ") in file '" + fileName + "' - Incorrect format");
+    private Vertex parseVertex(ModelTokenizer tokenizer, boolean allow2D) throws ModelFormatException {
+        try {
+            float x = tokenizer.nextFloat();
+            float y = tokenizer.nextFloat();
+            float z = (allow2D && !tokenizer.hasNext()) ? 0.0F : tokenizer.nextFloat();
+            return Vertex.create(x, y, z, this.accuracy);
+        } catch (NumberFormatException e) {
+            throw new ModelFormatException(String.format("Number formatting error at line %d", tokenizer.getLineNumber()), e);
         }
+    }
 
-        return null;
+    private TextureCoordinate parseTextureCoordinate(ModelTokenizer tokenizer) throws ModelFormatException {
+        try {
+            float u = tokenizer.nextFloat();
+            float v = tokenizer.nextFloat();
+            return TextureCoordinate.create(u, 1.0F - v, this.accuracy);
+        } catch (NumberFormatException e) {
+            throw new ModelFormatException(String.format("Number formatting error at line %d", tokenizer.getLineNumber()), e);
+        }
     }
 
     /**
-     * 頂点法線生成
+     * v, v/vt, v/vt/vn, v//vn のいずれか (負の値は末尾からの番号)
      */
-    private Vertex parseVertexNormal(String line, int lineCount) throws ModelFormatException {
-        if (isValidVertexNormalLine(line)) {
-            line = line.substring(line.indexOf(' ') + 1);
-            String[] tokens = this.split(line, ' ');
-
-            try {
-                if (tokens.length == 3) {
-                    return Vertex.create(Float.parseFloat(tokens[0]), Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2]), this.accuracy);
+    private Face parseFace(ModelTokenizer tokenizer) throws ModelFormatException {
+        int count = 0;
+        try {
+            while (tokenizer.hasNext()) {
+                if (count == this.faceVertices.length) {
+                    this.faceVertices = Arrays.copyOf(this.faceVertices, count * 2);
+                    this.faceTexCoords = Arrays.copyOf(this.faceTexCoords, count * 2);
                 }
-            } catch (NumberFormatException e) {
-                throw new ModelFormatException(String.format("Number formatting error at line %d", lineCount), e);
-            }
-        } else {
-            throw new ModelFormatException("Error parsing entry ('" + line + "'" + ", line " + lineCount + ") in file '" + fileName + "' - Incorrect format");
-        }
-
-        return null;
-    }
-
-    private TextureCoordinate parseTextureCoordinate(String line, int lineCount) throws ModelFormatException {
-        if (isValidTextureCoordinateLine(line)) {
-            line = line.substring(line.indexOf(' ') + 1);
-            String[] tokens = this.split(line, ' ');
-
-            try {
-                return TextureCoordinate.create(Float.parseFloat(tokens[0]), 1.0F - Float.parseFloat(tokens[1]), this.accuracy);
-            } catch (NumberFormatException e) {
-                throw new ModelFormatException(String.format("Number formatting error at line %d", lineCount), e);
-            }
-        } else {
-            throw new ModelFormatException("Error parsing entry ('" + line + "'" + ", line " + lineCount + ") in file '" + fileName + "' - Incorrect format");
-        }
-    }
-
-    private Face parseFace(String line, int lineCount) throws ModelFormatException {
-        if (isValidFaceLine(line)) {
-            String trimmedLine = line.substring(line.indexOf(' ') + 1);
-            String[] tokens = this.split(trimmedLine, ' ');
-
-            if (tokens.length > 2) {
-                return this.parsePolygon(line, tokens, lineCount);
-            }
-        } else {
-            throw new ModelFormatException("Error parsing entry ('" + line + "'" + ", line " + lineCount + ") in file '" + fileName + "' - Incorrect format");
-        }
-        return null;
-    }
-
-    private Face parsePolygon(String line, String[] tokens, int lineCount) {
-        byte type = getValidType(line);
-        if (type >= 0) {
-            int size = (tokens.length - 2) * 3;//三角面化時の頂点数
-            Face face = new Face(size, this.currentMaterial);
-
-            if (type == 0 || type == 2) {
-                //face.vertexNormals = new Vertex[6];
-            }
 
-            for (int i = 0; i < size; ++i) {
-                int index = (i % 3 == 0) ? 0 : (i / 3) + (i % 3);
-                Vertex vertex;
-                TextureCoordinate tex = null;
-
-                if (type < 3) {
-                    String[] subTokens;
-
-                    if (type == 0 || type == 1) {
-                        subTokens = this.split(tokens[index], '/');
+                this.faceVertices[count] = getIndex(tokenizer.nextInt(), this.vertices.size());
+                this.faceTexCoords[count] = -1;
+                if (tokenizer.skip('/')) {
+                    if (!tokenizer.skip('/')) {
+                        this.faceTexCoords[count] = getIndex(tokenizer.nextInt(), this.textureCoordinates.size());
+                        if (tokenizer.skip('/')) {
+                            tokenizer.nextInt();
+                        }
                     } else {
-                        subTokens = this.split(tokens[index], "//");
-                    }
-
-                    vertex = this.vertices.get(Integer.parseInt(subTokens[0]) - 1);
-
-                    if (type == 0 || type == 1) {
-                        tex = this.textureCoordinates.get(Integer.parseInt(subTokens[1]) - 1);
+                        tokenizer.nextInt();
                     }
-
-                    if (type == 0 || type == 2) {
-                        //face.vertexNormals[i] = this.vertexNormals.get(Integer.parseInt(subTokens[type == 0 ? 2 : 1]) - 1);
-                    }
-                } else {
-                    vertex = this.vertices.get(Integer.parseInt(tokens[index]) - 1);
                 }
-
-                face.addVertex(i, vertex, tex);
+                ++count;
             }
-
-            face.calculateFaceNormal(this.accuracy);
-            return face;
-        } else {
-            throw new ModelFormatException("Error parsing entry ('" + line + "'" + ", line " + lineCount + ") in file '" + fileName + "' - Incorrect format");
+        } catch (NumberFormatException e) {
+            throw new ModelFormatException("Error parsing entry ('" + tokenizer.getLine() + "'" + ", line " + tokenizer.getLineNumber() + ") in file '" + fileName + "' - Incorrect format", e);
         }
-    }
-
-    private GroupObject parseGroupObject(String line, int lineCount) throws ModelFormatException {
-        if (isValidGroupObjectLine(line)) {
-            String trimmedLine = line.substring(line.indexOf(' ') + 1);
-            if (trimmedLine.length() > 0) {
-                return new GroupObject(trimmedLine, GL11.GL_TRIANGLES);
-            }
-        } else {
-            throw new ModelFormatException("Error parsing entry ('" + line + "'" + ", line " + lineCount + ") in file '" + fileName + "' - Incorrect format");
-        }
-        return null;
-    }
 
-    private static boolean isValidVertexLine(String line) {
-        return vertexPattern.matcher(line).matches();
+        return count > 2 ? this.parsePolygon(count) : null;
     }
 
-    private static boolean isValidVertexNormalLine(String line) {
-        return vertexNormalPattern.matcher(line).matches();
+    private static int getIndex(int index, int size) {
+        return index < 0 ? size + index : index - 1;
     }
 
-    private static boolean isValidTextureCoordinateLine(String line) {
-        return textureCoordinatePattern.matcher(line).matches();
-    }
+    private Face parsePolygon(int count) {
+        int size = (count - 2) * 3;//三角面化時の頂点数
+        Face face = new Face(size, this.currentMaterial);
 
-    /***
-     * Verifies that the given line from the model file is a valid face that is described by vertices, texture coordinates, and vertex normals
-     * @param line the line being validated
-     * @return true if the line is a valid face that matches the format "f v1/vt1/vn1 ..." (with a minimum of 3 points in the face, and a maximum of 4), false otherwise
-     */
-    private static boolean isValidFace_V_VT_VN_Line(String line) {
-        return face_V_VT_VN_Pattern.matcher(line).matches();
-    }
-
-    /***
-     * Verifies that the given line from the model file is a valid face that is described by vertices and texture coordinates
-     * @param line the line being validated
-     * @return true if the line is a valid face that matches the format "f v1/vt1 ..." (with a minimum of 3 points in the face, and a maximum of 4), false otherwise
-     */
-    private static boolean isValidFace_V_VT_Line(String line) {
-        return face_V_VT_Pattern.matcher(line).matches();
-    }
-
-    /***
-     * Verifies that the given line from the model file is a valid face that is described by vertices and vertex normals
-     * @param line the line being validated
-     * @return true if the line is a valid face that matches the format "f v1//vn1 ..." (with a minimum of 3 points in the face, and a maximum of 4), false otherwise
-     */
-    private static boolean isValidFace_V_VN_Line(String line) {
-        return face_V_VN_Pattern.matcher(line).matches();
-    }
-
-    /***
-     * Verifies that the given line from the model file is a valid face that is described by only vertices
-     * @param line the line being validated
-     * @return true if the line is a valid face that matches the format "f v1 ..." (with a minimum of 3 points in the face, and a maximum of 4), false otherwise
-     */
-    private static boolean isValidFace_V_Line(String line) {
-        return face_V_Pattern.matcher(line).matches();
-    }
-
-    /***
-     * Verifies that the given line from the model file is a valid face of any of the possible face formats
-     * @param line the line being validated
-     * @return true if the line is a valid face that matches any of the valid face formats, false otherwise
-     */
-    private static boolean isValidFaceLine(String line) {
-        return isValidFace_V_VT_VN_Line(line) || isValidFace_V_VT_Line(line) || isValidFace_V_VN_Line(line) || isValidFace_V_Line(line);
-    }
-
-    /**
-     * @return 0:V_VT_VN<br>
-     * 1:V_VT<br>
-     * 2:V_VN<br>
-     * 3:V<br>
-     * -1:一致せず
-     */
-    private static byte getValidType(String line) {
-        if (isValidFace_V_VT_VN_Line(line))// f v1/vt1/vn1 v2/vt2/vn2 v3/vt3/vn3 ...
-        {
-            return 0;
-        } else if (isValidFace_V_VT_Line(line))// f v1/vt1 v2/vt2 v3/vt3 ...
-        {
-            return 1;
-        } else if (isValidFace_V_VN_Line(line))// f v1//vn1 v2//vn2 v3//vn3 ...
-        {
-            return 2;
-        } else if (isValidFace_V_Line(line))// f v1 v2 v3 ...
-        {
-            return 3;
+        for (int i = 0; i < size; ++i) {
+            int index = (i % 3 == 0) ? 0 : (i / 3) + (i % 3);
+            Vertex vertex = this.vertices.get(this.faceVertices[index]);
+            int tex = this.faceTexCoords[index];
+            face.addVertex(i, vertex, tex < 0 ? null : this.textureCoordinates.get(tex));
         }
-        return -1;
-    }
 
-    private static boolean isValidGroupObjectLine(String line) {
-        return groupObjectPattern.matcher(line).matches();
+        face.calculateFaceNormal(this.accuracy);
+        return face;
     }
 
     @Override
@@ -2,26 +2,18 @@ package jp.ngt.ngtlib.renderer.model;
 
 import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
+import jp.ngt.ngtlib.io.NGTLog;
 import jp.ngt.ngtlib.renderer.IRenderer;
 import jp.ngt.ngtlib.renderer.NGTTessellator;
-import kotlin.Pair;
 import net.minecraftforge.client.model.ModelFormatException;
 import org.lwjgl.opengl.GL11;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.SequenceInputStream;
-import java.lang.ref.SoftReference;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @SideOnly(Side.CLIENT)
 public abstract class PolygonModel implements IModelNGT {
@@ -66,72 +58,46 @@ public abstract class PolygonModel implements IModelNGT {
         this.loadModel(is[0]);
     }
 
-    int lineCount;//スコープの関係でここに置く
-    static Pattern repS = Pattern.compile("\\s+");//s.replaceAll()とやってること同じ
+    private static final AtomicInteger PARSE_COUNT = new AtomicInteger();
+    private static final AtomicLong PARSE_BYTES = new AtomicLong();
+    private static final AtomicLong PARSE_TIME = new AtomicLong();
+    /**
+     * これ以上のサイズのファイルは個別に速度を出力
+     */
+    private static final long LOG_SIZE = 16L * 1024L * 1024L;
 
-    //https://qiita.com/penguinshunya/items/353bb1c555f337b0cf6d
     private void loadModel(InputStream inputStream) {
-        Pair<Charset, InputStream> pair = detectCharset(inputStream);
-        inputStream = pair.component2();
-        
-        //readLine()より若干早い
-        try (Stream<String> stream = new BufferedReader(new InputStreamReader(inputStream, pair.component1())).lines()) {
-            stream.forEach(this::preParse);
+        long l0 = System.nanoTime();
+        ModelTokenizer tokenizer = new ModelTokenizer(inputStream);
+        while (tokenizer.nextLine()) {
+            if (tokenizer.hasNext()) {
+                this.parseLine(tokenizer);
+            }
         }
         this.postInit();
-        //String s = Files.lines(Paths.get(path), Charset.forName("UTF-8")).collect(Collectors.joining(System.getProperty("line.separator")));
-    }
 
-    // allocating huge array makes GC many times so cache them
-    // but the buffer will be not necessary after finish loading models,
-    // so it should be weak/soft reference.
-    private static final ThreadLocal<SoftReference<byte[]>> buffer = new ThreadLocal<>();
-
-    // windows-31j: Shift_JIS with Microsoft Extension. Also known as Microsoft Code Page 932
-    private static final Charset[] tryingCharsets = new Charset[] {
-            StandardCharsets.UTF_8,
-            Charset.forName("windows-31j"),
-    };
-
-    private static byte[] getBuffer() {
-        SoftReference<byte[]> ref = buffer.get();
-        byte[] bytes = ref == null ? null : ref.get();
-        if (bytes == null) {
-            // 4 Mi bytes
-            buffer.set(new SoftReference<>(bytes = new byte[1024 * 1024]));
+        long time = System.nanoTime() - l0;
+        long bytes = tokenizer.getBytesRead();
+        PARSE_COUNT.incrementAndGet();
+        PARSE_BYTES.addAndGet(bytes);
+        PARSE_TIME.addAndGet(time);
+        if (bytes >= LOG_SIZE) {
+            NGTLog.debug("[Model] %s: %dMB in %dms (%.1fMB/s)", this.fileName, bytes >> 20, time / 1000000L, getThroughput(bytes, time));
         }
-        return bytes;
     }
 
-    // TODO: test
-    private static Pair<Charset, InputStream> detectCharset(InputStream inputStream) {
-        byte[] buf = getBuffer();
-        int c = 0;
-        try {
-            // read bytes fully to buf.
-            int i;
-            while ((i = inputStream.read(buf, c, buf.length - c)) != -1) {
-                c += i;
-                if (c == buf.length)
-                    break;
-            }
-        } catch (IOException e) {
-            throw new ModelFormatException("On read file for charset detection", e);
-        }
-        // empty: any charset should return empty string so use default one
-        if (c == 0) return new Pair<>(Charset.defaultCharset(), inputStream);
-        InputStream returnInputStream = new SequenceInputStream(new ByteArrayInputStream(buf, 0, c), inputStream);
-        for (Charset tryingCharset : tryingCharsets) {
-            String s = new String(buf, 0, c, tryingCharset);
-            // trim last few chars to not make error for last bytes
-            s = s.substring(0, s.length() - 10);
-            
-            // No U+FFFD should mean no decoding error.
-            if (s.indexOf('\ufffd') == -1)
-                return new Pair<>(tryingCharset, returnInputStream);
-        }
-        // no charsets are valid: use UTF8
-        return new Pair<>(StandardCharsets.UTF_8, returnInputStream);
+    private static double getThroughput(long bytes, long nanoTime) {
+        return nanoTime == 0L ? 0.0D : (bytes / (1024.0D * 1024.0D)) / (nanoTime / 1.0E9D);
+    }
+
+    /**
+     * テキスト形式モデルの解析速度をログに出力 (スレッドごとの速度)
+     */
+    public static void logStats() {
+        long bytes = PARSE_BYTES.get();
+        long time = PARSE_TIME.get();
+        NGTLog.debug("[Model] parsed:%d, %dMB in %dms (%.1fMB/s)",
+                PARSE_COUNT.get(), bytes >> 20, time / 1000000L, getThroughput(bytes, time));
     }
 
     //https://kujirahand.com/blog/index.php?Java%E3%81%A7%E3%83%86%E3%82%AD%E3%82%B9%E3%83%88%E3%83%95%E3%82%A1%E3%82%A4%E3%83%AB%E3%82%92%E8%AA%AD%E3%81%BF%E8%BE%BC%E3%82%80%E6%96%B9%E6%B3%95%E3%81%A7%E3%81%A9%E3%82%8C%E3%81%8C%E4%B8%80%E7%95%AA%E9%80%9F%E3%81%84
@@ -161,7 +127,10 @@ public abstract class PolygonModel implements IModelNGT {
     	//String s = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
     }*/
 
-    protected abstract void parseLine(String currentLine, int lineCount);
+    /**
+     * 空行以外の各行で呼ばれる
+     */
+    protected abstract void parseLine(ModelTokenizer tokenizer);
 
     /**
      * 全ての行を読み込んだ後に呼ばれる
@@ -268,61 +237,15 @@ public abstract class PolygonModel implements IModelNGT {
 
     /////////////////////////////////////////////////////////////////////////////
 
-    protected final float getFloat(String s) {
+    /**
+     * 数値でなければ0
+     */
+    protected final float getFloat(ModelTokenizer tokenizer) {
         try {
-            return Float.parseFloat(s);
+            return tokenizer.nextFloat();
         } catch (NumberFormatException e)//MQ3で"-NAN"が含まれる対策
         {
             return 0.0F;
         }
     }
-
-    private final List<String> tempList = new ArrayList<>();
-
-    //速さ変わらない?
-
-    /**
-     * 正規表現を使わないsplit
-     */
-    protected final String[] split(String target, char regex) {
-        this.tempList.clear();
-        int index = 0;
-        while (index >= 0) {
-            int nextHit = target.indexOf(regex, index);
-            if (nextHit < 0)//次のマッチ箇所なし
-            {
-                this.tempList.add(target.substring(index));
-                break;
-            } else if (index < nextHit) {
-                this.tempList.add(target.substring(index, nextHit));
-            }
-            index = nextHit + 1;
-        }
-        return this.tempList.toArray(new String[0]);
-    }
-
-    /**
-     * 正規表現を使わないsplit
-     */
-    protected final String[] split(String target, String regex) {
-        this.tempList.clear();
-        int index = 0;
-        while (index >= 0) {
-            int nextHit = target.indexOf(regex, index);
-            if (nextHit < 0)//次のマッチ箇所なし
-            {
-                this.tempList.add(target.substring(index));
-                break;
-            } else if (index < nextHit) {
-                this.tempList.add(target.substring(index, nextHit));
-            }
-            index = nextHit + regex.length();
-        }
-        return this.tempList.toArray(new String[0]);
-    }
-
-    private void preParse(String line) {
-        line = repS.matcher(line).replaceAll(" ").trim();//空白文字を置換
-        this.parseLine(line, ++lineCount);
-    }
 }
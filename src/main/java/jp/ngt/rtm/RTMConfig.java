@@ -27,6 +27,7 @@ public class RTMConfig {
     public static boolean gunBreakBlock;
     public static boolean deleteBat;
     public static boolean useServerModelPack;//C/S両側で有効
+    public static int modelPackUploadRate;
     public static boolean versionCheck;
     public static int mirrorTextureSize;
     public static boolean smoothing;
@@ -35,6 +36,18 @@ public class RTMConfig {
     public static int loadSpeed;
     public static boolean expandPlayableSoundCount;
     public static boolean markerDistanceMoreRealPosition = true;
+    public static int railSampleCacheSize;
+    public static int vehicleSyncNearRange;
+    public static int vehicleSyncMaxInterval;
+    public static int trainSyncInterval;
+    public static boolean trainMotionPrediction;
+    public static int scriptTickBudget;
+    public static int scriptThrottleInterval;
+    public static int scriptProfileLogInterval;
+    public static int modelCacheMemory;
+    public static boolean preloadModelCache;
+    public static boolean lazyModelLoading;
+    public static int modelIdleUnloadTime;
 
     public static float trainRunningSoundRange;
     public static float trainJointSoundRange;
@@ -81,15 +94,41 @@ public class RTMConfig {
                 "GeneratingHeight", CATEGORY_RAIL, 8, 0, 256, "Height for generating a rail. (recomended max value:256)");
         RTMConfig.markerDisplayDistance = (short) cfg.getInt(
                 "MarkerDisplayDistance", CATEGORY_RAIL, 100, 0, Short.MAX_VALUE, "");
+        RTMConfig.railSampleCacheSize = cfg.getInt(
+                "SampleCacheSize", CATEGORY_RAIL, 64, 0, 4096, "Memory (MiB) for caching positions and angles on rails. (0:disabled)");
 
         RTMConfig.gunBreakBlock = cfg.getBoolean(
                 "Gun Break Block", CATEGORY_ITEM, true, "");
         RTMConfig.deleteBat = cfg.getBoolean(
                 "delete bat", CATEGORY_ENTITY, false, "Delete bat");
+        RTMConfig.vehicleSyncNearRange = cfg.getInt(
+                "vehicle sync near range", CATEGORY_ENTITY, 64, 1, 1024, "Players within this distance receive every vehicle movement update.");
+        RTMConfig.vehicleSyncMaxInterval = cfg.getInt(
+                "vehicle sync max interval", CATEGORY_ENTITY, 4, 1, 20, "Maximum multiple of the update interval used for distant players. (1:disabled)");
+        RTMConfig.trainSyncInterval = cfg.getInt(
+                "train sync interval", CATEGORY_ENTITY, 2, 1, 20, "Multiple of the update interval for train movement. Clients predict the position along the rail in between.");
+        RTMConfig.trainMotionPrediction = cfg.getBoolean(
+                "train motion prediction", CATEGORY_ENTITY, true, "Client predicts train position along the rail between movement updates.");
 
         RTMConfig.useServerModelPack = cfg.getBoolean(
                 "use ServerModelPack", CATEGORY_MODEL, false, "Download ModelPacks from Server (or Permit download ModelPacks).");
+        RTMConfig.modelPackUploadRate = cfg.getInt(
+                "ModelPack upload rate", CATEGORY_MODEL, 1024, 16, 1048576, "Max speed (KB/s) of uploading ModelPacks to clients, shared by all players.");
         RTMConfig.smoothing = cfg.getBoolean("do smoothing", CATEGORY_MODEL, true, "");
+        RTMConfig.scriptTickBudget = cfg.getInt(
+                "script tick budget", CATEGORY_MODEL, 0, 0, 1000000, "Time (microseconds) per tick for onUpdate of each model. Models over budget are throttled. (0:disabled)");
+        RTMConfig.scriptThrottleInterval = cfg.getInt(
+                "script throttle interval", CATEGORY_MODEL, 2, 1, 20, "Throttled models run onUpdate once per this many ticks.");
+        RTMConfig.scriptProfileLogInterval = cfg.getInt(
+                "script profile log interval", CATEGORY_MODEL, 60, 0, 3600, "Interval (seconds) of logging script profile while profiling. (0:disabled)");
+        RTMConfig.modelCacheMemory = cfg.getInt(
+                "model cache memory", CATEGORY_MODEL, 256, 16, 8192, "Heap size (MB) of cached models kept in memory. Older models are released when over this size and not rendered.");
+        RTMConfig.preloadModelCache = cfg.getBoolean(
+                "preload model cache", CATEGORY_MODEL, false, "Read all cached models at startup instead of when each model is loaded.");
+        RTMConfig.lazyModelLoading = cfg.getBoolean(
+                "lazy model loading", CATEGORY_MODEL, true, "Load models when they are rendered first, instead of at startup.");
+        RTMConfig.modelIdleUnloadTime = cfg.getInt(
+                "model idle unload time", CATEGORY_MODEL, 0, 0, 1440, "Time (minutes) until models not rendered are released. Needs lazy model loading. (0:disabled)");
 
         RTMConfig.versionCheck = cfg.getBoolean(
                 "version check", CATEGORY_MOD, true, "");
@@ -31,6 +31,9 @@ public final class RTMPacket {
         registerPacket(PacketMovingMachine.class, PacketMovingMachine.class, Side.SERVER);
         registerPacket(PacketMoveMM.class, PacketMoveMM.class, Side.CLIENT);
         registerPacket(PacketSyncItem.class, PacketSyncItem.class, Side.SERVER);
+        registerPacket(PacketFormationMovement.class, PacketFormationMovement.class, Side.CLIENT);
+        registerPacket(PacketDataMap.class, PacketDataMap.class, Side.CLIENT);
+        registerPacket(PacketModelPackRequest.class, PacketModelPackRequest.class, Side.SERVER);
     }
 
     public static <REQ extends IMessage, REPLY extends IMessage> void registerPacket(Class<? extends IMessageHandler<REQ, REPLY>> messageHandler, Class<REQ> requestMessageType, Side side) {
@@ -1,6 +1,7 @@
 package jp.ngt.rtm.command;
 
 import jp.ngt.rtm.RTMCore;
+import jp.ngt.rtm.electric.TileEntitySignal;
 import jp.ngt.rtm.entity.train.*;
 import jp.ngt.rtm.entity.train.parts.EntityFloor;
 import jp.ngt.rtm.entity.train.parts.EntityVehiclePart;
@@ -8,12 +9,16 @@ import jp.ngt.rtm.entity.train.util.Formation;
 import jp.ngt.rtm.entity.train.util.FormationManager;
 import jp.ngt.rtm.entity.train.util.TrainState.TrainStateType;
 import jp.ngt.rtm.modelpack.ModelPackManager;
+import jp.ngt.rtm.modelpack.ScriptProfiler;
 import jp.ngt.rtm.modelpack.cfg.TrainConfig;
 import jp.ngt.rtm.modelpack.modelset.ModelSetVehicleBase;
 import jp.ngt.rtm.network.PacketNotice;
+import jp.ngt.rtm.rail.RailTopology;
 import jp.ngt.rtm.rail.TileEntityLargeRailBase;
+import jp.ngt.rtm.rail.TileEntityLargeRailCore;
 import jp.ngt.rtm.rail.util.RailMap;
 import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayerMP;
@@ -21,6 +26,7 @@ import net.minecraft.nbt.JsonToNBT;
 import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTException;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.AxisAlignedBB;
 import net.minecraft.util.ChatComponentText;
 import net.minecraft.util.MathHelper;
@@ -46,6 +52,40 @@ public class CommandRTM extends CommandBase {
         return "commands.rtm.usage";
     }
 
+    /**
+     * blocksection list<br>
+     * blocksection rail &lt;name|-&gt; : 足元のレール<br>
+     * blocksection signal &lt;x&gt; &lt;y&gt; &lt;z&gt; &lt;name|-&gt;
+     */
+    private void processBlockSection(ICommandSender commandSender, EntityPlayerMP player, String[] s) {
+        World world = commandSender.getEntityWorld();
+        String sub = s.length >= 2 ? s[1] : "list";
+        if (sub.equalsIgnoreCase("rail") && s.length == 3 && player != null) {
+            TileEntityLargeRailBase rail = TileEntityLargeRailBase.getRailFromCoordinates(world, player.posX, player.posY, player.posZ);
+            TileEntityLargeRailCore core = rail != null ? rail.getRailCore() : null;
+            if (core == null) {
+                throw new CommandException("No rail found");
+            }
+            String name = s[2].equals("-") ? "" : s[2];
+            core.setBlockSection(name);
+            commandSender.addChatMessage(new ChatComponentText("Set block section of rail to \"" + name + "\""));
+        } else if (sub.equalsIgnoreCase("signal") && s.length == 6) {
+            int x = parseInt(commandSender, s[2]);
+            int y = parseInt(commandSender, s[3]);
+            int z = parseInt(commandSender, s[4]);
+            TileEntity tile = world.getTileEntity(x, y, z);
+            if (!(tile instanceof TileEntitySignal)) {
+                throw new CommandException("No signal found");
+            }
+            String name = s[5].equals("-") ? "" : s[5];
+            ((TileEntitySignal) tile).setBlockSection(name);
+            commandSender.addChatMessage(new ChatComponentText("Set block section of signal to \"" + name + "\""));
+        } else {
+            RailTopology.get(world).getSections().forEach(section -> commandSender.addChatMessage(new ChatComponentText(
+                    String.format("%s : %d rails, %s", section.name, section.getRails().size(), section.isOccupied() ? "occupied" : "clear"))));
+        }
+    }
+
     @Override
     public void processCommand(ICommandSender commandSender, String[] s) {
         EntityPlayerMP player = commandSender instanceof EntityPlayerMP ? (EntityPlayerMP) commandSender : null;
@@ -53,6 +93,21 @@ public class CommandRTM extends CommandBase {
         if (s.length >= 1) {
             if (s[0].equalsIgnoreCase("use1122marker") && player != null) {
                 RTMCore.NETWORK_WRAPPER.sendTo(new PacketNotice(PacketNotice.Side_CLIENT, "use1122marker," + (s.length == 2 ? Boolean.parseBoolean(s[1]) : "flip")), player);
+            } else if (s[0].equalsIgnoreCase("scriptprofile")) {
+                String sub = s.length >= 2 ? s[1] : "show";
+                if (sub.equalsIgnoreCase("start")) {
+                    ScriptProfiler.setEnabled(true);
+                    commandSender.addChatMessage(new ChatComponentText("Script profiler started."));
+                } else if (sub.equalsIgnoreCase("stop")) {
+                    ScriptProfiler.setEnabled(false);
+                    commandSender.addChatMessage(new ChatComponentText("Script profiler stopped."));
+                } else if (sub.equalsIgnoreCase("reset")) {
+                    ScriptProfiler.reset();
+                    commandSender.addChatMessage(new ChatComponentText("Script profiler reset."));
+                } else {
+                    int max = s.length >= 3 ? parseIntWithMin(commandSender, s[2], 1) : 10;
+                    ScriptProfiler.getReport(max).forEach(line -> commandSender.addChatMessage(new ChatComponentText(line)));
+                }
             } else if (s[0].equalsIgnoreCase("delRidingFormation") && player != null) {
                 if (player.ridingEntity instanceof EntityTrainBase) {
                     Formation formation = ((EntityTrainBase) player.ridingEntity).getFormation();
@@ -87,6 +142,8 @@ public class CommandRTM extends CommandBase {
                 commandSender.addChatMessage(new ChatComponentText("Deleted " + countTrain + "trains."));
                 commandSender.addChatMessage(new ChatComponentText("Deleted " + countEntity + "entities."));
                 commandSender.addChatMessage(new ChatComponentText("Deleted " + countFormation + "formations."));
+            } else if (s[0].equalsIgnoreCase("blocksection")) {
+                this.processBlockSection(commandSender, player, s);
             } else if (s.length == 2 && player != null) {
                 if (s[0].equalsIgnoreCase("flySpeed")) {
                     float speed = MathHelper.clamp_float(Float.parseFloat(s[1]), 0, 10);
@@ -206,7 +263,7 @@ public class CommandRTM extends CommandBase {
 
     private static final List<String> stateArray = Arrays.asList("door", "pan", "speed");
 
-    private static final List<String> commandList = Arrays.asList("use1122marker", "door", "pan", "speed", "delAllTrain", "delRidingFormation", "flySpeed", "summon");
+    private static final List<String> commandList = Arrays.asList("use1122marker", "door", "pan", "speed", "delAllTrain", "delRidingFormation", "flySpeed", "summon", "scriptprofile");
 
     @Override
     public List<String> addTabCompletionOptions(ICommandSender sender, String[] args) {
@@ -104,7 +104,8 @@ public class Connection {
                 if (this.type == ConnectionType.TO_ENTITY) {
                     this.connectedObject = TileEntityElectricalWiring.getWireEntity(world, x, y, z);
                     return (TileEntityElectricalWiring) this.connectedObject;
-                } else {
+                } else if (world.blockExists(this.x, this.y, this.z)) {
+                    //未読み込みのチャンクは読み込まない
                     TileEntity te = world.getTileEntity(this.x, this.y, this.z);
                     if (te instanceof TileEntityElectricalWiring) {
                         this.connectedObject = te;
@@ -117,8 +118,15 @@ public class Connection {
         return null;
     }
 
+    /**
+     * 接続先のTileEntityが読み込み直された場合に呼ぶ
+     */
+    void clearCache() {
+        this.connectedObject = null;
+    }
+
     public IProvideElectricity getIProvideElectricity(World world) {
-        if (this.type == ConnectionType.DIRECT) {
+        if (this.type == ConnectionType.DIRECT && world.blockExists(this.x, this.y, this.z)) {
             //接続先Block破壊->再設置で元のTEを参照してしまうの防止
 			/*if(this.connectedObject != null && this.connectedObject instanceof IProvideElectricity)
 			{
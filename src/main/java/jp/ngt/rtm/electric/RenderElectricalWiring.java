@@ -93,7 +93,7 @@ public class RenderElectricalWiring extends TileEntitySpecialRenderer {
 
     private void renderWire(TileEntityElectricalWiring tileEntity, Connection connection, double par2, double par4, double par6, float par8, int pass) {
         ModelSetWireClient modelSet = (ModelSetWireClient) connection.getModelSet();
-        if (modelSet.isDummy()) {
+        if (modelSet.isDummy() || !modelSet.modelObj.ensureLoaded()) {
             return;
         }
 
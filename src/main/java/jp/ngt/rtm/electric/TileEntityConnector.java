@@ -31,6 +31,12 @@ public class TileEntityConnector extends TileEntityConnectorBase {
         }
     }
 
+    @Override
+    protected boolean needsTick() {
+        //出力は接続先の信号を毎tick確認する
+        return super.needsTick() || (!this.worldObj.isRemote && this.getBlockMetadata() >= METADATA);
+    }
+
     @Override
     public void updateEntity() {
         super.updateEntity();
@@ -19,6 +19,7 @@ import net.minecraft.util.AxisAlignedBB;
 import net.minecraft.world.World;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
@@ -29,7 +30,36 @@ public abstract class TileEntityElectricalWiring extends TileEntityPlaceable {
 
     public boolean isActivated;
     private int signal;
-    private int prevSignal = -1;
+    /**
+     * 接続先の破壊, 接続の変更があった時に次のtickで接続を確認する
+     */
+    private boolean connectionChanged;
+
+    /**
+     * tickは{@link WiringGraph}が必要な時のみ呼ぶ
+     */
+    @Override
+    public boolean canUpdate() {
+        return false;
+    }
+
+    @Override
+    public void validate() {
+        super.validate();
+        WiringGraph.get(this.worldObj).add(this);
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        WiringGraph.get(this.worldObj).remove(this, true);
+    }
+
+    @Override
+    public void onChunkUnload() {
+        super.onChunkUnload();
+        WiringGraph.get(this.worldObj).remove(this, false);
+    }
 
     @Override
     public void readFromNBT(NBTTagCompound nbt) {
@@ -107,6 +137,7 @@ public abstract class TileEntityElectricalWiring extends TileEntityPlaceable {
         }
 
         if (!this.worldObj.isRemote && flag) {
+            WiringGraph.get(this.worldObj).markActive(this);
             this.markDirty();
             if (this instanceof TileEntityDummyEW) {
                 RTMCore.NETWORK_WRAPPER.sendToAll(new PacketWire(this));
@@ -123,6 +154,7 @@ public abstract class TileEntityElectricalWiring extends TileEntityPlaceable {
     private boolean setConnectionFrom(int x, int y, int z, ConnectionType type, String name) {
         this.setConnection(x, y, z, type, name);
         if (!this.worldObj.isRemote) {
+            WiringGraph.get(this.worldObj).markActive(this);
             this.markDirty();
             if (this instanceof TileEntityDummyEW) {
                 RTMCore.NETWORK_WRAPPER.sendToAll(new PacketWire(this));
@@ -150,18 +182,27 @@ public abstract class TileEntityElectricalWiring extends TileEntityPlaceable {
     }
 
     /**
-     * 信号受信
+     * 信号受信, 変化した場合は{@link WiringGraph}が接続先全てに伝える
      */
     public void onGetElectricity(int x, int y, int z, int level, int counter) {
-        if (level == 0) {
-            if (this.prevSignal < 0) {
-                this.prevSignal = 0;
-            }
-        } else if (level > 0) {
-            if (level != this.prevSignal) {
-                this.prevSignal = level;
-            }
+        if (level >= 0) {
+            WiringGraph.get(this.worldObj).propagate(this, level);
+        }
+    }
+
+    /**
+     * @return 変化した場合true
+     */
+    boolean updateSignal(int level) {
+        if (level == this.signal) {
+            return false;
         }
+        this.signal = level;
+        return true;
+    }
+
+    int getSignal() {
+        return this.signal;
     }
 
     /**
@@ -169,7 +210,7 @@ public abstract class TileEntityElectricalWiring extends TileEntityPlaceable {
      */
     protected void sendElectricity(Connection connection, int level, int counter) {
         TileEntityElectricalWiring tile = connection.getElectricalWiring(this.worldObj);
-        if (tile != null)//counter < 128
+        if (tile != null && WiringGraph.get(this.worldObj).isLive(tile))//counter < 128
         {
             tile.onGetElectricity(this.xCoord, this.yCoord, this.zCoord, level, ++counter);
         }
@@ -182,6 +223,27 @@ public abstract class TileEntityElectricalWiring extends TileEntityPlaceable {
         this.connections.stream().filter(connection -> connection.type != ConnectionType.NONE).forEach(connection -> this.sendElectricity(connection, level, 0));
     }
 
+    void markConnectionChanged() {
+        this.connectionChanged = true;
+    }
+
+    /**
+     * プレーヤー, Entityとの接続は切れても通知されないので毎tick確認する
+     */
+    private boolean shouldPollConnections() {
+        return !this.isBlockTile() || this.connections.stream().anyMatch(connection -> connection.type == ConnectionType.TO_PLAYER || connection.type == ConnectionType.TO_ENTITY);
+    }
+
+    /**
+     * falseを返すと{@link WiringGraph}のtick対象から外れる
+     */
+    protected boolean needsTick() {
+        if (this.worldObj.isRemote) {
+            return this.isActivated;
+        }
+        return this.connectionChanged || this.shouldPollConnections();
+    }
+
     @Override
     public void updateEntity() {
         super.updateEntity();
@@ -196,20 +258,20 @@ public abstract class TileEntityElectricalWiring extends TileEntityPlaceable {
                     this.worldObj.spawnParticle("reddust", d1, d2, d3, 0.0D, 0.0D, 0.0D);
                 });
             }
-        } else {
-            //接続が有効かを確認
+        } else if (this.connectionChanged || this.shouldPollConnections()) {
+            this.connectionChanged = false;
+            //接続が有効かを確認, 未ロードのチャンクにあるものは切らない
             List<Connection> list = new ArrayList<>(this.connections);
-            list.stream().filter(connection -> !connection.isAvailable(this.worldObj) || connection.type == ConnectionType.NONE).forEach(connection -> this.setConnectionTo(connection.x, connection.y, connection.z, ConnectionType.NONE, ""));
-
-            //信号の処理
-            if (this.prevSignal >= 0 && this.prevSignal != this.signal) {
-                this.signal = this.prevSignal;
-                this.sendElectricityToAll(this.signal);
-            }
-            this.prevSignal = -1;
+            list.stream()
+                    .filter(connection -> connection.type == ConnectionType.NONE || (this.isLoaded(connection) && !connection.isAvailable(this.worldObj)))
+                    .forEach(connection -> this.setConnectionTo(connection.x, connection.y, connection.z, ConnectionType.NONE, ""));
         }
     }
 
+    private boolean isLoaded(Connection connection) {
+        return connection.type != ConnectionType.WIRE || this.worldObj.blockExists(connection.x, connection.y, connection.z);
+    }
+
     /**
      * @return プレーヤーがアイテム電線を持っていない場合は""
      */
@@ -310,12 +372,10 @@ public abstract class TileEntityElectricalWiring extends TileEntityPlaceable {
     private TileEntityElectricalWiring searchActiveTEEW() {
         int dis0 = 128;
         int dis1 = dis0 * dis0;
-        List<TileEntity> tileEntityList = ((List<TileEntity>) this.worldObj.loadedTileEntityList);
-        if (tileEntityList != null && !tileEntityList.isEmpty()) {
+        Collection<TileEntityElectricalWiring> tileEntityList = WiringGraph.get(this.worldObj).getNodes();
+        if (!tileEntityList.isEmpty()) {
             TileEntityElectricalWiring teew = tileEntityList.stream()
                     .filter(tile -> tile != this)
-                    .filter(TileEntityElectricalWiring.class::isInstance)
-                    .map(TileEntityElectricalWiring.class::cast)
                     .filter(tile -> tile.isActivated)
                     .filter(tile -> tile.getDistanceFrom(this.xCoord, this.yCoord, this.zCoord) < dis1)
                     .min(Comparator.comparingDouble(o -> o.getDistanceFrom(this.xCoord, this.yCoord, this.zCoord)))
@@ -388,10 +448,16 @@ public abstract class TileEntityElectricalWiring extends TileEntityPlaceable {
     public void onDataPacket(NetworkManager net, S35PacketUpdateTileEntity pkt) {
         this.readFromNBT(pkt.func_148857_g());
         this.isActivated = pkt.func_148857_g().getBoolean("isActivated");
+        WiringGraph.get(this.worldObj).markActive(this);
     }
 
     @Override
     public void setPos(int x, int y, int z, int prevX, int prevY, int prevZ) {
+        boolean inWorld = this.hasWorldObj() && !this.isInvalid();
+        if (inWorld) {
+            WiringGraph.get(this.worldObj).remove(this, false);
+        }
+
         int difX = x - prevX;
         int difY = y - prevY;
         int difZ = z - prevZ;
@@ -401,5 +467,9 @@ public abstract class TileEntityElectricalWiring extends TileEntityPlaceable {
             connection.z += difZ;
         });
         super.setPos(x, y, z, prevX, prevY, prevZ);
+
+        if (inWorld) {
+            WiringGraph.get(this.worldObj).add(this);
+        }
     }
 }
\ No newline at end of file
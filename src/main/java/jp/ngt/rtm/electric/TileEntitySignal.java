@@ -11,6 +11,7 @@ import jp.ngt.rtm.modelpack.ModelPackManager;
 import jp.ngt.rtm.modelpack.ScriptExecuter;
 import jp.ngt.rtm.modelpack.modelset.ModelSetSignal;
 import jp.ngt.rtm.modelpack.state.ResourceState;
+import jp.ngt.rtm.rail.RailTopology;
 import net.minecraft.block.Block;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.nbt.NBTTagCompound;
@@ -28,6 +29,10 @@ public class TileEntitySignal extends TileEntityPlaceable implements IProvideEle
     private ModelSetSignal myModelSet;
     private int signalLevel = 0;
     public int tick;
+    /**
+     * 現示を自動で決める閉塞区間の名前, 空なら配線で決める
+     */
+    private String blockSection = "";
 
     @Override
     public void readFromNBT(NBTTagCompound nbt) {
@@ -37,6 +42,7 @@ public class TileEntitySignal extends TileEntityPlaceable implements IProvideEle
         super.readFromNBT(nbt);
         this.blockDirection = nbt.getInteger("blockDir");
         this.signalLevel = nbt.getInteger("Signal");
+        this.blockSection = nbt.getString("BlockSection");
         String s = nbt.getString("modelName");
         this.setModelName(s);
         this.renderBlock = Block.getBlockFromName(nbt.getString("blockName"));
@@ -56,6 +62,7 @@ public class TileEntitySignal extends TileEntityPlaceable implements IProvideEle
         super.writeToNBT(nbt);
         nbt.setInteger("blockDir", this.blockDirection);
         nbt.setInteger("Signal", this.signalLevel);
+        nbt.setString("BlockSection", this.blockSection);
         nbt.setString("modelName", this.modelName);
         String s = Block.blockRegistry.getNameForObject(this.renderBlock);
         nbt.setString("blockName", s == null ? "" : s);
@@ -91,6 +98,43 @@ public class TileEntitySignal extends TileEntityPlaceable implements IProvideEle
         }
     }
 
+    @Override
+    public void validate() {
+        super.validate();
+        if (!this.worldObj.isRemote) {
+            RailTopology.get(this.worldObj).addSignal(this);
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        if (!this.worldObj.isRemote) {
+            RailTopology.get(this.worldObj).removeSignal(this);
+        }
+    }
+
+    @Override
+    public void onChunkUnload() {
+        super.onChunkUnload();
+        if (!this.worldObj.isRemote) {
+            RailTopology.get(this.worldObj).removeSignal(this);
+        }
+    }
+
+    public String getBlockSection() {
+        return this.blockSection;
+    }
+
+    /**
+     * Server Only
+     */
+    public void setBlockSection(String name) {
+        this.blockSection = name;
+        RailTopology.get(this.worldObj).addSignal(this);
+        this.markDirty();
+    }
+
     @Override
     public int getElectricity() {
         return 0;
@@ -98,6 +142,16 @@ public class TileEntitySignal extends TileEntityPlaceable implements IProvideEle
 
     @Override
     public void setElectricity(int x, int y, int z, int level) {
+        //閉塞区間に割り当てられている場合は配線の信号を無視
+        if (this.blockSection.isEmpty()) {
+            this.setSignalLevel(level);
+        }
+    }
+
+    /**
+     * Server Only
+     */
+    public void setSignalLevel(int level) {
         if (!this.worldObj.isRemote) {
             ModelSetSignal modelSet = this.getModelSet();
             if (level > modelSet.maxSignalLevel) {
@@ -1,6 +1,5 @@
 package jp.ngt.rtm.electric;
 
-import jp.ngt.ngtlib.math.ILine;
 import jp.ngt.ngtlib.math.NGTMath;
 import jp.ngt.ngtlib.math.StraightLine;
 import jp.ngt.ngtlib.math.Vec3;
@@ -10,21 +9,23 @@ import jp.ngt.rtm.modelpack.cfg.WireConfig;
 import net.minecraft.util.MathHelper;
 import net.minecraft.world.ChunkCoordIntPair;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.function.Predicate;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 架線の高さの索引<br>
+ * ワイヤのXZ範囲が掛かるチャンクごとに配列で保持し, 変更時は配列ごと置き換える.
+ * クライアントで更新され, 統合サーバーのスレッドからも参照される
+ */
 public final class WireManager {
     public static final WireManager INSTANCE = new WireManager();
 
-    private static final int CHUNK_DIV = 64;
-    private static final int SPLIT = 512;
     private static final double Y_TANGE = 2.0D;
     private static final double XZ_TANGE = 1.0D;
+    private static final WireEntry[] EMPTY = new WireEntry[0];
 
-    private final Map<ChunkCoordIntPair, List<WireEntry>> loadedWires = new HashMap<>();
+    private final Map<Long, WireEntry[]> loadedWires = new ConcurrentHashMap<>();
 
     private WireManager() {
     }
@@ -60,68 +61,141 @@ public final class WireManager {
 
                 Vec3 startVec = vec1.getY() <= vec2.getY() ? vec1 : vec2;
                 Vec3 endVec = vec1.getY() > vec2.getY() ? vec1 : vec2;
-                int x1 = (int) (Math.min(vec1.getX(), vec2.getX())) >> 4;
-                int x2 = (int) (Math.max(vec1.getX(), vec2.getX())) >> 4;
-                int z1 = (int) (Math.min(vec1.getZ(), vec2.getZ())) >> 4;
-                int z2 = (int) (Math.max(vec1.getZ(), vec2.getZ())) >> 4;
                 double minY = startVec.getY() + cfg.yOffset;
                 double maxY = endVec.getY() + cfg.yOffset;
-                WireEntry entry = new WireEntry(new StraightLine(startVec.getZ(), startVec.getX(), endVec.getZ(), endVec.getX()), minY, maxY);
+                WireEntry entry = new WireEntry(new StraightLine(startVec.getZ(), startVec.getX(), endVec.getZ(), endVec.getX()), minY, maxY, cfg);
 
+                //inRange()で許容する分も含めて登録
+                int x1 = MathHelper.floor_double(entry.minX - XZ_TANGE) >> 4;
+                int x2 = MathHelper.floor_double(entry.maxX + XZ_TANGE) >> 4;
+                int z1 = MathHelper.floor_double(entry.minZ - XZ_TANGE) >> 4;
+                int z2 = MathHelper.floor_double(entry.maxZ + XZ_TANGE) >> 4;
                 for (int i = x1; i <= x2; ++i) {
                     for (int j = z1; j <= z2; ++j) {
-                        List<WireEntry> list = this.loadedWires.computeIfAbsent(new ChunkCoordIntPair(i, j), k -> new ArrayList<>());
-
-                        if (add) {
-                            list.add(entry);
-                        } else {
-                            list.removeIf(Predicate.isEqual(entry));
-                        }
+                        this.loadedWires.compute(ChunkCoordIntPair.chunkXZ2Int(i, j), (key, entries) -> add ? addEntry(entries, entry) : removeEntry(entries, entry));
                     }
                 }
             }
         }
     }
 
+    private static WireEntry[] addEntry(WireEntry[] entries, WireEntry entry) {
+        if (entries == null) {
+            entries = EMPTY;
+        }
+        WireEntry[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+        newEntries[entries.length] = entry;
+        return newEntries;
+    }
+
+    /**
+     * @return 空になった場合null (チャンクごと削除)
+     */
+    private static WireEntry[] removeEntry(WireEntry[] entries, WireEntry entry) {
+        if (entries == null) {
+            return null;
+        }
+        WireEntry[] newEntries = Arrays.stream(entries).filter(e -> !e.equals(entry)).toArray(WireEntry[]::new);
+        return newEntries.length == 0 ? null : newEntries;
+    }
+
     /**
      * 指定座標に最も近いワイヤの高さを取得
      */
     public double getWireY(float yaw, double x, double y, double z) {
         int cX = MathHelper.floor_double(x) >> 4;
         int cZ = MathHelper.floor_double(z) >> 4;
-        List<WireEntry> list = this.loadedWires.get(new ChunkCoordIntPair(cX, cZ));
-        if (list != null) {
-            return list.stream().filter(entry -> entry.inRange(yaw, x, y, z)).mapToDouble(entry -> {
-                int index = entry.lineXZ.getNearlestPoint(SPLIT, x, z);
-                return entry.minY + (entry.maxY - entry.minY) * ((double) index / (double) SPLIT) + EntityTrainBase.TRAIN_HEIGHT;
-            }).min().orElse(y);
+        WireEntry[] entries = this.loadedWires.get(ChunkCoordIntPair.chunkXZ2Int(cX, cZ));
+        if (entries == null) {
+            return y;
         }
-        return y;
+
+        double marginX = MathHelper.abs(NGTMath.cos(yaw));
+        double marginZ = MathHelper.abs(NGTMath.sin(yaw));
+        double wireY = Double.MAX_VALUE;
+        for (WireEntry entry : entries) {
+            if (entry.inRange(marginX, marginZ, x, y, z)) {
+                wireY = Math.min(wireY, entry.getY(x, z) + EntityTrainBase.TRAIN_HEIGHT);
+            }
+        }
+        return wireY == Double.MAX_VALUE ? y : wireY;
     }
 
     public static class WireEntry {
-        public final ILine lineXZ;
+        public final StraightLine lineXZ;
         public final double minX, maxX, minY, maxY, minZ, maxZ;
-
-        public WireEntry(ILine par1, double par2, double par3) {
+        /**
+         * たわみを含めた最も低い位置
+         */
+        public final double bottomY;
+
+        private final double dirX, dirZ, invLengthSq, length;
+        /**
+         * たわみの放物線 y = alpha * (s^2 - 2 * a * s), sは始点からの水平距離
+         */
+        private final double alpha, a;
+
+        /**
+         * @param par1 {z, x}で保持された直線, 始点が低い側
+         */
+        public WireEntry(StraightLine par1, double par2, double par3, WireConfig cfg) {
             this.lineXZ = par1;
             this.minY = par2;
             this.maxY = par3;
 
-            double[] d1 = par1.getPoint(SPLIT, 0);
-            double[] d2 = par1.getPoint(SPLIT, SPLIT);
-            this.minX = Math.min(d1[1], d2[1]);
-            this.maxX = Math.max(d1[1], d2[1]);
-            this.minZ = Math.min(d1[0], d2[0]);
-            this.maxZ = Math.max(d1[0], d2[0]);
+            this.minX = Math.min(par1.startY, par1.endY);
+            this.maxX = Math.max(par1.startY, par1.endY);
+            this.minZ = Math.min(par1.startX, par1.endX);
+            this.maxZ = Math.max(par1.startX, par1.endX);
+
+            this.dirX = par1.endY - par1.startY;
+            this.dirZ = par1.endX - par1.startX;
+            this.length = par1.getLength();
+            this.invLengthSq = this.length > 0.0D ? 1.0D / (this.length * this.length) : 0.0D;
+
+            //WirePartsRenderer.renderWireDeflection()と同じ曲線
+            double ly = par3 - par2;
+            double alpha = 0.0D;
+            double a = 0.0D;
+            if (cfg.deflectionCoefficient > 0.0F && this.length > 0.0D) {
+                float pitch = (float) NGTMath.toDegrees(Math.atan2(ly, this.length));
+                float lc = 1.0F + cfg.lengthCoefficient;
+                alpha = cfg.deflectionCoefficient * NGTMath.cos(pitch) / Math.pow(lc, this.length);
+                if (alpha > 0.0D) {
+                    a = (this.length - (ly / (alpha * this.length))) / 2.0D;
+                } else {
+                    alpha = 0.0D;
+                }
+            }
+            this.alpha = alpha;
+            this.a = a;
+
+            //頂点が範囲内ならそこが最下点
+            this.bottomY = (alpha > 0.0D && a > 0.0D && a < this.length) ? par2 - alpha * a * a : par2;
         }
 
         public boolean inRange(float yaw, double x, double y, double z) {
-            float cos = MathHelper.abs(NGTMath.cos(yaw));
-            float sin = MathHelper.abs(NGTMath.sin(yaw));
-            return x >= this.minX - cos && x <= this.maxX + cos
-                    && y >= this.minY - Y_TANGE && y <= this.maxY + Y_TANGE
-                    && z >= this.minZ - sin && z <= this.maxZ + sin;
+            return this.inRange(MathHelper.abs(NGTMath.cos(yaw)), MathHelper.abs(NGTMath.sin(yaw)), x, y, z);
+        }
+
+        public boolean inRange(double marginX, double marginZ, double x, double y, double z) {
+            return x >= this.minX - marginX && x <= this.maxX + marginX
+                    && y >= this.bottomY - Y_TANGE && y <= this.maxY + Y_TANGE
+                    && z >= this.minZ - marginZ && z <= this.maxZ + marginZ;
+        }
+
+        /**
+         * 指定座標に最も近いワイヤ上の点の高さ
+         */
+        public double getY(double x, double z) {
+            //直線への射影
+            double t = ((x - this.lineXZ.startY) * this.dirX + (z - this.lineXZ.startX) * this.dirZ) * this.invLengthSq;
+            t = t < 0.0D ? 0.0D : (Math.min(t, 1.0D));
+            if (this.alpha == 0.0D) {
+                return this.minY + (this.maxY - this.minY) * t;
+            }
+            double s = t * this.length;
+            return this.minY + this.alpha * ((s * s) - (2.0D * this.a * s));
         }
 
         @Override
@@ -138,4 +212,4 @@ public final class WireManager {
             return this.lineXZ.hashCode();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+package jp.ngt.rtm.electric;
+
+import jp.ngt.ngtlib.io.NGTLog;
+import jp.ngt.rtm.electric.Connection.ConnectionType;
+import net.minecraft.world.ChunkPosition;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * ワールドごとの電線の接続グラフ<br>
+ * ノードは{@link TileEntityElectricalWiring}, 辺は{@link Connection}.
+ * validate/invalidate/onChunkUnloadで更新され, 信号は変化した時に1回で伝える.
+ * 毎tick処理が必要なもの(出力コネクタ, プレーヤーやEntityとの接続)だけ更新する
+ */
+public final class WiringGraph {
+    private static final Map<World, WiringGraph> GRAPHS = Collections.synchronizedMap(new WeakHashMap<>());
+    /**
+     * 1回の伝達で処理するノード数の上限 (ループ対策)
+     */
+    private static final int MAX_STEPS = 1 << 16;
+
+    private final World world;
+    /**
+     * ブロックのノードのみ, Entityのものは含まない
+     */
+    private final Map<ChunkPosition, TileEntityElectricalWiring> nodes = new HashMap<>();
+    private final Set<TileEntityElectricalWiring> ticking = new LinkedHashSet<>();
+    private final Set<TileEntityElectricalWiring> queue = new LinkedHashSet<>();
+    private boolean propagating;
+
+    private WiringGraph(World world) {
+        this.world = world;
+    }
+
+    public static WiringGraph get(World world) {
+        return GRAPHS.computeIfAbsent(world, WiringGraph::new);
+    }
+
+    public static void remove(World world) {
+        GRAPHS.remove(world);
+    }
+
+    /**
+     * ワールドのtick終了時に呼ぶ
+     */
+    public static void tick(World world) {
+        WiringGraph graph = GRAPHS.get(world);
+        if (graph != null) {
+            graph.tickNodes();
+        }
+    }
+
+    public Collection<TileEntityElectricalWiring> getNodes() {
+        return this.nodes.values();
+    }
+
+    public void add(TileEntityElectricalWiring tile) {
+        if (!tile.isBlockTile()) {
+            return;
+        }
+
+        this.nodes.put(getKey(tile.xCoord, tile.yCoord, tile.zCoord), tile);
+        if (!this.world.isRemote) {
+            //アンロード前のTileEntityを参照しているものがあれば解除
+            this.clearReverseCaches(tile);
+            tile.markConnectionChanged();
+        }
+        this.markActive(tile);
+    }
+
+    /**
+     * @param broken ブロックが破壊された場合true, 接続先に接続を確認させる
+     */
+    public void remove(TileEntityElectricalWiring tile, boolean broken) {
+        if (!tile.isBlockTile()) {
+            return;
+        }
+
+        this.nodes.remove(getKey(tile.xCoord, tile.yCoord, tile.zCoord), tile);
+        this.ticking.remove(tile);
+        if (!this.world.isRemote) {
+            //アンロードされたTileEntityを接続先が参照し続けないように解除
+            this.clearReverseCaches(tile);
+            if (broken) {
+                for (Connection connection : tile.getConnectionList()) {
+                    TileEntityElectricalWiring neighbor = this.getNode(connection);
+                    if (neighbor != null) {
+                        neighbor.markConnectionChanged();
+                        this.markActive(neighbor);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 接続先が持つtileへの接続のキャッシュを解除
+     */
+    private void clearReverseCaches(TileEntityElectricalWiring tile) {
+        for (Connection connection : tile.getConnectionList()) {
+            TileEntityElectricalWiring neighbor = this.getNode(connection);
+            if (neighbor != null) {
+                Connection reverse = neighbor.getConnection(tile.xCoord, tile.yCoord, tile.zCoord);
+                if (reverse != null) {
+                    reverse.clearCache();
+                }
+            }
+        }
+    }
+
+    /**
+     * 無効化, アンロードされたTileEntityへは信号を伝えない
+     *
+     * @return ブロックの場合は現在グラフに登録されているものであればtrue
+     */
+    boolean isLive(TileEntityElectricalWiring tile) {
+        if (tile.isInvalid()) {
+            return false;
+        }
+        return !tile.isBlockTile() || this.nodes.get(getKey(tile.xCoord, tile.yCoord, tile.zCoord)) == tile;
+    }
+
+    private TileEntityElectricalWiring getNode(Connection connection) {
+        if (connection.type != ConnectionType.WIRE) {
+            return null;
+        }
+        return this.nodes.get(getKey(connection.x, connection.y, connection.z));
+    }
+
+    /**
+     * 次のtickから{@link TileEntityElectricalWiring#updateEntity()}を呼ぶ,
+     * 不要になれば自動で外れる
+     */
+    public void markActive(TileEntityElectricalWiring tile) {
+        if (tile.isBlockTile() && !tile.isInvalid()) {
+            this.ticking.add(tile);
+        }
+    }
+
+    private void tickNodes() {
+        if (this.ticking.isEmpty()) {
+            return;
+        }
+
+        List<TileEntityElectricalWiring> list = new ArrayList<>(this.ticking);
+        for (TileEntityElectricalWiring tile : list) {
+            if (tile.isInvalid()) {
+                this.ticking.remove(tile);
+                continue;
+            }
+
+            tile.updateEntity();
+            if (!tile.needsTick()) {
+                this.ticking.remove(tile);
+            }
+        }
+    }
+
+    /**
+     * 信号の変化を接続先全てに伝える, 伝達中に呼ばれた場合はキューに追加するのみ
+     */
+    public void propagate(TileEntityElectricalWiring tile, int level) {
+        if (!this.isLive(tile) || !tile.updateSignal(level)) {
+            return;
+        }
+
+        this.queue.add(tile);
+        if (this.propagating) {
+            return;
+        }
+
+        this.propagating = true;
+        try {
+            int steps = 0;
+            while (!this.queue.isEmpty()) {
+                if (++steps > MAX_STEPS) {
+                    NGTLog.debug("[RTM] Signal propagation aborted at (%d, %d, %d)", tile.xCoord, tile.yCoord, tile.zCoord);
+                    this.queue.clear();
+                    break;
+                }
+                Iterator<TileEntityElectricalWiring> iterator = this.queue.iterator();
+                TileEntityElectricalWiring node = iterator.next();
+                iterator.remove();
+                if (this.isLive(node)) {
+                    node.sendElectricityToAll(node.getSignal());
+                }
+            }
+        } finally {
+            this.propagating = false;
+        }
+    }
+
+    private static ChunkPosition getKey(int x, int y, int z) {
+        return new ChunkPosition(x, y, z);
+    }
+}
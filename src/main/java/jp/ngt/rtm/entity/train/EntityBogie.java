@@ -17,6 +17,7 @@ import jp.ngt.rtm.entity.train.util.BogieController;
 import jp.ngt.rtm.entity.vehicle.VehicleTrackerEntry;
 import jp.ngt.rtm.modelpack.cfg.TrainConfig;
 import jp.ngt.rtm.modelpack.modelset.ModelSetVehicleBase;
+import jp.ngt.rtm.rail.RailTopology;
 import jp.ngt.rtm.rail.TileEntityLargeRailBase;
 import jp.ngt.rtm.rail.TileEntityLargeRailCore;
 import jp.ngt.rtm.rail.TileEntityLargeRailSwitchCore;
@@ -69,6 +70,10 @@ public class EntityBogie extends Entity implements Lockable {
      * {yaw, pitch, yaw2}
      */
     private final float[] rotationBuf = new float[4];
+    /**
+     * {z, x}
+     */
+    private final double[] railPosBuf = new double[2];
     private int split = -1;
     private int prevPosIndex;
     //private int point = -1;
@@ -212,7 +217,7 @@ public class EntityBogie extends Entity implements Lockable {
             double dif = Double.MAX_VALUE;
             double tlSq = trainLength * trainLength;
             for (int i = indexMin; i < indexMax; ++i) {
-                double[] pxz = rm.getRailPos(this.split, i);
+                double[] pxz = rm.getRailPos(this.split, i, this.railPosBuf);
                 //先頭台車はまだ位置更新されてないので、bogie.getDistanceSq()は使わない
                 double lenTemp = this.getDistanceSq(pxz[1], py, pxz[0], fp[0], fp[1], fp[2]);
                 double difTemp = Math.abs(lenTemp - tlSq);
@@ -224,7 +229,7 @@ public class EntityBogie extends Entity implements Lockable {
         }
         this.prevPosIndex = pIndex;
 
-        double[] posZX = rm.getRailPos(this.split, pIndex);
+        double[] posZX = rm.getRailPos(this.split, pIndex, this.railPosBuf);
         py = rm.getRailHeight(this.split, pIndex) + this.yOffset;
         float railYaw = MathHelper.wrapAngleTo180_float(rm.getRailRotation(this.split, pIndex));
         float movYaw = EntityBogie.fixBogieYaw(this.movingYaw, railYaw);
@@ -306,6 +311,9 @@ public class EntityBogie extends Entity implements Lockable {
      * 別レールに移動した際呼び出し
      */
     protected void onChangeRail(TileEntityLargeRailCore newRail) {
+        if (!this.worldObj.isRemote) {
+            RailTopology.get(this.worldObj).onBogieChangeRail(this, newRail);
+        }
         this.reverbSound = newRail.isReberbSound();
         EntityTrainBase train = this.getTrain();
         if (train != null) {
@@ -347,7 +355,9 @@ public class EntityBogie extends Entity implements Lockable {
     private TileEntityLargeRailCore getRail(double px, double py, double pz) {
         int x = MathHelper.floor_double(px);
         int z = MathHelper.floor_double(pz);
-        this.worldObj.getChunkProvider().loadChunk(x >> 4, z >> 4);
+        if (!this.worldObj.getChunkProvider().chunkExists(x >> 4, z >> 4)) {
+            this.worldObj.getChunkProvider().loadChunk(x >> 4, z >> 4);
+        }
         TileEntityLargeRailBase railObj = TileEntityLargeRailBase.getRailFromCoordinates(this.worldObj, px, py, pz);
         if (railObj == null) {
             this.errorLog(px, pz, "Rail not found > x:%s z:%s");
@@ -491,6 +501,9 @@ public class EntityBogie extends Entity implements Lockable {
     @Override
     public void setDead() {
         super.setDead();
+        if (!this.worldObj.isRemote) {
+            RailTopology.get(this.worldObj).removeBogie(this);
+        }
     }
 
     private void checkUnloadTrain() {
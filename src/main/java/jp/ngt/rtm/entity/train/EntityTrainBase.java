@@ -69,6 +69,9 @@ public abstract class EntityTrainBase extends EntityVehicleBase<TrainConfig> imp
 
     private float wave;
 
+    @SideOnly(Side.CLIENT)
+    private volatile TrainMotionPredictor motionPredictor;
+
     public EntityTrainBase(World world) {
         super(world);
         this.setSize(TRAIN_WIDTH, TRAIN_HEIGHT);
@@ -432,6 +435,31 @@ public abstract class EntityTrainBase extends EntityVehicleBase<TrainConfig> imp
         this.func_145775_I();//call Block.onEntityCollidedWithBlock()
     }
 
+    @SideOnly(Side.CLIENT)
+    @Override
+    public void setPositionAndRotation2(double x, double y, double z, float yaw, float pitch, int par6) {
+        super.setPositionAndRotation2(x, y, z, yaw, pitch, par6);
+        if (RTMConfig.trainMotionPrediction) {
+            TrainMotionPredictor predictor = this.motionPredictor;
+            if (predictor == null) {
+                predictor = new TrainMotionPredictor(this);
+                this.motionPredictor = predictor;
+            }
+            predictor.onReceive(x, y, z, yaw);
+        }
+    }
+
+    @SideOnly(Side.CLIENT)
+    @Override
+    protected void updatePosAndRotationClient() {
+        super.updatePosAndRotationClient();
+        //ピッチとロールは補間, 位置とヨーはレールに沿って推定
+        TrainMotionPredictor predictor = this.motionPredictor;
+        if (predictor != null && predictor.update()) {
+            this.setRotation(this.rotationYaw, this.rotationPitch);
+        }
+    }
+
     @SideOnly(Side.CLIENT)
     protected void spawnSmoke() {
         ModelSetVehicleBase<TrainConfig> set = this.getModelSet();
@@ -0,0 +1,198 @@
+package jp.ngt.rtm.entity.train.util;
+
+import cpw.mods.fml.relauncher.Side;
+import cpw.mods.fml.relauncher.SideOnly;
+import jp.ngt.ngtlib.math.NGTMath;
+import jp.ngt.rtm.entity.train.EntityTrainBase;
+import jp.ngt.rtm.rail.TileEntityLargeRailBase;
+import jp.ngt.rtm.rail.util.RailMap;
+import net.minecraft.util.MathHelper;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Client側での車両位置の推定<br>
+ * サーバーから受信した位置を起点に, 速度からレールに沿って位置を進める<br>
+ * 推定とのずれは数tickかけて補正する<br>
+ * 受信はネットワークのスレッドから呼ばれるので保持のみ, レールの検索と推定はClientのtickで行う
+ */
+@SideOnly(Side.CLIENT)
+public final class TrainMotionPredictor {
+    private static final int SPLIT_VALUE = 32;
+    /**
+     * 受信が途絶えた場合にこれ以上は推定しない
+     */
+    private static final int MAX_PREDICT_TICKS = 40;
+    /**
+     * 1tickあたりに補正するずれの割合
+     */
+    private static final double CORRECTION_RATE = 0.25D;
+    /**
+     * ずれがこれ以上なら補正せずに移動
+     */
+    private static final double SNAP_DISTANCE_SQ = 16.0D * 16.0D;
+    private static final double MIN_MOVEMENT_SQ = 1.0E-6D;
+
+    private final EntityTrainBase train;
+    private final double[] posBuf = new double[2];
+    /**
+     * 未処理の受信位置, 次の{@link #update()}で取り出す
+     */
+    private final AtomicReference<Snapshot> received = new AtomicReference<>();
+
+    private boolean hasSnapshot;
+    private double snapX, snapY, snapZ;
+    private float snapYaw;
+
+    private RailMap railMap;
+    private int split;
+    private int baseIndex;
+    private float baseRailYaw;
+    /**
+     * 受信位置のレール上の点からのずれ
+     */
+    private double offsetX, offsetY, offsetZ;
+    /**
+     * レールのindexが増える向きに進むなら1, 逆なら-1, 不明なら0
+     */
+    private int direction;
+
+    private double distance;
+    private int ticks;
+
+    private double errorX, errorY, errorZ;
+    private float errorYaw;
+
+    public TrainMotionPredictor(EntityTrainBase train) {
+        this.train = train;
+    }
+
+    /**
+     * サーバーから位置を受信した際に呼ぶ, 最新のものだけ残す
+     */
+    public void onReceive(double x, double y, double z, float yaw) {
+        this.received.set(new Snapshot(x, y, z, yaw));
+    }
+
+    private void applySnapshot(Snapshot snapshot) {
+        double x = snapshot.x;
+        double y = snapshot.y;
+        double z = snapshot.z;
+        float yaw = snapshot.yaw;
+        double moveX = x - this.snapX;
+        double moveZ = z - this.snapZ;
+        boolean moved = this.hasSnapshot && (moveX * moveX + moveZ * moveZ) > MIN_MOVEMENT_SQ;
+
+        if (this.hasSnapshot) {
+            this.errorX = this.train.posX - x;
+            this.errorY = this.train.posY - y;
+            this.errorZ = this.train.posZ - z;
+            this.errorYaw = MathHelper.wrapAngleTo180_float(this.train.rotationYaw - yaw);
+            if (this.errorX * this.errorX + this.errorY * this.errorY + this.errorZ * this.errorZ > SNAP_DISTANCE_SQ) {
+                this.resetError();
+            }
+        }
+
+        this.hasSnapshot = true;
+        this.snapX = x;
+        this.snapY = y;
+        this.snapZ = z;
+        this.snapYaw = yaw;
+        this.distance = 0.0D;
+        this.ticks = 0;
+
+        this.railMap = TileEntityLargeRailBase.getRailMapFromCoordinates(this.train.worldObj, this.train, x, y, z);
+        if (this.railMap == null) {
+            this.direction = 0;
+            return;
+        }
+
+        this.split = Math.max((int) (this.railMap.getLength() * (double) SPLIT_VALUE), 1);
+        this.baseIndex = this.railMap.getNearlestPoint(this.split, x, z);
+        this.baseRailYaw = this.railMap.getRailRotation(this.split, this.baseIndex);
+        double[] pos = this.railMap.getRailPos(this.split, this.baseIndex, this.posBuf);
+        this.offsetX = x - pos[1];
+        this.offsetY = y - this.railMap.getRailHeight(this.split, this.baseIndex);
+        this.offsetZ = z - pos[0];
+
+        if (moved) {
+            //直前の受信位置からの移動方向とレールの向きを比べる
+            int i0 = Math.max(this.baseIndex - 1, 0);
+            int i1 = Math.min(this.baseIndex + 1, this.split);
+            double[] p0 = this.railMap.getRailPos(this.split, i0, new double[2]);
+            double[] p1 = this.railMap.getRailPos(this.split, i1, this.posBuf);
+            double dot = (p1[1] - p0[1]) * moveX + (p1[0] - p0[0]) * moveZ;
+            this.direction = dot > 0.0D ? 1 : (dot < 0.0D ? -1 : 0);
+        } else if (this.train.getSpeed() == 0.0F) {
+            this.direction = 0;
+        }
+    }
+
+    private void resetError() {
+        this.errorX = 0.0D;
+        this.errorY = 0.0D;
+        this.errorZ = 0.0D;
+        this.errorYaw = 0.0F;
+    }
+
+    /**
+     * 推定位置へ移動
+     *
+     * @return 位置を受信していない, またはレール外ならfalse
+     */
+    public boolean update() {
+        Snapshot snapshot = this.received.getAndSet(null);
+        if (snapshot != null) {
+            this.applySnapshot(snapshot);
+        }
+
+        if (!this.hasSnapshot || this.railMap == null) {
+            return false;
+        }
+
+        if (this.ticks < MAX_PREDICT_TICKS) {
+            ++this.ticks;
+            this.distance += Math.abs(this.train.getSpeed());
+        }
+
+        double x = this.snapX;
+        double y = this.snapY;
+        double z = this.snapZ;
+        float yaw = this.snapYaw;
+
+        if (this.direction != 0 && this.distance > 0.0D) {
+            int indexInc = (int) Math.round(this.distance * (double) this.split / this.railMap.getLength());
+            int index = MathHelper.clamp_int(this.baseIndex + indexInc * this.direction, 0, this.split);
+            float deltaYaw = MathHelper.wrapAngleTo180_float(this.railMap.getRailRotation(this.split, index) - this.baseRailYaw);
+            float sin = NGTMath.sin(deltaYaw);
+            float cos = NGTMath.cos(deltaYaw);
+            double[] pos = this.railMap.getRailPos(this.split, index, this.posBuf);
+            x = pos[1] + this.offsetX * cos + this.offsetZ * sin;
+            y = this.railMap.getRailHeight(this.split, index) + this.offsetY;
+            z = pos[0] + this.offsetZ * cos - this.offsetX * sin;
+            yaw = this.snapYaw + deltaYaw;
+        }
+
+        double d0 = 1.0D - CORRECTION_RATE;
+        this.errorX *= d0;
+        this.errorY *= d0;
+        this.errorZ *= d0;
+        this.errorYaw *= (float) d0;
+
+        this.train.rotationYaw += MathHelper.wrapAngleTo180_float(yaw + this.errorYaw - this.train.rotationYaw);
+        this.train.setPosition(x + this.errorX, y + this.errorY, z + this.errorZ);
+        return true;
+    }
+
+    private static final class Snapshot {
+        private final double x, y, z;
+        private final float yaw;
+
+        private Snapshot(double x, double y, double z, float yaw) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.yaw = yaw;
+        }
+    }
+}
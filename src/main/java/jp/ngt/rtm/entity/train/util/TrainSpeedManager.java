@@ -1,10 +1,15 @@
 package jp.ngt.rtm.entity.train.util;
 
-import jp.ngt.ngtlib.io.ScriptUtil;
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import jp.ngt.ngtlib.io.ScriptFunctionHandle;
 import jp.ngt.rtm.entity.train.EntityTrainBase;
+import jp.ngt.rtm.modelpack.ScriptProfiler;
 import jp.ngt.rtm.modelpack.cfg.TrainConfig;
 
 public final class TrainSpeedManager {
+    private static final ScriptFunctionHandle<Acceleration> ACCELERATION = ScriptFunctionHandle.of(Acceleration.class);
+    private static final ScriptFunctionHandle<Deceleration> DECELERATION = ScriptFunctionHandle.of(Deceleration.class);
+
     private static final float[] BRAKE = {-0.0005F, -0.001F, -0.0015F, -0.002F, -0.0025F, -0.003F, -0.0035F, -0.01F};
 
     public static float getAcceleration(EntityTrainBase train, int notch, float prevSpeed, TrainConfig cfg) {
@@ -16,12 +21,20 @@ public final class TrainSpeedManager {
                 return 0.0F;
             } else {
                 if (cfg.useVariableAcceleration) {
-                    Object obj = ScriptUtil.doScriptIgnoreError(
-                            train.getModelSet().serverSE,
-                            "getAcceleration",
-                            train,
-                            prevSpeed);
-                    return obj != null ? Float.parseFloat(obj.toString()) : 0.0f;
+                    Acceleration func = ACCELERATION.get(train.getModelSet().serverSE);
+                    if (func == null) {
+                        return 0.0F;
+                    }
+                    long time = ScriptProfiler.start();
+                    try {
+                        return toFloat(func.getAcceleration(train, prevSpeed));
+                    } catch (Exception e) {
+                        ScriptProfiler.onError(cfg.getName(), "getAcceleration");
+                        e.printStackTrace();
+                        return 0.0F;
+                    } finally {
+                        ScriptProfiler.end(cfg.getName(), "getAcceleration", time);
+                    }
                 } else {
                     return cfg.accelerateions[Math.min(cfg.accelerateions.length - 1, notch)];
                 }
@@ -29,12 +42,17 @@ public final class TrainSpeedManager {
         } else {
             float deceleration;
             if (cfg.useVariableDeceleration) {
-                Object obj = ScriptUtil.doScriptIgnoreError(
-                        train.getModelSet().serverSE,
-                        "getDeceleration",
-                        train,
-                        prevSpeed);
-                deceleration = obj != null ? Float.parseFloat(obj.toString()) : 0.0f;
+                Deceleration func = DECELERATION.get(train.getModelSet().serverSE);
+                long time = ScriptProfiler.start();
+                try {
+                    deceleration = func != null ? toFloat(func.getDeceleration(train, prevSpeed)) : 0.0F;
+                } catch (Exception e) {
+                    ScriptProfiler.onError(cfg.getName(), "getDeceleration");
+                    e.printStackTrace();
+                    deceleration = 0.0F;
+                } finally {
+                    ScriptProfiler.end(cfg.getName(), "getDeceleration", time);
+                }
             } else {
                 deceleration = cfg.deccelerations[Math.min(cfg.deccelerations.length - 1, -notch)];
             }
@@ -45,7 +63,32 @@ public final class TrainSpeedManager {
         }
     }
 
+    /**
+     * 関数が値を返さない(undefined, null)場合は0, floatで受けるとNaNになるのでObjectで受ける
+     */
+    private static float toFloat(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).floatValue();
+        } else if (value == null || ScriptObjectMirror.isUndefined(value)) {
+            return 0.0F;
+        }
+
+        try {
+            return Float.parseFloat(value.toString());
+        } catch (NumberFormatException e) {
+            return 0.0F;
+        }
+    }
+
     public static float getMaxSpeed(TrainConfig cfg) {
         return cfg.maxSpeed[cfg.maxSpeed.length - 1];
     }
+
+    public interface Acceleration {
+        Object getAcceleration(EntityTrainBase train, float speed);
+    }
+
+    public interface Deceleration {
+        Object getDeceleration(EntityTrainBase train, float speed);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package jp.ngt.rtm.entity.vehicle;
+
+import jp.ngt.rtm.RTMCore;
+import jp.ngt.rtm.entity.train.EntityBogie;
+import jp.ngt.rtm.entity.train.util.Formation;
+import jp.ngt.rtm.network.PacketFormationMovement;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.util.MathHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static jp.ngt.rtm.network.PacketFormationMovement.*;
+
+/**
+ * 編成ごとの移動パケットをプレイヤー単位でまとめて送信, ServerOnly<br>
+ * {@link VehicleTrackerEntry}から登録され, サーバーのtick終了時に送信する
+ */
+public final class FormationMovementSender {
+    public static final FormationMovementSender INSTANCE = new FormationMovementSender();
+
+    /**
+     * この回数ごとに全項目を送信
+     */
+    private static final int KEYFRAME_INTERVAL = 20;
+    /**
+     * 1パケットあたりの最大エントリ数
+     */
+    private static final int MAX_RECORDS = 256;
+    private static final int SEND_COUNT = VALUE_COUNT;
+
+    /**
+     * プレイヤー -> エンティティID -> 最後に送信した状態
+     */
+    private final Map<EntityPlayerMP, Map<Integer, int[]>> sentStates = new WeakHashMap<>();
+    private final Map<EntityPlayerMP, Map<Long, List<Entity>>> pending = new HashMap<>();
+    private final int[] buffer = new int[VALUE_COUNT];
+    private final int[] delta = new int[VALUE_COUNT];
+
+    private FormationMovementSender() {
+    }
+
+    public void add(EntityPlayerMP player, Formation formation, Entity entity) {
+        this.pending.computeIfAbsent(player, key -> new HashMap<>()).computeIfAbsent(formation.id, key -> new ArrayList<>()).add(entity);
+    }
+
+    /**
+     * 追跡が外れた, またはEntityが削除されたら状態を破棄し, 次回はキーフレームから送る
+     */
+    public void onStopTracking(EntityPlayerMP player, Entity entity) {
+        Map<Integer, int[]> states = this.sentStates.get(player);
+        if (states != null) {
+            states.remove(entity.getEntityId());
+            if (states.isEmpty()) {
+                this.sentStates.remove(player);
+            }
+        }
+    }
+
+    public void sendAll() {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+
+        this.pending.forEach((player, formations) -> {
+            Map<Integer, int[]> states = this.sentStates.computeIfAbsent(player, key -> new HashMap<>());
+            formations.values().forEach(entities -> {
+                PacketFormationMovement packet = new PacketFormationMovement();
+                for (Entity entity : entities) {
+                    if (entity.isDead) {
+                        continue;
+                    }
+                    this.addRecord(packet, entity, states);
+                    if (packet.getRecordCount() >= MAX_RECORDS) {
+                        RTMCore.NETWORK_WRAPPER.sendTo(packet, player);
+                        packet = new PacketFormationMovement();
+                    }
+                }
+
+                if (packet.getRecordCount() > 0) {
+                    RTMCore.NETWORK_WRAPPER.sendTo(packet, player);
+                }
+            });
+        });
+        this.pending.clear();
+    }
+
+    private void addRecord(PacketFormationMovement packet, Entity entity, Map<Integer, int[]> states) {
+        int[] current = this.buffer;
+        current[V_X] = MathHelper.floor_double(entity.posX * 32.0D);
+        current[V_Y] = MathHelper.floor_double(entity.posY * 32.0D);
+        current[V_Z] = MathHelper.floor_double(entity.posZ * 32.0D);
+        current[V_YAW] = quantizeAngle(entity.rotationYaw);
+        current[V_PITCH] = quantizeAngle(entity.rotationPitch);
+        boolean isVehicle = entity instanceof EntityVehicleBase;
+        if (isVehicle) {
+            current[V_ROLL] = quantizeAngle(((EntityVehicleBase) entity).getRoll());
+            current[V_SPEED] = Float.floatToIntBits(((EntityVehicleBase) entity).getSpeed());
+        } else {
+            current[V_ROLL] = quantizeAngle(((EntityBogie) entity).rotationRoll);
+            current[V_SPEED] = 0;
+        }
+
+        int id = entity.getEntityId();
+        int[] sent = states.get(id);
+        int flag = 0;
+        if (sent == null || sent[SEND_COUNT] >= KEYFRAME_INTERVAL) {
+            sent = new int[VALUE_COUNT + 1];
+            states.put(id, sent);
+            flag = FLAG_KEY | FLAG_X | FLAG_Y | FLAG_Z | FLAG_YAW | FLAG_PITCH | FLAG_ROLL;
+            if (isVehicle) {
+                flag |= FLAG_SPEED;
+            }
+            packet.addRecord(id, flag, current);
+        } else {
+            int[] value = this.delta;
+            for (int i = 0; i < VALUE_COUNT; ++i) {
+                if (current[i] != sent[i]) {
+                    flag |= (FLAG_X << i);
+                    value[i] = (i <= V_Z) ? current[i] - sent[i] : current[i];
+                }
+            }
+
+            if (flag != 0) {
+                packet.addRecord(id, flag, value);
+            }
+        }
+
+        System.arraycopy(current, 0, sent, 0, VALUE_COUNT);
+        ++sent[SEND_COUNT];
+    }
+}
@@ -3,9 +3,11 @@ package jp.ngt.rtm.entity.vehicle;
 import cpw.mods.fml.common.network.internal.FMLNetworkHandler;
 import jp.ngt.ngtlib.network.PacketNBT;
 import jp.ngt.ngtlib.util.NGTUtil;
+import jp.ngt.rtm.RTMConfig;
 import jp.ngt.rtm.RTMCore;
 import jp.ngt.rtm.entity.train.EntityBogie;
 import jp.ngt.rtm.entity.train.EntityTrainBase;
+import jp.ngt.rtm.entity.train.util.Formation;
 import jp.ngt.rtm.network.PacketVehicleMovement;
 import net.minecraft.entity.DataWatcher;
 import net.minecraft.entity.Entity;
@@ -20,7 +22,9 @@ import net.minecraft.util.MathHelper;
 import net.minecraft.world.WorldServer;
 import net.minecraftforge.event.ForgeEventFactory;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class VehicleTrackerEntry extends EntityTrackerEntry {
@@ -28,6 +32,10 @@ public class VehicleTrackerEntry extends EntityTrackerEntry {
     private boolean isDataInitialized;
     private Entity rider;
     private boolean ridingEntity;
+    /**
+     * プレイヤーごとの最後に移動を送信したtick
+     */
+    private final Map<EntityPlayerMP, Integer> lastSentTicks = new HashMap<>();
 
     public VehicleTrackerEntry(EntityTrackerEntry par1, Entity par2) {
         super(par1.myEntity, par1.blocksDistanceThreshold, par1.updateFrequency, false);
@@ -73,15 +81,13 @@ public class VehicleTrackerEntry extends EntityTrackerEntry {
                     //this.lastYaw = packet.trainYaw;
                     //this.lastPitch = packet.trainPitch;
                     this.ridingEntity = false;
-//                    par1.forEach(player -> RTMCore.NETWORK_WRAPPER.sendTo(packet, (EntityPlayerMP) player));
-                    RTMCore.NETWORK_WRAPPER.sendToAll(packet);
+                    this.sendMovementToTrackingPlayers(packet);
                 } else if (this.myEntity instanceof EntityVehicle) {
                     PacketVehicleMovement packet = new PacketVehicleMovement(this.myEntity);
                     this.lastScaledXPosition = packet.trainX;
                     this.lastScaledYPosition = packet.trainY;
                     this.lastScaledZPosition = packet.trainZ;
-//                    par1.forEach(player -> RTMCore.NETWORK_WRAPPER.sendTo(packet, (EntityPlayerMP) player));
-                    RTMCore.NETWORK_WRAPPER.sendToAll(packet);
+                    this.sendMovementToTrackingPlayers(packet);
 
                     this.motionX = this.myEntity.motionX;
                     this.motionY = this.myEntity.motionY;
@@ -110,6 +116,51 @@ public class VehicleTrackerEntry extends EntityTrackerEntry {
         ++this.ticks;
     }
 
+    /**
+     * 追跡中のプレイヤーにのみ送信, 遠いプレイヤーほど間隔を空ける<br>
+     * 編成に属する車両と台車は{@link FormationMovementSender}でまとめて送る
+     */
+    private void sendMovementToTrackingPlayers(PacketVehicleMovement packet) {
+        Formation formation = this.getFormation();
+        for (Object trackingPlayer : this.trackingPlayers) {
+            EntityPlayerMP player = (EntityPlayerMP) trackingPlayer;
+            Integer lastSent = this.lastSentTicks.get(player);
+            if (lastSent == null || this.ticks - lastSent >= this.getSendInterval(player) * this.updateFrequency) {
+                this.lastSentTicks.put(player, this.ticks);
+                if (formation != null) {
+                    FormationMovementSender.INSTANCE.add(player, formation, this.myEntity);
+                } else {
+                    RTMCore.NETWORK_WRAPPER.sendTo(packet, player);
+                }
+            }
+        }
+    }
+
+    private Formation getFormation() {
+        if (this.myEntity instanceof EntityTrainBase) {
+            return ((EntityTrainBase) this.myEntity).getFormation();
+        } else if (this.myEntity instanceof EntityBogie) {
+            EntityTrainBase train = ((EntityBogie) this.myEntity).getTrain();
+            return train != null ? train.getFormation() : null;
+        }
+        return null;
+    }
+
+    /**
+     * @return updateFrequencyの何倍の間隔で送信するか
+     */
+    private int getSendInterval(EntityPlayerMP player) {
+        //列車はClientでレールに沿って位置を推定するので間隔を空ける
+        int base = (this.myEntity instanceof EntityTrainBase || this.myEntity instanceof EntityBogie) ? RTMConfig.trainSyncInterval : 1;
+        double near = RTMConfig.vehicleSyncNearRange;
+        double distanceSq = this.myEntity.getDistanceSqToEntity(player);
+        if (distanceSq <= near * near) {
+            return base;
+        }
+        int interval = 1 + (int) (Math.sqrt(distanceSq) / near);
+        return Math.max(Math.min(interval, RTMConfig.vehicleSyncMaxInterval), base);
+    }
+
     /**
      * DataWatcherの同期
      */
@@ -126,7 +177,9 @@ public class VehicleTrackerEntry extends EntityTrackerEntry {
         for (Object trackingPlayer : this.trackingPlayers) {
             EntityPlayerMP player = (EntityPlayerMP) trackingPlayer;
             player.func_152339_d(this.myEntity);
+            FormationMovementSender.INSTANCE.onStopTracking(player, this.myEntity);
         }
+        this.lastSentTicks.clear();
     }
 
     @Override
@@ -135,6 +188,8 @@ public class VehicleTrackerEntry extends EntityTrackerEntry {
             player.func_152339_d(this.myEntity);
             this.trackingPlayers.remove(player);
         }
+        this.lastSentTicks.remove(player);
+        FormationMovementSender.INSTANCE.onStopTracking(player, this.myEntity);
     }
 
     /**
@@ -178,6 +233,8 @@ public class VehicleTrackerEntry extends EntityTrackerEntry {
                 }
             } else if (this.trackingPlayers.contains(par1)) {
                 this.trackingPlayers.remove(par1);
+                this.lastSentTicks.remove(par1);
+                FormationMovementSender.INSTANCE.onStopTracking(par1, this.myEntity);
                 par1.func_152339_d(this.myEntity);
                 ForgeEventFactory.onStopEntityTracking(myEntity, par1);
             }
@@ -201,6 +258,8 @@ public class VehicleTrackerEntry extends EntityTrackerEntry {
             this.trackingPlayers.remove(player);
             player.func_152339_d(this.myEntity);
         }
+        this.lastSentTicks.remove(player);
+        FormationMovementSender.INSTANCE.onStopTracking(player, this.myEntity);
     }
 
     /**
@@ -7,15 +7,24 @@ import cpw.mods.fml.common.gameevent.TickEvent;
 import cpw.mods.fml.common.gameevent.TickEvent.Phase;
 import cpw.mods.fml.common.gameevent.TickEvent.WorldTickEvent;
 import cpw.mods.fml.common.network.FMLNetworkEvent.ClientConnectedToServerEvent;
+import cpw.mods.fml.common.network.FMLNetworkEvent.ClientDisconnectionFromServerEvent;
 import cpw.mods.fml.common.network.FMLNetworkEvent.ServerConnectionFromClientEvent;
 import jp.ngt.ngtlib.util.NGTUtil;
 import jp.ngt.rtm.RTMConfig;
 import jp.ngt.rtm.RTMCore;
+import jp.ngt.rtm.electric.WiringGraph;
 import jp.ngt.rtm.entity.train.EntityTrainBase;
 import jp.ngt.rtm.entity.train.parts.EntityFloor;
 import jp.ngt.rtm.entity.train.util.FormationManager;
+import jp.ngt.rtm.entity.vehicle.FormationMovementSender;
+import jp.ngt.rtm.modelpack.state.DataMapSync;
 import jp.ngt.rtm.modelpack.ModelPackManager;
+import jp.ngt.rtm.modelpack.ScriptProfiler;
 import jp.ngt.rtm.network.ConnectionManager;
+import jp.ngt.rtm.network.PacketModelPack;
+import jp.ngt.rtm.rail.MarkerIndex;
+import jp.ngt.rtm.rail.RailIndex;
+import jp.ngt.rtm.rail.RailTopology;
 import net.minecraft.crash.CrashReport;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.passive.EntityBat;
@@ -33,6 +42,12 @@ public final class RTMEventHandler {
         ConnectionManager.INSTANCE.onConnectedToServer(event.isLocal);
     }
 
+    @SubscribeEvent
+    public void disconnectedFromServer(ClientDisconnectionFromServerEvent event) {
+        RTMCore.proxy.setConnectionState((byte) 0);
+        PacketModelPack.writer.onDisconnect();
+    }
+
     @SubscribeEvent
     public void connectedFromClient(ServerConnectionFromClientEvent event)//このタイミングではS->Cのパケット届かない
     {
@@ -71,6 +86,8 @@ public final class RTMEventHandler {
     public void onWorldTick(WorldTickEvent event) {
         if (event.phase == Phase.END) {
             RTMCore.proxy.getFormationManager().updateFormations(event.world);//Serverしか呼ばれない
+            WiringGraph.tick(event.world);
+            RailTopology.tick(event.world);
         }
     }
 
@@ -80,8 +97,22 @@ public final class RTMEventHandler {
         FormationManager.getInstance().loadData(event.world);
     }
 
+    @SubscribeEvent
+    public void onUnloadWorld(WorldEvent.Unload event) {
+        RailIndex.remove(event.world);
+        MarkerIndex.remove(event.world);
+        WiringGraph.remove(event.world);
+        RailTopology.remove(event.world);
+    }
+
     @SubscribeEvent
     public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == Phase.END) {
+            FormationMovementSender.INSTANCE.sendAll();//全ワールドのEntityTrackerの更新後
+            DataMapSync.sendAll();
+            ScriptProfiler.onTickEnd();
+        }
+
         if (RTMCore.proxy.canCrash()) {
             CrashReport report = RTMCore.proxy.getCrashReport();
             RTMCore.proxy.postReportCrash();
@@ -11,7 +11,10 @@ import jp.ngt.ngtlib.util.NGTUtilClient;
 import jp.ngt.rtm.RTMConfig;
 import jp.ngt.rtm.RTMCore;
 import jp.ngt.rtm.block.tileentity.RenderMirror;
+import jp.ngt.rtm.electric.WiringGraph;
 import jp.ngt.rtm.entity.train.parts.EntityArtillery;
+import jp.ngt.rtm.modelpack.ModelPackManager;
+import jp.ngt.rtm.network.PacketFormationMovement;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.world.World;
 import org.lwjgl.opengl.Display;
@@ -22,6 +25,11 @@ import org.lwjgl.opengl.Display;
 @SideOnly(Side.CLIENT)
 public final class RTMTickHandlerClient {
     public static long renderTickCount = 0;
+    /**
+     * 使用されていないモデルを確認する間隔
+     */
+    private static final int MODEL_UNLOAD_INTERVAL = 1200;
+    private int tickCount;
 
     @SubscribeEvent
     public void onRenderTick(RenderTickEvent event)//Minecraft.runGameLoop()
@@ -50,10 +58,17 @@ public final class RTMTickHandlerClient {
                     RenderMirror.INSTANCE.update();
                 }
                 RTMCore.proxy.getFormationManager().updateFormations(world);
+                PacketFormationMovement.processReceived(world);
 
                 RTMKeyHandlerClient.INSTANCE.onTickStart();
             } else if (event.phase == Phase.END) {
                 RTMKeyHandlerClient.INSTANCE.onTickEnd();
+                WiringGraph.tick(world);
+
+                if (++this.tickCount >= MODEL_UNLOAD_INTERVAL) {
+                    this.tickCount = 0;
+                    ModelPackManager.INSTANCE.unloadIdleModels();
+                }
             }
         }
     }
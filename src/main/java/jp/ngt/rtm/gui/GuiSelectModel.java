@@ -335,6 +335,11 @@ public class GuiSelectModel extends GuiScreenCustom {
         int i0 = (this.height / 2) - 16;
 
         IntStream.range(0, this.selectButtons.length).forEach(i -> this.selectButtons[i].yPosition = i0 + 32 * (i - this.currentScroll));
+
+        //表示範囲付近のモデルを先に読み込む
+        int range = this.height / 32 + 1;
+        this.modelListSelect.subList(Math.max(this.currentScroll - range, 0), Math.min(this.currentScroll + range, this.modelListSelect.size()))
+                .forEach(modelSet -> ((IModelSetClient) modelSet).prefetchModels());
     }
 
     public static void renderModel(IModelSetClient par1, Minecraft par2) {
@@ -0,0 +1,205 @@
+package jp.ngt.rtm.modelpack;
+
+import cpw.mods.fml.relauncher.Side;
+import jp.kaiz.kaizpatch.fixrtm.caching.ModelPackManifest;
+import jp.ngt.ngtlib.io.NGTJson;
+import jp.ngt.ngtlib.io.NGTLog;
+import jp.ngt.ngtlib.io.ScriptUtil;
+import jp.ngt.rtm.RTMConfig;
+import jp.ngt.rtm.RTMCore;
+import jp.ngt.rtm.modelpack.cfg.ModelConfig;
+import net.minecraft.crash.CrashReport;
+import org.lwjgl.opengl.GL11;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * モデルパックのjsonを段階ごとに並列で読み込む<br>
+ * 読み込み -> json解析 -> スクリプトのコンパイル -> モデルの読み込み -> 登録<br>
+ * 段階ごとに上限付きのキューを持ち, 溢れた場合は前の段階のスレッドで実行する
+ */
+public final class ModelLoadPipeline {
+    /**
+     * 段階ごとのキューの上限
+     */
+    private static final int QUEUE_SIZE = 64;
+
+    private enum Stage {
+        READ,
+        PARSE,
+        SCRIPT,
+        GEOMETRY,
+        REGISTER
+    }
+
+    private final ModelPackLoadThread watcher;
+    private final Side side;
+    private final ExecutorService[] executors = new ExecutorService[Stage.values().length];
+    private final AtomicLong[] stageTimes = new AtomicLong[Stage.values().length];
+    private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+    private final long startTime = System.nanoTime();
+
+    /**
+     * @param threads 段階ごとのスレッド数
+     */
+    public ModelLoadPipeline(ModelPackLoadThread watcher, Side side, int threads) {
+        this.watcher = watcher;
+        this.side = side;
+        for (Stage stage : Stage.values()) {
+            int i;
+            switch (stage) {
+                case READ:
+                    i = Math.min(threads, 2);
+                    break;
+                default:
+                    i = threads;
+                    break;
+            }
+            this.executors[stage.ordinal()] = newExecutor(stage, i);
+            this.stageTimes[stage.ordinal()] = new AtomicLong();
+        }
+    }
+
+    private static ExecutorService newExecutor(Stage stage, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE),
+                r -> new Thread(r, "RTM ModelPack " + stage + "-" + count.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * テクスチャの登録など, 段階に分けない処理用
+     */
+    public ExecutorService getExecutor() {
+        return this.executors[Stage.REGISTER.ordinal()];
+    }
+
+    public void submit(File file) {
+        Job job = new Job(file);
+        CompletableFuture<Void> future = CompletableFuture
+                .supplyAsync(() -> this.run(Stage.READ, job, this::read), this.executors[Stage.READ.ordinal()])
+                .thenApplyAsync(j -> this.run(Stage.PARSE, j, this::parse), this.executors[Stage.PARSE.ordinal()])
+                .thenApplyAsync(j -> this.run(Stage.SCRIPT, j, this::compileScripts), this.executors[Stage.SCRIPT.ordinal()])
+                .thenApplyAsync(j -> this.run(Stage.GEOMETRY, j, this::loadModels), this.executors[Stage.GEOMETRY.ordinal()])
+                .thenAcceptAsync(j -> this.run(Stage.REGISTER, j, this::register), this.executors[Stage.REGISTER.ordinal()]);
+        this.futures.add(future);
+    }
+
+    private Job run(Stage stage, Job job, UnaryOperator<Job> task) {
+        long l0 = System.nanoTime();
+        try {
+            return task.apply(job);
+        } catch (Throwable e) {
+            ModelPackException exception = new ModelPackException("Can't load model", job.file.getAbsolutePath(), e);
+            CrashReport crashReport = CrashReport.makeCrashReport(exception, "Loading RTM ModelPack");
+            crashReport.makeCategory("Initialization");
+            RTMCore.proxy.reportCrash(crashReport);
+            throw exception;
+        } finally {
+            this.stageTimes[stage.ordinal()].addAndGet(System.nanoTime() - l0);
+        }
+    }
+
+    /**
+     * 前回起動時から変更の無いモデルパックなら, jsonを読まずにキャッシュから復元
+     */
+    private Job read(Job job) {
+        job.cfg = ModelPackManifest.getConfig(job.file, ModelPackManager.INSTANCE.getConfigClass(job.type));
+        if (job.cfg == null) {
+            job.json = NGTJson.readFromJson(job.file);
+        }
+        return job;
+    }
+
+    private Job parse(Job job) {
+        if (job.cfg == null) {
+            job.cfg = ModelPackManager.INSTANCE.parseConfig(job.type, job.json);
+            job.json = null;
+            ModelPackManifest.putConfig(job.file, job.cfg);
+        }
+        job.cfg.init();
+        return job;
+    }
+
+    private Job compileScripts(Job job) {
+        List<String> paths = this.side.isClient() ? job.cfg.getScriptPaths() : Collections.singletonList(job.cfg.serverScriptPath);
+        paths.stream().filter(Objects::nonNull).distinct()
+                .map(ModelPackManager.INSTANCE::getScript)
+                .forEach(ScriptUtil::precompile);
+        return job;
+    }
+
+    /**
+     * ModelObjectと同じ引数で読み込んでおき, 登録時はキャッシュを使う<br>
+     * 遅延読み込みが有効な場合, ModelObjectのモデルは読み込まない
+     */
+    private Job loadModels(Job job) {
+        if (this.side.isClient()) {
+            Set<String> lazyFiles = RTMConfig.lazyModelLoading ? job.cfg.getModelSources().stream()
+                    .filter(Objects::nonNull)
+                    .map(source -> source.modelFile)
+                    .collect(Collectors.toSet()) : Collections.emptySet();
+            job.cfg.getModelFiles().stream().filter(Objects::nonNull).distinct()
+                    .filter(name -> !lazyFiles.contains(name))
+                    .forEach(name -> ModelPackManager.INSTANCE.loadModel(name, GL11.GL_TRIANGLES, true, job.cfg));
+        }
+        return job;
+    }
+
+    private Job register(Job job) {
+        String name = ModelPackManager.INSTANCE.addModelSet(job.type, job.cfg);
+        this.watcher.addValue(1, name);
+        return job;
+    }
+
+    /**
+     * 全ての読み込みの完了を待ち, 段階ごとの時間を出力
+     */
+    public void await() throws InterruptedException {
+        try {
+            CompletableFuture.allOf(this.futures.toArray(new CompletableFuture[0])).join();
+        } catch (RuntimeException e) {
+            //CrashReportは報告済み
+        }
+
+        for (ExecutorService executor : this.executors) {
+            executor.shutdown();
+        }
+        for (ExecutorService executor : this.executors) {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            sb.append(String.format(", %s:%dms", stage.name().toLowerCase(), this.stageTimes[stage.ordinal()].get() / 1000000L));
+        }
+        NGTLog.debug("[ModelPack] %d models in %dms%s", this.futures.size(), (System.nanoTime() - this.startTime) / 1000000L, sb);
+    }
+
+    private static final class Job {
+        private final File file;
+        private final String type;
+        private String json;
+        private ModelConfig cfg;
+
+        private Job(File file) {
+            this.file = file;
+            this.type = file.getName().split("_")[0];
+        }
+    }
+}
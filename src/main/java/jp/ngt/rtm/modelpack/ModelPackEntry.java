@@ -0,0 +1,34 @@
+package jp.ngt.rtm.modelpack;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * サーバーが配布するモデルパックの情報
+ */
+public final class ModelPackEntry {
+    public final String name;
+    public final long size;
+    public final String sha1;
+
+    public ModelPackEntry(String name, long size, String sha1) {
+        this.name = name;
+        this.size = size;
+        this.sha1 = sha1;
+    }
+
+    public void writeTo(ByteBuf buffer) {
+        ByteBufUtils.writeUTF8String(buffer, this.name);
+        buffer.writeLong(this.size);
+        ByteBufUtils.writeUTF8String(buffer, this.sha1);
+    }
+
+    public static ModelPackEntry readFrom(ByteBuf buffer) {
+        return new ModelPackEntry(ByteBufUtils.readUTF8String(buffer), buffer.readLong(), ByteBufUtils.readUTF8String(buffer));
+    }
+
+    @Override
+    public String toString() {
+        return this.name + "(" + this.sha1 + ")";
+    }
+}
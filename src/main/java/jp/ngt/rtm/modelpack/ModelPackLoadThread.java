@@ -1,10 +1,15 @@
 package jp.ngt.rtm.modelpack;
 
 import cpw.mods.fml.relauncher.Side;
+import jp.kaiz.kaizpatch.fixrtm.caching.ModelPackManifest;
+import jp.kaiz.kaizpatch.fixrtm.model.CachedPolygonModel;
+import jp.ngt.ngtlib.io.FileMatcher;
 import jp.ngt.ngtlib.io.IProgressWatcher;
 import jp.ngt.ngtlib.io.NGTFileLoader;
-import jp.ngt.ngtlib.io.NGTJson;
 import jp.ngt.ngtlib.io.NGTLog;
+import jp.ngt.ngtlib.io.ScanResult;
+import jp.ngt.ngtlib.io.ScriptUtil;
+import jp.ngt.ngtlib.renderer.model.PolygonModel;
 import jp.ngt.rtm.RTMConfig;
 import jp.ngt.rtm.RTMCore;
 import jp.ngt.rtm.modelpack.texture.TextureManager;
@@ -19,8 +24,6 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
@@ -111,6 +114,7 @@ public final class ModelPackLoadThread extends Thread implements IProgressWatche
         if (this.threadSide == Side.CLIENT && RTMConfig.useServerModelPack) {
             this.setText(0, "Waiting for connecting to Server");
             this.setText(1, "You can start game");
+            PacketModelPack.writer.setProgressWatcher(this);
 
             //サーバーと接続するまで待機
             while (RTMCore.proxy.getConnectionState() == 0)//!ConnectionManager.INSTANCE.isConnectedToServer())
@@ -119,16 +123,33 @@ public final class ModelPackLoadThread extends Thread implements IProgressWatche
                 sleep(500L);
             }
 
-            //ダウンロード終了まで待機
+            //ダウンロード終了まで待機, 切断された場合は再接続後に続きから
+            this.setText(0, "Downloading ModelPacks");
             while (!PacketModelPack.writer.finish) {
+                if (RTMCore.proxy.getConnectionState() == 0) {
+                    RTMCore.NETWORK_WRAPPER.sendToServer(new PacketNotice(PacketNotice.Side_SERVER, "getModelPack"));
+                }
                 sleep(500L);
             }
+            PacketModelPack.writer.activate();
+            PacketModelPack.writer.setProgressWatcher(null);
+            this.setMaxValue(0, 8, "");
+            NGTFileLoader.markAssetIndexOutdated();
         }
 
+        Runtime runtime = Runtime.getRuntime();
+        long heap0 = runtime.totalMemory() - runtime.freeMemory();
         long l0 = System.nanoTime();
         this.loadModelFromConfig();
         long time = System.nanoTime() - l0;
+        long heap1 = runtime.totalMemory() - runtime.freeMemory();
         NGTLog.debug("Load time:" + time);
+        NGTLog.debug("Heap:%dMB -> %dMB", heap0 >> 20, heap1 >> 20);
+        ScriptUtil.logStats();
+        if (this.threadSide == Side.CLIENT) {
+            PolygonModel.logStats();
+            CachedPolygonModel.logStats();
+        }
 
         this.finish();
     }
@@ -136,54 +157,46 @@ public final class ModelPackLoadThread extends Thread implements IProgressWatche
     private void loadModelFromConfig() {
         this.setValue(0, 1, "Loading Train Models");
         Pattern pattern = Pattern.compile("Model.*\\.json");
-        List<File> fileList = NGTFileLoader.findFile(file -> pattern.matcher(file.getName()).matches());
+        FileMatcher modelMatcher = file -> pattern.matcher(file.getName()).matches();
+        //全ての種類を1度に検索
+        ScanResult scanResult = NGTFileLoader.findFile(modelMatcher,
+                TextureManager.SIGNBOARD_MATCHER, TextureManager.RRS_MATCHER, TextureManager.FLAG_MATCHER);
+        List<File> fileList = scanResult.get(modelMatcher);
 
-        List<File> signBoards = TextureManager.INSTANCE.loadTextures(this);
-        List<File> railRoadSigns = TextureManager.INSTANCE.loadRailRoadSigns(this);
-        List<File> flags = TextureManager.INSTANCE.loadFlags(this);
+        List<File> signBoards = TextureManager.INSTANCE.loadTextures(this, scanResult);
+        List<File> railRoadSigns = TextureManager.INSTANCE.loadRailRoadSigns(this, scanResult);
+        List<File> flags = TextureManager.INSTANCE.loadFlags(this, scanResult);
 
         this.setValue(0, 4, "Registering All Models");
         this.setMaxValue(1, fileList.size(), "");
 
-        ExecutorService executor;
+        int threads;
         switch (RTMConfig.loadSpeed) {
             case 1:
-                executor = Executors.newSingleThreadExecutor();
+                threads = 1;
                 break;
             case 3:
-                executor = Executors.newWorkStealingPool();
+                threads = Runtime.getRuntime().availableProcessors();
                 break;
             default:
-                executor = Executors.newFixedThreadPool(Math.max(Runtime.getRuntime().availableProcessors() / 3, 1));
+                threads = Math.max(Runtime.getRuntime().availableProcessors() / 3, 1);
                 break;
         }
-        try {
-            fileList.stream().filter(Objects::nonNull)
-                    .map(file -> new CrashableFutureTask<Void>(() -> {
-                        String json = NGTJson.readFromJson(file);
-                        String type = file.getName().split("_")[0];
-                        try {
-                            String s = ModelPackManager.INSTANCE.registerModelset(type, json);
-                            this.addValue(1, s);
-                        } catch (Throwable e) {
-                            throw new ModelPackException("Can't load model", file.getAbsolutePath(), e);
-                        }
-                        return null;
-                    }))
-                    .forEach(executor::submit);
-
-            TextureManager.INSTANCE.registerTextures(this, signBoards, executor, TextureManager.TexturePropertyType.SignBoard);
-            TextureManager.INSTANCE.registerTextures(this, flags, executor, TextureManager.TexturePropertyType.Flag);
-            TextureManager.INSTANCE.registerRailRoadSigns(this, railRoadSigns, executor);
-        } finally {
-            executor.shutdown();
-        }
+
+        ModelLoadPipeline pipeline = new ModelLoadPipeline(this, this.threadSide, threads);
+        fileList.stream().filter(Objects::nonNull).forEach(pipeline::submit);
+
+        ExecutorService executor = pipeline.getExecutor();
+        TextureManager.INSTANCE.registerTextures(this, signBoards, executor, TextureManager.TexturePropertyType.SignBoard);
+        TextureManager.INSTANCE.registerTextures(this, flags, executor, TextureManager.TexturePropertyType.Flag);
+        TextureManager.INSTANCE.registerRailRoadSigns(this, railRoadSigns, executor);
 
         try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            pipeline.await();
         } catch (InterruptedException e) {
             throw new RuntimeException(e.getCause());
         }
+        ModelPackManifest.save();
     }
 
     @Override
@@ -5,13 +5,16 @@ import cpw.mods.fml.relauncher.SideOnly;
 import jp.ngt.ngtlib.io.FileType;
 import jp.ngt.ngtlib.io.NGTClassUtil;
 import jp.ngt.ngtlib.io.NGTJson;
+import jp.ngt.ngtlib.io.NGTLog;
 import jp.ngt.ngtlib.io.NGTText;
 import jp.ngt.ngtlib.renderer.model.*;
 import jp.ngt.ngtlib.util.NGTUtil;
+import jp.ngt.rtm.RTMConfig;
 import jp.ngt.rtm.RTMCore;
 import jp.ngt.rtm.modelpack.cfg.ModelConfig;
 import jp.ngt.rtm.modelpack.modelset.ModelSetBase;
 import jp.ngt.rtm.network.PacketModelSet;
+import jp.ngt.rtm.render.ModelObject;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.util.ResourceLocation;
 import net.minecraftforge.client.model.ModelFormatException;
@@ -23,7 +26,15 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -55,6 +66,16 @@ public final class ModelPackManager {
      * Scriptキャッシュ
      */
     private final Map<String, String> scriptCache = new ConcurrentHashMap<>(64);
+    /**
+     * 読み込み中のモデル, 同じファイルを複数スレッドで読み込まないように
+     */
+    private final Map<String, CompletableFuture<IModelNGT>> loadingModels = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> loadingScripts = new ConcurrentHashMap<>();
+    /**
+     * 遅延読み込みするModelObject, 使用されていないモデルを破棄するため
+     */
+    private final Queue<ModelObject> lazyModels = new ConcurrentLinkedQueue<>();
+    private ExecutorService modelLoader;
 
     private ModelPackManager() {
     }
@@ -77,9 +98,33 @@ public final class ModelPackManager {
      * @return モデル名
      */
     public String registerModelset(String type, String json) {
-        TypeEntry entry = this.typeMap.get(type);
-        ModelConfig cfg = (ModelConfig) NGTJson.getObjectFromJson(json, entry.cfgClass);
+        return this.registerModelset(type, this.parseConfig(type, json));
+    }
+
+    /**
+     * jsonからConfigを生成, init()は呼ばない
+     */
+    public ModelConfig parseConfig(String type, String json) {
+        return (ModelConfig) NGTJson.getObjectFromJson(json, this.getConfigClass(type));
+    }
+
+    public Class<? extends ModelConfig> getConfigClass(String type) {
+        return this.typeMap.get(type).cfgClass;
+    }
+
+    /**
+     * @param cfg init()前のConfig
+     */
+    public String registerModelset(String type, ModelConfig cfg) {
         cfg.init();
+        return this.addModelSet(type, cfg);
+    }
+
+    /**
+     * @param cfg init()済みのConfig
+     */
+    public String addModelSet(String type, ModelConfig cfg) {
+        TypeEntry entry = this.typeMap.get(type);
         ModelSetBase set = this.getNewModelSet(entry, new Class[]{entry.cfgClass}, cfg);
 //		NGTLog.debug("Register model : " + cfg.getName() + "(" + type + ")");
         this.allModelSetMap.get(type).put(cfg.getName(), set);
@@ -166,10 +211,82 @@ public final class ModelPackManager {
             return this.loadJavaModel(modelName, addModelMap);
         }
 
-        if (addModelMap && this.modelFileMap.containsKey(modelName)) {
-            return this.modelFileMap.get(modelName);
+        if (addModelMap) {
+            IModelNGT model = this.modelFileMap.get(modelName);
+            if (model != null) {
+                return model;
+            }
+
+            return loadOnce(this.loadingModels, modelName, () -> {
+                IModelNGT loaded = this.modelFileMap.get(modelName);
+                if (loaded == null) {
+                    loaded = this.loadModelFile(modelName, drawMode, cfg);
+                    this.modelFileMap.put(modelName, loaded);
+                }
+                return loaded;
+            });
+        }
+
+        return this.loadModelFile(modelName, drawMode, cfg);
+    }
+
+    /**
+     * 別スレッドで{@link #loadModel}を実行
+     */
+    @SideOnly(Side.CLIENT)
+    public CompletableFuture<IModelNGT> loadModelAsync(String modelName, int drawMode, ModelConfig cfg) {
+        IModelNGT model = this.modelFileMap.get(modelName);
+        if (model != null) {
+            return CompletableFuture.completedFuture(model);
+        }
+        return CompletableFuture.supplyAsync(() -> this.loadModel(modelName, drawMode, true, cfg), this.getModelLoader());
+    }
+
+    private synchronized ExecutorService getModelLoader() {
+        if (this.modelLoader == null) {
+            AtomicInteger count = new AtomicInteger();
+            this.modelLoader = Executors.newFixedThreadPool(Math.max(Runtime.getRuntime().availableProcessors() / 2, 1), r -> {
+                Thread thread = new Thread(r, "RTM Model Loader-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        return this.modelLoader;
+    }
+
+    @SideOnly(Side.CLIENT)
+    public void addLazyModel(ModelObject model) {
+        this.lazyModels.add(model);
+    }
+
+    /**
+     * 他のModelObjectが同じモデルを使用中でも, 再読み込みされるまではそのまま使われる
+     */
+    @SideOnly(Side.CLIENT)
+    public void unloadModelFile(String modelName, IModelNGT model) {
+        this.modelFileMap.remove(modelName, model);
+    }
+
+    /**
+     * {@link RTMConfig#modelIdleUnloadTime}以上描画されていないモデルを破棄
+     */
+    @SideOnly(Side.CLIENT)
+    public void unloadIdleModels() {
+        if (RTMConfig.modelIdleUnloadTime <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long idleTime = RTMConfig.modelIdleUnloadTime * 60000L;
+        long count = this.lazyModels.stream().filter(model -> model.unloadIfIdle(now, idleTime)).count();
+        if (count > 0) {
+            NGTLog.debug("[ModelPack] Unload %d idle models", count);
         }
+    }
 
+    @SideOnly(Side.CLIENT)
+    private IModelNGT loadModelFile(String modelName, int drawMode, ModelConfig cfg) {
         VecAccuracy accuracy = (cfg.accuracy == null || cfg.accuracy.equals(VecAccuracy.MEDIUM.toString())) ? VecAccuracy.MEDIUM : VecAccuracy.LOW;
         String resource = "models/" + modelName;
         IModelNGT model;
@@ -191,11 +308,33 @@ public final class ModelPackManager {
             throw new ModelPackException("Can't find model file", cfg.getName());
         }
 
-        if (addModelMap) {
-            this.modelFileMap.put(modelName, model);
+        return model;
+    }
+
+    /**
+     * 同じkeyの読み込みが実行中なら, その完了を待って結果を使う
+     */
+    private static <T> T loadOnce(Map<String, CompletableFuture<T>> loading, String key, Supplier<T> loader) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> prev = loading.putIfAbsent(key, future);
+        if (prev != null) {
+            try {
+                return prev.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
         }
 
-        return model;
+        try {
+            T value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
     }
 
     @SideOnly(Side.CLIENT)
@@ -242,11 +381,18 @@ public final class ModelPackManager {
     }
 
     public String getScript(String fileName) {
-        try {
-            return this.loadScript(fileName);
-        } catch (IOException e) {
-            throw new ModelPackException("Failed to load script", fileName, e);
+        String script = this.scriptCache.get(fileName);
+        if (script != null) {
+            return script;
         }
+
+        return loadOnce(this.loadingScripts, fileName, () -> {
+            try {
+                return this.loadScript(fileName);
+            } catch (IOException e) {
+                throw new ModelPackException("Failed to load script", fileName, e);
+            }
+        });
     }
 
     private String loadScript(String fileName) throws IOException {
@@ -1,60 +1,286 @@
 package jp.ngt.rtm.modelpack;
 
+import jp.kaiz.kaizpatch.fixrtm.caching.ModelPackManifest;
+import jp.ngt.ngtlib.io.AssetIndex;
 import jp.ngt.ngtlib.io.NGTFileLoader;
 import jp.ngt.ngtlib.io.NGTLog;
 import jp.ngt.rtm.RTMConfig;
 import jp.ngt.rtm.RTMCore;
 import jp.ngt.rtm.network.PacketModelPack;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
+/**
+ * サーバーのモデルパックをクライアントへ送る<br>
+ * マニフェストを送り, クライアントが要求したものだけをプレイヤーごとに送る.
+ * 送信速度は全プレイヤー合計で{@link RTMConfig#modelPackUploadRate}まで
+ */
 public class ModelPackUploadThread extends Thread {
-    private final ByteBuffer buffer = ByteBuffer.allocate(RTMCore.PacketSize);
+    public static final int CHUNK_SIZE = 32 * 1024;
 
-    public ModelPackUploadThread() {
+    private static ModelPackUploadThread instance;
+    private static final String DOWNLOADED_PREFIX = "Temp#";
+
+    private static List<ModelPackEntry> manifest;
+    private static Map<String, File> packFiles;
+    /**
+     * マニフェストを作った時の一覧, モデルパックの受信などで作り直されたらマニフェストも作り直す
+     */
+    private static AssetIndex manifestIndex;
+
+    private final TokenBucket bucket = new TokenBucket(RTMConfig.modelPackUploadRate * 1024L);
+    /**
+     * 送信中のプレイヤー, 順番に1チャンクずつ送る
+     */
+    private final Map<UUID, Session> sessions = new LinkedHashMap<>();
+
+    private ModelPackUploadThread() {
         super("RTM ModelPack Upload");
+        this.setDaemon(true);
+    }
+
+    private static synchronized ModelPackUploadThread getInstance() {
+        if (instance == null) {
+            instance = new ModelPackUploadThread();
+            instance.start();
+        }
+        return instance;
+    }
+
+    /**
+     * 配布するモデルパックのマニフェストを送る, 配布しない設定なら空
+     */
+    public static void sendManifest(EntityPlayerMP player) {
+        List<ModelPackEntry> entries = RTMConfig.useServerModelPack ? getManifest() : Collections.emptyList();
+        RTMCore.NETWORK_WRAPPER.sendTo(PacketModelPack.manifest(entries), player);
+    }
+
+    /**
+     * modsフォルダの"ModelPack_*.zip"と, サーバーから受信した"Temp#ModelPack_*.zip"(元の名前で配布)<br>
+     * Zipはファイル一覧には含まれないので, 一覧が保持しているZipから探す
+     */
+    private static synchronized List<ModelPackEntry> getManifest() {
+        AssetIndex index = NGTFileLoader.getAssetIndex();
+        if (manifest == null || manifestIndex != index) {
+            Map<String, File> files = new LinkedHashMap<>();
+            for (AssetIndex.Archive archive : index.getArchives()) {
+                String name = archive.file.getName();
+                boolean downloaded = name.startsWith(DOWNLOADED_PREFIX);
+                if (downloaded) {
+                    name = name.substring(DOWNLOADED_PREFIX.length());
+                }
+                if (!name.startsWith("ModelPack_") || !name.endsWith(".zip")) {
+                    continue;
+                }
+
+                //同名のものは受信したものより手元のものを優先
+                if (downloaded) {
+                    files.putIfAbsent(name, archive.file);
+                } else {
+                    files.put(name, archive.file);
+                }
+            }
+            packFiles = files;
+            //SHA-1は長さと更新日時が変わらない限りキャッシュされたものを使う
+            manifest = Collections.unmodifiableList(files.entrySet().stream()
+                    .map(entry -> new ModelPackEntry(entry.getKey(), entry.getValue().length(), ModelPackManifest.sha1Of(entry.getValue())))
+                    .collect(Collectors.toList()));
+            manifestIndex = index;
+            NGTLog.debug("[RTM](UploadThread) %d ModelPacks to upload", manifest.size());
+        }
+        return manifest;
     }
 
-    public static void startThread() {
+    /**
+     * クライアントからの要求, 同じプレイヤーの送信中のものは置き換える
+     */
+    public static void request(EntityPlayerMP player, List<ModelPackEntry> entries, long[] offsets) {
         if (!RTMConfig.useServerModelPack) {
             return;
         }
-        ModelPackUploadThread thread = new ModelPackUploadThread();
-        thread.start();
+
+        List<ModelPackEntry> current;
+        Map<String, File> files;
+        synchronized (ModelPackUploadThread.class) {
+            current = getManifest();
+            files = packFiles;
+        }
+
+        Session session = new Session(player);
+        for (int i = 0; i < entries.size(); ++i) {
+            ModelPackEntry requested = entries.get(i);
+            ModelPackEntry entry = current.stream().filter(e -> e.name.equals(requested.name)).findFirst().orElse(null);
+            if (entry == null) {
+                continue;
+            }
+            //マニフェストを送った後に変わっていれば最初から
+            long offset = entry.sha1.equals(requested.sha1) ? Math.max(0L, Math.min(offsets[i], entry.size)) : 0L;
+            session.queue.add(new Transfer(entry, files.get(entry.name), offset));
+        }
+
+        NGTLog.debug("[RTM](UploadThread) %s requested %d ModelPacks", player.getCommandSenderName(), session.queue.size());
+        getInstance().addSession(session);
+    }
+
+    private synchronized void addSession(Session session) {
+        Session old = this.sessions.put(session.player.getUniqueID(), session);
+        if (old != null) {
+            old.close();
+        }
+        this.notifyAll();
+    }
+
+    /**
+     * 先頭のセッションを取り出して末尾に回す
+     */
+    private synchronized Session nextSession() throws InterruptedException {
+        while (this.sessions.isEmpty()) {
+            this.wait();
+        }
+        Iterator<Session> iterator = this.sessions.values().iterator();
+        Session session = iterator.next();
+        iterator.remove();
+        this.sessions.put(session.player.getUniqueID(), session);
+        return session;
+    }
+
+    private synchronized void removeSession(Session session) {
+        this.sessions.remove(session.player.getUniqueID(), session);
+        session.close();
     }
 
     @Override
     public void run() {
         NGTLog.debug("[RTM](UploadThread) Start uploading ModelPack");
-        List<File> fileList = NGTFileLoader.findFile((file) -> {
-            String name = file.getName();
-            return name.startsWith("ModelPack_") && name.endsWith(".zip");
-        });
-        fileList.forEach(file -> {
+        try {
+            while (true) {
+                Session session = this.nextSession();
+                if (!isOnline(session.player)) {
+                    //再接続時にクライアントが続きから要求する
+                    NGTLog.debug("[RTM](UploadThread) %s disconnected", session.player.getCommandSenderName());
+                    this.removeSession(session);
+                    continue;
+                }
+
+                if (!this.send(session)) {
+                    RTMCore.NETWORK_WRAPPER.sendTo(PacketModelPack.finish(), session.player);
+                    NGTLog.debug("[RTM](UploadThread) Finish uploading to %s", session.player.getCommandSenderName());
+                    this.removeSession(session);
+                }
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    /**
+     * 次のチャンクを送る, 置き換えられたセッションなら何もしない
+     *
+     * @return 全て送り終わっていればfalse
+     */
+    private boolean send(Session session) throws InterruptedException {
+        synchronized (session) {
+            if (session.closed) {
+                return true;
+            }
+
+            Transfer transfer = session.queue.peek();
+            if (transfer == null) {
+                return false;
+            }
+
             try {
-                NGTLog.debug("[RTM](UploadThread) Start uploading " + file.getName());
-                RTMCore.NETWORK_WRAPPER.sendToAll(new PacketModelPack("start_file:" + file.getName(), 0, ByteBuffer.allocate(RTMCore.PacketSize)));
-
-                @SuppressWarnings("resource")
-                FileChannel channel = new FileInputStream(file).getChannel();
-                long size = channel.size();
-                while (channel.read(this.buffer) >= 0) {
-                    this.buffer.flip();
-                    RTMCore.NETWORK_WRAPPER.sendToAll(new PacketModelPack(file.getName(), size, this.buffer));
-                    this.buffer.clear();
-                    sleep(100);
+                if (this.sendChunk(session, transfer)) {
+                    transfer.close();
+                    session.queue.poll();
                 }
-                channel.close();
-            } catch (IOException | InterruptedException e) {
+            } catch (IOException e) {
+                NGTLog.debug("[RTM](UploadThread) Can't read " + transfer.entry.name);
                 e.printStackTrace();
+                transfer.close();
+                session.queue.poll();
             }
-        });
-        RTMCore.NETWORK_WRAPPER.sendToAll(new PacketModelPack("finish", 0, ByteBuffer.allocate(RTMCore.PacketSize)));
-        NGTLog.debug("[RTM](UploadThread) Finish uploading ModelPack");
+            return true;
+        }
+    }
+
+    /**
+     * @return 最後のチャンクを送ったらtrue
+     */
+    private boolean sendChunk(Session session, Transfer transfer) throws IOException, InterruptedException {
+        if (transfer.channel == null) {
+            transfer.channel = FileChannel.open(transfer.file.toPath(), StandardOpenOption.READ);
+            NGTLog.debug("[RTM](UploadThread) Start uploading %s to %s from %d", transfer.entry.name, session.player.getCommandSenderName(), transfer.offset);
+        }
+
+        int length = (int) Math.min(CHUNK_SIZE, transfer.entry.size - transfer.offset);
+        this.bucket.acquire(length);
+        PacketModelPack packet = PacketModelPack.chunk(transfer.entry.name, transfer.entry.size, transfer.offset, transfer.channel, length);
+        try {
+            RTMCore.NETWORK_WRAPPER.sendTo(packet, session.player);
+        } finally {
+            packet.release();
+        }
+        transfer.offset += length;
+        return length == 0 || transfer.offset >= transfer.entry.size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean isOnline(EntityPlayerMP player) {
+        MinecraftServer server = MinecraftServer.getServer();
+        return server != null && ((List<EntityPlayer>) server.getConfigurationManager().playerEntityList).contains(player);
+    }
+
+    private static final class Session {
+        private final EntityPlayerMP player;
+        private final Deque<Transfer> queue = new ArrayDeque<>();
+        private boolean closed;
+
+        private Session(EntityPlayerMP player) {
+            this.player = player;
+        }
+
+        private synchronized void close() {
+            this.closed = true;
+            this.queue.forEach(Transfer::close);
+        }
+    }
+
+    private static final class Transfer {
+        private final ModelPackEntry entry;
+        private final File file;
+        private long offset;
+        private FileChannel channel;
+
+        private Transfer(ModelPackEntry entry, File file, long offset) {
+            this.entry = entry;
+            this.file = Objects.requireNonNull(file);
+            this.offset = offset;
+        }
+
+        private void close() {
+            if (this.channel != null) {
+                try {
+                    this.channel.close();
+                } catch (IOException ignored) {
+                }
+                this.channel = null;
+            }
+        }
     }
-}
\ No newline at end of file
+}
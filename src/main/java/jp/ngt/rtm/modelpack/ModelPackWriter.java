@@ -1,140 +1,240 @@
 package jp.ngt.rtm.modelpack;
 
+import jp.kaiz.kaizpatch.fixrtm.caching.ModelPackManifest;
+import jp.kaiz.kaizpatch.fixrtm.util.DigestUtils;
+import jp.ngt.ngtlib.io.IProgressWatcher;
 import jp.ngt.ngtlib.io.NGTFileLoader;
 import jp.ngt.ngtlib.io.NGTLog;
+import jp.ngt.rtm.RTMCore;
+import jp.ngt.rtm.network.PacketModelPackRequest;
 
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * サーバーから受信したモデルパックの書き込み<br>
+ * "Temp#名前.SHA-1.part"に書き込み, 全て受信した後にSHA-1を確認して"Temp#名前"に置き換える.
+ * 途中で切断された場合, .partの続きから受信する.
+ * 受信中のファイルはそれぞれ1つのFileChannelを開いたまま, チャンクの位置に直接書き込む
+ */
 public class ModelPackWriter {
-    private final ModelPackDownloadThread thread;
+    private static final String PREFIX = "Temp#";
+    private static final String PART_SUFFIX = ".part";
+
     private final File modsDir;
-    public boolean finish;
+    private final Map<String, Download> downloads = new LinkedHashMap<>();
+    /**
+     * マニフェストは接続待ちの間に複数回届く
+     */
+    private boolean requested;
+    public volatile boolean finish;
+
+    private IProgressWatcher watcher;
+    private long receivedBytes;
+    private Download current;
 
     public ModelPackWriter() {
-        this.thread = null;
-        //this.thread = new ModelPackDownloadThread(this);
-        //this.thread.start();
         this.modsDir = NGTFileLoader.getModsDir().get(0);
         this.finish = false;
     }
 
-    public void onPacket(String par1, long par2, byte[] par3) {
-        if (par1.startsWith("start_file")) {
-            int index = par1.indexOf(":");
-            this.deleteModelPack(par1.substring(index + 1));
-        } else if (par1.equals("finish")) {
+    /**
+     * 手元に無い, または内容が異なるモデルパックのみ要求
+     */
+    public synchronized void onManifest(List<ModelPackEntry> entries) {
+        if (this.requested) {
+            return;
+        }
+        this.requested = true;
+
+        List<ModelPackEntry> needed = new ArrayList<>();
+        long[] offsets = new long[entries.size()];
+        for (ModelPackEntry entry : entries) {
+            File file = new File(this.modsDir, PREFIX + entry.name);
+            if (file.isFile() && file.length() == entry.size && ModelPackManifest.sha1Of(file).equals(entry.sha1)) {
+                continue;
+            }
+
+            File part = new File(this.modsDir, PREFIX + entry.name + "." + entry.sha1 + PART_SUFFIX);
+            this.deleteOldParts(entry.name, part);
+            long offset = part.isFile() ? Math.min(part.length(), entry.size) : 0L;
+            offset -= offset % ModelPackUploadThread.CHUNK_SIZE;//書きかけのチャンクは受信し直す
+            offsets[needed.size()] = offset;
+            needed.add(entry);
+            this.downloads.put(entry.name, new Download(entry, part, offset));
+        }
+
+        long totalBytes = this.downloads.values().stream().mapToLong(download -> download.entry.size).sum();
+        this.receivedBytes = this.downloads.values().stream().mapToLong(download -> download.received).sum();
+        if (this.watcher != null) {
+            this.watcher.setMaxValue(0, toKB(totalBytes), String.format("Downloading %d ModelPacks", needed.size()));
+            this.watcher.setValue(0, toKB(this.receivedBytes), "");
+        }
+
+        NGTLog.debug("[RTM](Client) Download %d of %d ModelPacks", needed.size(), entries.size());
+        if (needed.isEmpty()) {
             this.finish = true;
         } else {
-            this.writeModelPack(par1, par2, ByteBuffer.wrap(par3));
+            RTMCore.NETWORK_WRAPPER.sendToServer(new PacketModelPackRequest(needed, Arrays.copyOf(offsets, needed.size())));
         }
-
-		/*if(par1.startsWith("start_file"))
-		{
-			int index = par1.indexOf(":");
-			this.startWriting(par1.substring(index + 1));
-		}
-		else if(par1.equals("end_file"))
-		{
-			this.endWriting();
-		}
-		else if(par1.equals("finish"))
-		{
-			this.finishWriting();
-		}
-		else
-		{
-			this.writeBytes(par2, par3);
-		}*/
     }
 
     /**
-     * モデルパックを書き込み(追記)
+     * 別のバージョンの受信途中のファイルを消去
      */
-    public void writeModelPack(String par1, long par2, ByteBuffer par3) {
-        try {
-            @SuppressWarnings("resource")
-            FileChannel channel = new FileOutputStream(new File(this.modsDir, "Temp#" + par1)).getChannel();
-            channel.write(par3);
-            channel.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+    private void deleteOldParts(String name, File current) {
+        String prefix = PREFIX + name + ".";
+        File[] files = this.modsDir.listFiles((dir, fileName) -> fileName.startsWith(prefix) && fileName.endsWith(PART_SUFFIX));
+        if (files != null) {
+            Arrays.stream(files).filter(file -> !file.equals(current)).forEach(File::delete);
         }
     }
 
     /**
-     * モデルパックが存在する場合は消去
+     * 進捗を表示する, マニフェストを受け取る前に設定すること
      */
-    public void deleteModelPack(String par1) {
-        String name = "Temp#" + par1;
-        File file = new File(this.modsDir, name);
-        if (file.exists()) {
-            file.delete();
-            NGTLog.debug("[RTM](Client) Delete ModelPack : " + name);
-        }
+    public synchronized void setProgressWatcher(IProgressWatcher watcher) {
+        this.watcher = watcher;
     }
 
-    public synchronized void startWriting(String par1Name) {
-        while (this.thread.writingStatus == 1 || this.thread.writingStatus == 2) {
-            try {
-                NGTLog.debug("wait (start writing)");
-                this.wait();
-            } catch (InterruptedException ignored) {
-            }
+    /**
+     * モデルパックを書き込み(offsetの位置に)
+     */
+    public synchronized void onChunk(String name, long size, long offset, ByteBuffer bytes) {
+        Download download = this.downloads.get(name);
+        if (download == null || download.entry.size != size) {
+            return;
         }
 
-        NGTLog.debug("start writing");
-        this.thread.writingStatus = 1;
-        this.thread.fileName = "Temp_" + par1Name;
-    }
-
-    public synchronized void writeBytes(long par2, ByteBuffer par3) {
-        while (this.thread.writingStatus == 0 || this.thread.writingStatus == 1) {
-            try {
-                NGTLog.debug("wait (write bytes)");
-                this.wait();
-            } catch (InterruptedException ignored) {
+        try {
+            if (download.channel == null) {
+                download.channel = FileChannel.open(download.part.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE);
             }
-        }
 
-        par3.position(0);
+            long position = offset;
+            while (bytes.hasRemaining()) {
+                position += download.channel.write(bytes, position);
+            }
 
-        try {
-            this.thread.channel.write(par3);
+            if (position > download.received) {
+                this.receivedBytes += position - download.received;
+                download.received = position;
+            }
+            if (download.received >= download.entry.size) {
+                download.close();
+            }
         } catch (IOException e) {
             e.printStackTrace();
+            download.close();
         }
+        this.updateProgress(download);
     }
 
-    public synchronized void endWriting() {
-        while (this.thread.writingStatus == 0 || this.thread.writingStatus == 1) {
-            try {
-                NGTLog.debug("wait (end writing)");
-                this.wait();
-            } catch (InterruptedException ignored) {
-            }
+    private void updateProgress(Download download) {
+        if (this.watcher == null) {
+            return;
         }
 
-        NGTLog.debug("end writing");
-        this.thread.writingStatus = 0;
+        if (this.current != download) {
+            this.current = download;
+            this.watcher.setMaxValue(1, toKB(download.entry.size), download.entry.name);
+        }
+        this.watcher.setValue(0, toKB(this.receivedBytes), "");
+        this.watcher.setValue(1, toKB(download.received), "");
+    }
+
+    private static int toKB(long bytes) {
+        return (int) (bytes >> 10);
     }
 
-    public synchronized void finishWriting() {
-        while (this.thread.writingStatus == 1 || this.thread.writingStatus == 2) {
+    public void onFinish() {
+        this.finish = true;
+    }
+
+    /**
+     * 切断された場合, 再接続時に改めてマニフェストを受け取り続きから要求する
+     */
+    public synchronized void onDisconnect() {
+        if (!this.finish) {
+            this.requested = false;
+            this.downloads.values().forEach(Download::close);
+            this.downloads.clear();
+            this.current = null;
+        }
+    }
+
+    /**
+     * 受信したモデルパックのSHA-1を確認して置き換える
+     */
+    public synchronized void activate() {
+        for (Download download : this.downloads.values()) {
+            download.close();
+            if (download.received < download.entry.size) {
+                NGTLog.debug("[RTM](Client) ModelPack is incomplete : " + download.entry.name);
+                continue;
+            }
+
             try {
-                this.wait();
-            } catch (InterruptedException ignored) {
+                String sha1;
+                try (InputStream is = new BufferedInputStream(new FileInputStream(download.part))) {
+                    sha1 = DigestUtils.INSTANCE.sha1Hex(is);
+                }
+
+                if (!sha1.equals(download.entry.sha1)) {
+                    NGTLog.debug("[RTM](Client) SHA-1 mismatch, discard ModelPack : " + download.entry.name);
+                    download.part.delete();
+                    continue;
+                }
+
+                File file = new File(this.modsDir, PREFIX + download.entry.name);
+                NGTFileLoader.releaseArchive(file);
+                if (file.exists() && !file.delete()) {
+                    throw new IOException("Can't delete " + file);
+                }
+                if (!download.part.renameTo(file)) {
+                    throw new IOException("Can't rename " + download.part);
+                }
+                ModelPackManifest.invalidate(file);
+                NGTLog.debug("[RTM](Client) Update ModelPack : " + file.getName());
+            } catch (IOException e) {
+                e.printStackTrace();
             }
         }
-
-        NGTLog.debug("finish writing");
-        this.thread.writingStatus = 3;
+        this.downloads.clear();
     }
 
-    public synchronized void resume() {
-        this.notify();
+    private static final class Download {
+        private final ModelPackEntry entry;
+        private final File part;
+        private long received;
+        private FileChannel channel;
+
+        private Download(ModelPackEntry entry, File part, long received) {
+            this.entry = entry;
+            this.part = part;
+            this.received = received;
+        }
+
+        private void close() {
+            if (this.channel != null) {
+                try {
+                    this.channel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                this.channel = null;
+            }
+        }
     }
-}
\ No newline at end of file
+}
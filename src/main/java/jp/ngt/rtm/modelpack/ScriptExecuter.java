@@ -1,5 +1,6 @@
 package jp.ngt.rtm.modelpack;
 
+import jp.ngt.ngtlib.io.ScriptFunctionHandle;
 import jp.ngt.ngtlib.io.ScriptUtil;
 import jp.ngt.ngtlib.util.NGTUtil;
 import jp.ngt.rtm.modelpack.modelset.ModelSetBase;
@@ -15,6 +16,8 @@ import net.minecraft.util.MathHelper;
 import net.minecraft.world.World;
 
 public class ScriptExecuter implements ICommandSender {
+    private static final ScriptFunctionHandle<OnUpdate> ON_UPDATE = ScriptFunctionHandle.of(OnUpdate.class);
+
     private IModelSelector caller;
     public long count;
 
@@ -28,10 +31,28 @@ public class ScriptExecuter implements ICommandSender {
 
     public void execScript(IModelSelector selector) {
         this.caller = selector;
-        this.callMethod(selector, "onUpdate", selector, this);
+        ModelSetBase set = selector.getModelSet();
+        OnUpdate func = ON_UPDATE.get(set.serverSE);
+        if (func != null) {
+            String name = set.getConfig().getName();
+            if (!ScriptProfiler.shouldSkipUpdate(name, this.count)) {
+                long time = ScriptProfiler.start();
+                try {
+                    func.onUpdate(selector, this);
+                } catch (Exception e) {
+                    ScriptProfiler.onError(name, "onUpdate");
+                    e.printStackTrace();
+                }
+                ScriptProfiler.end(name, "onUpdate", time);
+            }
+        }
         ++this.count;
     }
 
+    public interface OnUpdate {
+        void onUpdate(Object selector, ScriptExecuter executer);
+    }
+
     public void execCommand(String command) {
         MinecraftServer server = NGTUtil.getServer();
 
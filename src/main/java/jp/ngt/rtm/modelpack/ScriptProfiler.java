@@ -0,0 +1,170 @@
+package jp.ngt.rtm.modelpack;
+
+import jp.ngt.ngtlib.io.NGTLog;
+import jp.ngt.rtm.RTMConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * モデルごとのスクリプト関数の実行時間の計測<br>
+ * 計測は"/rtm scriptprofile"で開始, 1tickあたりの予算を超えたモデルのonUpdateは間引く
+ */
+public final class ScriptProfiler {
+    /**
+     * p99算出用に保持する直近の実行時間の数
+     */
+    private static final int SAMPLE_SIZE = 512;
+    private static final String ON_UPDATE = "onUpdate";
+
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+    /**
+     * 現在のtickでのモデルごとのonUpdateの合計時間(ns), 描画スレッドとサーバースレッドから加算される
+     */
+    private static final Map<String, LongAdder> TICK_TIME = new ConcurrentHashMap<>();
+    private static final Set<String> THROTTLED = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private static volatile boolean enabled;
+    private static int tickCount;
+
+    private ScriptProfiler() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean par1) {
+        enabled = par1;
+    }
+
+    public static void reset() {
+        ENTRIES.clear();
+    }
+
+    /**
+     * @return 計測しない場合は0
+     */
+    public static long start() {
+        return (enabled || RTMConfig.scriptTickBudget > 0) ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * @param startTime {@link #start()}の戻り値
+     */
+    public static void end(String modelName, String func, long startTime) {
+        if (startTime == 0L) {
+            return;
+        }
+
+        long time = System.nanoTime() - startTime;
+        if (enabled) {
+            ENTRIES.computeIfAbsent(modelName + "#" + func, key -> new Entry(modelName, func)).add(time);
+        }
+
+        if (ON_UPDATE.equals(func)) {
+            TICK_TIME.computeIfAbsent(modelName, key -> new LongAdder()).add(time);
+        }
+    }
+
+    public static void onError(String modelName, String func) {
+        if (enabled) {
+            ENTRIES.computeIfAbsent(modelName + "#" + func, key -> new Entry(modelName, func)).addError();
+        }
+    }
+
+    /**
+     * 予算超過中のモデルは{@link RTMConfig#scriptThrottleInterval}tickに1回だけonUpdateを実行
+     */
+    public static boolean shouldSkipUpdate(String modelName, long count) {
+        int interval = RTMConfig.scriptThrottleInterval;
+        return interval > 1 && THROTTLED.contains(modelName) && count % interval != 0L;
+    }
+
+    /**
+     * Serverのtick終了時
+     */
+    public static void onTickEnd() {
+        long budget = (long) RTMConfig.scriptTickBudget * 1000L;
+        if (budget > 0L) {
+            TICK_TIME.forEach((name, adder) -> {
+                long time = adder.sumThenReset();
+                if (time > budget) {
+                    if (THROTTLED.add(name)) {
+                        NGTLog.debug("[ScriptProfiler] Throttle onUpdate of %s (%d us/tick)", name, time / 1000L);
+                    }
+                } else if (time < (budget >> 1)) {
+                    THROTTLED.remove(name);
+                }
+            });
+        } else if (!THROTTLED.isEmpty()) {
+            THROTTLED.clear();
+        }
+
+        int interval = RTMConfig.scriptProfileLogInterval * 20;
+        if (enabled && interval > 0 && ++tickCount >= interval) {
+            tickCount = 0;
+            getReport(10).forEach(NGTLog::debug);
+        }
+    }
+
+    /**
+     * 合計時間の大きい順
+     */
+    public static List<String> getReport(int max) {
+        List<Entry> list = new ArrayList<>(ENTRIES.values());
+        list.sort(Comparator.comparingLong((Entry entry) -> entry.totalTime).reversed());
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("[ScriptProfiler] %d functions, %d throttled", list.size(), THROTTLED.size()));
+        list.stream().limit(max).forEach(entry -> lines.add(entry.toString()));
+        return lines;
+    }
+
+    private static final class Entry {
+        private final String modelName;
+        private final String func;
+        private final long[] samples = new long[SAMPLE_SIZE];
+        private long count;
+        private long totalTime;
+        private long errorCount;
+
+        private Entry(String modelName, String func) {
+            this.modelName = modelName;
+            this.func = func;
+        }
+
+        private synchronized void add(long time) {
+            this.samples[(int) (this.count % SAMPLE_SIZE)] = time;
+            ++this.count;
+            this.totalTime += time;
+        }
+
+        private synchronized void addError() {
+            ++this.errorCount;
+        }
+
+        private synchronized long getP99() {
+            int size = (int) Math.min(this.count, SAMPLE_SIZE);
+            if (size == 0) {
+                return 0L;
+            }
+            long[] sorted = Arrays.copyOf(this.samples, size);
+            Arrays.sort(sorted);
+            return sorted[Math.min((int) (size * 0.99D), size - 1)];
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s %s: calls=%d, total=%.2fms, avg=%dns, p99=%dns, errors=%d",
+                    this.modelName, this.func, this.count, (double) this.totalTime / 1000000.0D,
+                    this.count > 0 ? this.totalTime / this.count : 0L, this.getP99(), this.errorCount);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package jp.ngt.rtm.modelpack;
+
+/**
+ * 送信量の制限, 1秒あたりrateバイトまで<br>
+ * 最大で1秒分まで溜めておける
+ */
+final class TokenBucket {
+    private final long rate;
+    private final long capacity;
+    private long tokens;
+    private long lastTime;
+
+    /**
+     * @param rate バイト/秒
+     */
+    TokenBucket(long rate) {
+        this.rate = rate;
+        this.capacity = rate;
+        this.tokens = rate;
+        this.lastTime = System.nanoTime();
+    }
+
+    /**
+     * bytes分の空きができるまで待つ
+     */
+    synchronized void acquire(int bytes) throws InterruptedException {
+        //1秒分より大きい場合は借りる
+        long needed = Math.min(bytes, this.capacity);
+        this.refill();
+        while (this.tokens < needed) {
+            long wait = (needed - this.tokens) * 1000000000L / this.rate;
+            this.wait(wait / 1000000L, (int) (wait % 1000000L));
+            this.refill();
+        }
+        this.tokens -= bytes;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        long elapsed = now - this.lastTime;
+        if (elapsed >= 1000000000L) {
+            this.tokens = this.capacity;
+            this.lastTime = now;
+            return;
+        }
+
+        long added = elapsed * this.rate / 1000000000L;
+        if (added > 0) {
+            this.tokens = Math.min(this.tokens + added, this.capacity);
+            //切り捨てた分は次回に持ち越す
+            this.lastTime += added * 1000000000L / this.rate;
+        }
+    }
+}
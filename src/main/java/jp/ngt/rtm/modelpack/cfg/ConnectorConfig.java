@@ -1,5 +1,7 @@
 package jp.ngt.rtm.modelpack.cfg;
 
+import java.util.Collections;
+import java.util.List;
 
 public class ConnectorConfig extends ModelConfig implements IConfigWithType {
     public static final String TYPE = "ModelConnector";
@@ -34,6 +36,11 @@ public class ConnectorConfig extends ModelConfig implements IConfigWithType {
         return TYPE;
     }
 
+    @Override
+    public List<ModelSource> getModelSources() {
+        return Collections.singletonList(this.model);
+    }
+
     @Override
     public String getSubType() {
         return this.connectorType;
@@ -1,5 +1,8 @@
 package jp.ngt.rtm.modelpack.cfg;
 
+import java.util.Collections;
+import java.util.List;
+
 public class ContainerConfig extends ModelConfig {
     public static final String TYPE = "ModelContainer";
 
@@ -56,6 +59,11 @@ public class ContainerConfig extends ModelConfig {
         return TYPE;
     }
 
+    @Override
+    public List<String> getModelFiles() {
+        return Collections.singletonList(this.containerModel);
+    }
+
     public static ContainerConfig getDummy() {
         ContainerConfig cfg = new ContainerConfig();
         cfg.containerName = "dummy";
@@ -1,5 +1,8 @@
 package jp.ngt.rtm.modelpack.cfg;
 
+import java.util.Collections;
+import java.util.List;
+
 public class FirearmConfig extends ModelConfig {
     public static final String TYPE = "ModelFirearm";
 
@@ -127,6 +130,11 @@ public class FirearmConfig extends ModelConfig {
         return TYPE;
     }
 
+    @Override
+    public List<String> getModelFiles() {
+        return Collections.singletonList(this.firearmModel);
+    }
+
     public static FirearmConfig getDummyConfig() {
         FirearmConfig config = new FirearmConfig();
         config.firearmName = "DummyFirearm";
@@ -1,5 +1,8 @@
 package jp.ngt.rtm.modelpack.cfg;
 
+import java.util.Collections;
+import java.util.List;
+
 public class MachineConfig extends ModelConfig implements IConfigWithType {
     public static final String TYPE = "ModelMachine";
 
@@ -42,6 +45,11 @@ public class MachineConfig extends ModelConfig implements IConfigWithType {
         return TYPE;
     }
 
+    @Override
+    public List<ModelSource> getModelSources() {
+        return Collections.singletonList(this.model);
+    }
+
     @Override
     public String getSubType() {
         return this.machineType;
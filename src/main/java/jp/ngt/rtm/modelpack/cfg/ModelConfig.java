@@ -1,5 +1,10 @@
 package jp.ngt.rtm.modelpack.cfg;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 public abstract class ModelConfig extends ResourceConfig {
     /**
@@ -65,6 +70,37 @@ public abstract class ModelConfig extends ResourceConfig {
      */
     public abstract String getModelType();
 
+    /**
+     * 先行読み込み用, init()後に呼ぶ
+     */
+    public List<ModelSource> getModelSources() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * 先行読み込み用, 使用するモデルファイル (null含む)
+     */
+    public List<String> getModelFiles() {
+        return this.getModelSources().stream()
+                .filter(Objects::nonNull)
+                .map(source -> source.modelFile)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 先行読み込み用, 使用するスクリプト (null含む)
+     */
+    public List<String> getScriptPaths() {
+        List<String> list = new ArrayList<>();
+        list.add(this.serverScriptPath);
+        list.add(this.guiScriptPath);
+        this.getModelSources().stream()
+                .filter(Objects::nonNull)
+                .map(source -> source.rendererPath)
+                .forEach(list::add);
+        return list;
+    }
+
     public static class Parts {
         /**
          * パーツを構成するオブジェクトの名前
@@ -1,5 +1,8 @@
 package jp.ngt.rtm.modelpack.cfg;
 
+import java.util.Collections;
+import java.util.List;
+
 public class OrnamentConfig extends ModelConfig implements IConfigWithType {
     public static final String TYPE = "ModelOrnament";
 
@@ -34,6 +37,11 @@ public class OrnamentConfig extends ModelConfig implements IConfigWithType {
         return TYPE;
     }
 
+    @Override
+    public List<ModelSource> getModelSources() {
+        return Collections.singletonList(this.model);
+    }
+
     @Override
     public String getSubType() {
         return this.ornamentType;
@@ -1,5 +1,7 @@
 package jp.ngt.rtm.modelpack.cfg;
 
+import java.util.Collections;
+import java.util.List;
 
 public class RailConfig extends ModelConfig {
     public static final String TYPE = "ModelRail";
@@ -59,6 +61,11 @@ public class RailConfig extends ModelConfig {
         return TYPE;
     }
 
+    @Override
+    public List<ModelSource> getModelSources() {
+        return Collections.singletonList(this.model);
+    }
+
     public static RailConfig getDummy() {
         RailConfig cfg = new RailConfig();
         cfg.railName = "dummy";
@@ -1,5 +1,8 @@
 package jp.ngt.rtm.modelpack.cfg;
 
+import java.util.Collections;
+import java.util.List;
+
 public class SignalConfig extends ModelConfig {
     public static final String TYPE = "ModelSignal";
 
@@ -67,6 +70,11 @@ public class SignalConfig extends ModelConfig {
         return TYPE;
     }
 
+    @Override
+    public List<ModelSource> getModelSources() {
+        return Collections.singletonList(this.model);
+    }
+
     public static SignalConfig getDummyConfig() {
         SignalConfig config = new SignalConfig();
         config.signalName = "DummySignal";
@@ -1,6 +1,7 @@
 package jp.ngt.rtm.modelpack.cfg;
 
 import java.util.Arrays;
+import java.util.List;
 
 public class TrainConfig extends VehicleBaseConfig implements IConfigWithType {
     public static final String TYPE = "ModelTrain";
@@ -176,6 +177,11 @@ public class TrainConfig extends VehicleBaseConfig implements IConfigWithType {
         return TYPE;
     }
 
+    @Override
+    public List<ModelSource> getModelSources() {
+        return Arrays.asList(this.trainModel2, this.bogieModel3[0], this.bogieModel3[1]);
+    }
+
     @Override
     public ModelSource getModel() {
         return this.trainModel2;
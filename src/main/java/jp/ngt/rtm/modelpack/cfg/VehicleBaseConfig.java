@@ -1,5 +1,7 @@
 package jp.ngt.rtm.modelpack.cfg;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.stream.IntStream;
 
 public abstract class VehicleBaseConfig extends ModelConfig {
@@ -157,6 +159,18 @@ public abstract class VehicleBaseConfig extends ModelConfig {
 
     public abstract ModelSource getModel();
 
+    @Override
+    public List<ModelSource> getModelSources() {
+        return Collections.singletonList(this.getModel());
+    }
+
+    @Override
+    public List<String> getScriptPaths() {
+        List<String> list = super.getScriptPaths();
+        list.add(this.soundScriptPath);
+        return list;
+    }
+
     public float[] getSize() {
         return this.size;
     }
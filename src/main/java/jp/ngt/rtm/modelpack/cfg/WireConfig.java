@@ -1,5 +1,7 @@
 package jp.ngt.rtm.modelpack.cfg;
 
+import java.util.Collections;
+import java.util.List;
 
 public class WireConfig extends ModelConfig {
     public static final String TYPE = "ModelWire";
@@ -32,6 +34,11 @@ public class WireConfig extends ModelConfig {
         return TYPE;
     }
 
+    @Override
+    public List<ModelSource> getModelSources() {
+        return Collections.singletonList(this.model);
+    }
+
     public static WireConfig getDummy() {
         WireConfig cfg = new WireConfig();
         cfg.name = "dummy";
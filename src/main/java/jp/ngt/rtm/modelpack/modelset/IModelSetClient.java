@@ -10,4 +10,10 @@ public interface IModelSetClient {
     void renderSelectButton(GuiButtonSelectModel par1, Minecraft par2, int par3, int par4);
 
     void renderModelInGui(Minecraft par1);
+
+    /**
+     * 選択GUIに表示される前にモデルの読み込みを開始
+     */
+    default void prefetchModels() {
+    }
 }
\ No newline at end of file
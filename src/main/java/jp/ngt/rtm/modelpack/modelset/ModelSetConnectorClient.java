@@ -34,6 +34,11 @@ public class ModelSetConnectorClient extends ModelSetConnector implements IModel
         this.buttonTexture = ModelPackManager.INSTANCE.getResource(cfg.buttonTexture);
     }
 
+    @Override
+    public void prefetchModels() {
+        this.modelObj.prefetch();
+    }
+
     @Override
     public void renderSelectButton(GuiButtonSelectModel par1, Minecraft par2, int par3, int par4) {
         GL11.glPushMatrix();
@@ -75,6 +80,9 @@ public class ModelSetConnectorClient extends ModelSetConnector implements IModel
         GL11.glScalef(scale, scale, scale);
 
         ModelObject mo = this.modelObj;
+        if (!mo.ensureLoaded()) {
+            return;
+        }
         NGTUtilClient.bindTexture(mo.textures[0].material.texture);
         mo.model.renderAll(false);
     }
@@ -31,6 +31,11 @@ public class ModelSetMachineClient extends ModelSetMachine implements IModelSetC
         this.buttonTexture = ModelPackManager.INSTANCE.getResource(par1.buttonTexture);
     }
 
+    @Override
+    public void prefetchModels() {
+        this.modelObj.prefetch();
+    }
+
     @Override
     public void renderSelectButton(GuiButtonSelectModel par1, Minecraft par2, int par3, int par4) {
         GL11.glPushMatrix();
@@ -36,6 +36,11 @@ public class ModelSetOrnamentClient extends ModelSetOrnament implements IModelSe
         return OrnamentConfig.getDummy();
     }
 
+    @Override
+    public void prefetchModels() {
+        this.model.prefetch();
+    }
+
     @Override
     public void renderSelectButton(GuiButtonSelectModel par1, Minecraft par2, int par3, int par4) {
         GL11.glPushMatrix();
@@ -18,6 +18,8 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.util.ResourceLocation;
 import org.lwjgl.opengl.GL11;
 
+import java.util.function.Supplier;
+
 @SideOnly(Side.CLIENT)
 public class ModelSetRailClient extends ModelSetRail implements IModelSetClient {
     public final ModelObject model;
@@ -36,11 +38,16 @@ public class ModelSetRailClient extends ModelSetRail implements IModelSetClient
     public ModelSetRailClient(RailConfig par1) {
         super(par1);
 
-        PartsRenderer renderer = (!PartsRenderer.validPath(par1.model.rendererPath)) ? new BasicRailPartsRenderer() : null;
+        Supplier<PartsRenderer> renderer = (!PartsRenderer.validPath(par1.model.rendererPath)) ? () -> new BasicRailPartsRenderer() : null;
         this.model = new ModelObject(par1.model, this, renderer);
         this.buttonTexture = ModelPackManager.INSTANCE.getResource(par1.buttonTexture);
     }
 
+    @Override
+    public void prefetchModels() {
+        this.model.prefetch();
+    }
+
     @Override
     public void renderSelectButton(GuiButtonSelectModel par1, Minecraft par2, int par3, int par4) {
         GL11.glPushMatrix();
@@ -85,6 +92,9 @@ public class ModelSetRailClient extends ModelSetRail implements IModelSetClient
         GL11.glScalef(scale, scale, scale);
 
         ModelObject mo = this.model;
+        if (!mo.ensureLoaded()) {
+            return;
+        }
         NGTUtilClient.bindTexture(mo.textures[0].material.texture);
         mo.model.renderAll(false);
     }
@@ -17,6 +17,8 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.util.ResourceLocation;
 import org.lwjgl.opengl.GL11;
 
+import java.util.function.Supplier;
+
 @SideOnly(Side.CLIENT)
 public class ModelSetSignalClient extends ModelSetSignal implements IModelSetClient {
     public final ModelObject model;
@@ -32,11 +34,16 @@ public class ModelSetSignalClient extends ModelSetSignal implements IModelSetCli
 
     public ModelSetSignalClient(SignalConfig par1) {
         super(par1);
-        PartsRenderer renderer = (!PartsRenderer.validPath(par1.model.rendererPath)) ? new BasicSignalPartsRenderer(par1) : null;
+        Supplier<PartsRenderer> renderer = (!PartsRenderer.validPath(par1.model.rendererPath)) ? () -> new BasicSignalPartsRenderer(par1) : null;
         this.model = new ModelObject(par1.model, this, renderer);
         this.buttonTexture = ModelPackManager.INSTANCE.getResource(par1.buttonTexture);
     }
 
+    @Override
+    public void prefetchModels() {
+        this.model.prefetch();
+    }
+
     @Override
     public void renderSelectButton(GuiButtonSelectModel par1, Minecraft par2, int par3, int par4) {
         GL11.glPushMatrix();
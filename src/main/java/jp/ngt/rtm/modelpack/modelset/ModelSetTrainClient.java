@@ -12,6 +12,7 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.util.ResourceLocation;
 import org.lwjgl.opengl.GL11;
 
+import java.util.Arrays;
 import java.util.stream.IntStream;
 
 @SideOnly(Side.CLIENT)
@@ -43,6 +44,12 @@ public class ModelSetTrainClient extends ModelSetVehicleBaseClient {
         return IntStream.range(0, 2).mapToObj(i -> new ModelObject(((TrainConfig) this.getConfig()).getBogieModel(i), this, null, "isBogie")).toArray(ModelObject[]::new);
     }
 
+    @Override
+    public void prefetchModels() {
+        super.prefetchModels();
+        Arrays.stream(this.bogieModels).forEach(ModelObject::prefetch);
+    }
+
     @Override
     protected void renderPartsInGui(Minecraft par1) {
         TrainConfig cfg = (TrainConfig) this.cfg;
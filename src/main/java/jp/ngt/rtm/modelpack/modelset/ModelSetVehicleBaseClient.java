@@ -18,6 +18,7 @@ import net.minecraft.util.ResourceLocation;
 import org.lwjgl.opengl.GL11;
 
 import javax.script.ScriptEngine;
+import java.util.function.Supplier;
 
 @SideOnly(Side.CLIENT)
 public abstract class ModelSetVehicleBaseClient<T extends VehicleBaseConfig> extends ModelSetVehicleBase<T> implements IModelSetClient {
@@ -56,7 +57,7 @@ public abstract class ModelSetVehicleBaseClient<T extends VehicleBaseConfig> ext
 
     public ModelSetVehicleBaseClient(VehicleBaseConfig cfg) {
         super(cfg);
-        PartsRenderer renderer = (!PartsRenderer.validPath(cfg.getModel().rendererPath)) ? new BasicVehiclePartsRenderer(String.valueOf(true)) : null;
+        Supplier<PartsRenderer> renderer = (!PartsRenderer.validPath(cfg.getModel().rendererPath)) ? () -> new BasicVehiclePartsRenderer(String.valueOf(true)) : null;
         this.vehicleModel = new ModelObject(cfg.getModel(), this, renderer);
 
         this.buttonTexture = ModelPackManager.INSTANCE.getResource(cfg.buttonTexture);
@@ -77,6 +78,11 @@ public abstract class ModelSetVehicleBaseClient<T extends VehicleBaseConfig> ext
         }
     }
 
+    @Override
+    public void prefetchModels() {
+        this.vehicleModel.prefetch();
+    }
+
     @Override
     public void renderSelectButton(GuiButtonSelectModel par1, Minecraft par2, int par3, int par4) {
         GL11.glPushMatrix();
@@ -16,6 +16,8 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.util.ResourceLocation;
 import org.lwjgl.opengl.GL11;
 
+import java.util.function.Supplier;
+
 public class ModelSetWireClient extends ModelSetWire implements IModelSetClient {
     public final ModelObject modelObj;
     public final ResourceLocation buttonTexture;
@@ -32,14 +34,19 @@ public class ModelSetWireClient extends ModelSetWire implements IModelSetClient
     public ModelSetWireClient(WireConfig cfg) {
         super(cfg);
 
-        PartsRenderer renderer = null;
+        Supplier<PartsRenderer> renderer = null;
         if (cfg.model.rendererPath == null || cfg.model.rendererPath.isEmpty()) {
-            renderer = new WirePartsRenderer(false);
+            renderer = () -> new WirePartsRenderer(false);
         }
         this.modelObj = new ModelObject(cfg.model, this, renderer);
         this.buttonTexture = ModelPackManager.INSTANCE.getResource(cfg.buttonTexture);
     }
 
+    @Override
+    public void prefetchModels() {
+        this.modelObj.prefetch();
+    }
+
     @Override
     public void renderSelectButton(GuiButtonSelectModel par1, Minecraft par2, int par3, int par4) {
         GL11.glPushMatrix();
@@ -81,6 +88,9 @@ public class ModelSetWireClient extends ModelSetWire implements IModelSetClient
         GL11.glScalef(scale, scale, scale);
 
         ModelObject mo = this.modelObj;
+        if (!mo.ensureLoaded()) {
+            return;
+        }
         NGTUtilClient.bindTexture(mo.textures[0].material.texture);
         mo.model.renderAll(false);
     }
@@ -1,5 +1,7 @@
 package jp.ngt.rtm.modelpack.state;
 
+import cpw.mods.fml.common.network.ByteBufUtils;
+import io.netty.buffer.ByteBuf;
 import jp.ngt.ngtlib.math.Vec3;
 import net.minecraft.nbt.NBTTagCompound;
 
@@ -45,4 +47,43 @@ public abstract class DataEntry<T> {
         }
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * 同期用, 型ごとのバイナリで書き込み
+     */
+    public static void writeToBuf(DataEntry entry, ByteBuf buffer) {
+        DataType dType = entry.getType();
+
+        if (dType == DataType.INT || dType == DataType.HEX) {
+            buffer.writeInt((Integer) entry.data);
+        } else if (dType == DataType.DOUBLE) {
+            buffer.writeDouble((Double) entry.data);
+        } else if (dType == DataType.BOOLEAN) {
+            buffer.writeBoolean((Boolean) entry.data);
+        } else if (dType == DataType.STRING) {
+            ByteBufUtils.writeUTF8String(buffer, (String) entry.data);
+        } else if (dType == DataType.VEC) {
+            Vec3 vec = (Vec3) entry.data;
+            buffer.writeDouble(vec.getX());
+            buffer.writeDouble(vec.getY());
+            buffer.writeDouble(vec.getZ());
+        }
+    }
+
+    public static DataEntry readFromBuf(DataType dType, ByteBuf buffer, int flag) {
+        if (dType == DataType.INT) {
+            return new DataEntryInt(buffer.readInt(), flag);
+        } else if (dType == DataType.DOUBLE) {
+            return new DataEntryDouble(buffer.readDouble(), flag);
+        } else if (dType == DataType.BOOLEAN) {
+            return new DataEntryBoolean(buffer.readBoolean(), flag);
+        } else if (dType == DataType.STRING) {
+            return new DataEntryString(ByteBufUtils.readUTF8String(buffer), flag);
+        } else if (dType == DataType.VEC) {
+            return new DataEntryVec(new Vec3(buffer.readDouble(), buffer.readDouble(), buffer.readDouble()), flag);
+        } else if (dType == DataType.HEX) {
+            return new DataEntryHex(buffer.readInt(), flag);
+        }
+        return null;
+    }
+}
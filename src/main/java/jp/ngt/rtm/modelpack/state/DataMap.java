@@ -7,7 +7,6 @@ import jp.ngt.rtm.RTMCore;
 import jp.ngt.rtm.modelpack.IModelSelector;
 import jp.ngt.rtm.network.PacketNotice;
 import net.minecraft.entity.Entity;
-import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.item.Item;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
@@ -16,7 +15,9 @@ import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.regex.Matcher;
@@ -31,6 +32,10 @@ public final class DataMap {
     private static final Pattern VAL_TYPE = Pattern.compile("\\([a-zA-Z]+\\)");
 
     private final Map<String, DataEntry> map = new HashMap<>();
+    /**
+     * Clientへ未送信の変更, {@link DataMapSync}でtickごとに送信
+     */
+    private final Map<String, DataEntry> dirtyEntries = new LinkedHashMap<>();
     private Object entity;
     private DataFormatter dataFormatter = new DataFormatter(null);//ダミー
 
@@ -38,6 +43,10 @@ public final class DataMap {
         this.entity = par1;
     }
 
+    Object getEntity() {
+        return this.entity;
+    }
+
     public void setFormatter(DataFormatter formatter) {
         this.dataFormatter = formatter;
     }
@@ -74,26 +83,22 @@ public final class DataMap {
 
         if (this.entity instanceof Entity) {
             Entity entity = (Entity) this.entity;
-            String msg = String.format("DM,%s,%d,%s,%s,%s,%d",
-                    "E",
-                    entity.getEntityId(),
-                    key,
-                    value.getType().key,
-                    value.toString(),
-                    value.flag);
-
             if (toClient) {
                 if (entity.worldObj instanceof WorldServer) {
-                    packet = new PacketNotice(PacketNotice.Side_CLIENT, msg, entity);
-                    ((WorldServer) ((Entity) this.entity).worldObj)
-                            .getEntityTracker()
-                            .getTrackingPlayers(((Entity) this.entity))
-                            .stream()
-                            .map(EntityPlayerMP.class::cast)
-                            .forEach(player -> RTMCore.NETWORK_WRAPPER.sendTo(packet, player));
+                    synchronized (this.dirtyEntries) {
+                        this.dirtyEntries.put(key, value);
+                    }
+                    DataMapSync.markDirty(this);
                 }
                 return;
             } else {
+                String msg = String.format("DM,%s,%d,%s,%s,%s,%d",
+                        "E",
+                        entity.getEntityId(),
+                        key,
+                        value.getType().key,
+                        value.toString(),
+                        value.flag);
                 packet = new PacketNotice(PacketNotice.Side_SERVER, msg, entity);
             }
         } else if (this.entity instanceof TileEntity) {
@@ -122,6 +127,27 @@ public final class DataMap {
         RTMCore.NETWORK_WRAPPER.sendToServer(packet);
     }
 
+    /**
+     * @return 未送信の変更, 呼び出し後は空になる
+     */
+    Map<String, DataEntry> pollDirtyEntries() {
+        synchronized (this.dirtyEntries) {
+            if (this.dirtyEntries.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            Map<String, DataEntry> entries = new LinkedHashMap<>(this.dirtyEntries);
+            this.dirtyEntries.clear();
+            return entries;
+        }
+    }
+
+    /**
+     * Client, {@link jp.ngt.rtm.network.PacketDataMap}の受信時
+     */
+    public void receiveEntry(String key, DataEntry value) {
+        this.set(key, value, value.flag);
+    }
+
     public static void receivePacket(String msg, PacketNotice packet, World world, boolean onClient) {
         String[] sa = msg.split(",");
         String target = sa[1];
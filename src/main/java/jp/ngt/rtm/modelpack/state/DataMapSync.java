@@ -0,0 +1,83 @@
+package jp.ngt.rtm.modelpack.state;
+
+import jp.ngt.rtm.RTMCore;
+import jp.ngt.rtm.network.PacketDataMap;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.world.WorldServer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * EntityのDataMapの変更をtickごとにまとめてClientへ送信, ServerOnly<br>
+ * キーは番号に置き換え, プレイヤーごとに初回のみ文字列を送る
+ */
+public final class DataMapSync {
+    private static final Set<DataMap> DIRTY_MAPS = Collections.newSetFromMap(new IdentityHashMap<>());
+    private static final Map<String, Integer> KEY_IDS = new HashMap<>();
+    /**
+     * プレイヤーごとの送信済みのキー番号
+     */
+    private static final Map<EntityPlayerMP, BitSet> KNOWN_KEYS = new WeakHashMap<>();
+
+    private DataMapSync() {
+    }
+
+    static void markDirty(DataMap dataMap) {
+        synchronized (DIRTY_MAPS) {
+            DIRTY_MAPS.add(dataMap);
+        }
+    }
+
+    private static int getKeyId(String key) {
+        return KEY_IDS.computeIfAbsent(key, k -> KEY_IDS.size());
+    }
+
+    /**
+     * tick終了時に呼ぶ
+     */
+    public static void sendAll() {
+        List<DataMap> list;
+        synchronized (DIRTY_MAPS) {
+            if (DIRTY_MAPS.isEmpty()) {
+                return;
+            }
+            list = new ArrayList<>(DIRTY_MAPS);
+            DIRTY_MAPS.clear();
+        }
+
+        for (DataMap dataMap : list) {
+            Map<String, DataEntry> entries = dataMap.pollDirtyEntries();
+            Object target = dataMap.getEntity();
+            if (entries.isEmpty() || !(target instanceof Entity)) {
+                continue;
+            }
+
+            Entity entity = (Entity) target;
+            if (entity.isDead || !(entity.worldObj instanceof WorldServer)) {
+                continue;
+            }
+
+            Set<?> players = ((WorldServer) entity.worldObj).getEntityTracker().getTrackingPlayers(entity);
+            for (Object obj : players) {
+                EntityPlayerMP player = (EntityPlayerMP) obj;
+                BitSet knownKeys = KNOWN_KEYS.computeIfAbsent(player, key -> new BitSet());
+                PacketDataMap packet = new PacketDataMap(entity.getEntityId());
+                entries.forEach((key, value) -> {
+                    int id = getKeyId(key);
+                    packet.addEntry(id, knownKeys.get(id) ? null : key, value);
+                    knownKeys.set(id);
+                });
+                RTMCore.NETWORK_WRAPPER.sendTo(packet, player);
+            }
+        }
+    }
+}
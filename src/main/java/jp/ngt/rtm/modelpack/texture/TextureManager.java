@@ -1,9 +1,11 @@
 package jp.ngt.rtm.modelpack.texture;
 
+import jp.ngt.ngtlib.io.FileMatcher;
 import jp.ngt.ngtlib.io.IProgressWatcher;
 import jp.ngt.ngtlib.io.NGTFileLoadException;
 import jp.ngt.ngtlib.io.NGTFileLoader;
 import jp.ngt.ngtlib.io.NGTJson;
+import jp.ngt.ngtlib.io.ScanResult;
 import jp.ngt.rtm.modelpack.CrashableFutureTask;
 
 import java.io.File;
@@ -15,6 +17,13 @@ import java.util.regex.Pattern;
 public final class TextureManager {
     public static final TextureManager INSTANCE = new TextureManager();
 
+    private static final Pattern SIGNBOARD_PATTERN = Pattern.compile("SignBoard.*\\.json");
+    private static final Pattern RRS_PATTERN = Pattern.compile("rrs_.*\\.png");
+    private static final Pattern FLAG_PATTERN = Pattern.compile("Flag_.*\\.json");
+    public static final FileMatcher SIGNBOARD_MATCHER = file -> SIGNBOARD_PATTERN.matcher(file.getName()).matches();
+    public static final FileMatcher RRS_MATCHER = file -> RRS_PATTERN.matcher(file.getName()).matches();
+    public static final FileMatcher FLAG_MATCHER = file -> FLAG_PATTERN.matcher(file.getName()).matches();
+
     private final Map<TexturePropertyType, Map<String, TextureProperty>> allTextureMap = new ConcurrentHashMap<>();
     //private final Map<TexturePropertyType, Map<String, TextureProperty>> smpTextureMap = new HashMap<TexturePropertyType, Map<String, TextureProperty>>();
 
@@ -23,8 +32,15 @@ public final class TextureManager {
 
     public List<File> loadTextures(IProgressWatcher par1) {
         par1.setValue(0, 2, "Loading Textures");
-        Pattern pattern = Pattern.compile("SignBoard.*\\.json");
-        return NGTFileLoader.findFile((file) -> pattern.matcher(file.getName()).matches());
+        return NGTFileLoader.findFile(SIGNBOARD_MATCHER);
+    }
+
+    /**
+     * @param scanResult {@link #SIGNBOARD_MATCHER}を含めて検索した結果
+     */
+    public List<File> loadTextures(IProgressWatcher par1, ScanResult scanResult) {
+        par1.setValue(0, 2, "Loading Textures");
+        return scanResult.get(SIGNBOARD_MATCHER);
     }
 
     public void registerTextures(IProgressWatcher par1, List<File> fileList, ExecutorService executor, TexturePropertyType type) {
@@ -53,14 +69,22 @@ public final class TextureManager {
 
     public List<File> loadRailRoadSigns(IProgressWatcher par1) {
         par1.setValue(0, 3, "Loading RailroadSign");
-        Pattern pattern = Pattern.compile("rrs_.*\\.png");
-        return NGTFileLoader.findFile((file) -> pattern.matcher(file.getName()).matches());
+        return NGTFileLoader.findFile(RRS_MATCHER);
+    }
+
+    public List<File> loadRailRoadSigns(IProgressWatcher par1, ScanResult scanResult) {
+        par1.setValue(0, 3, "Loading RailroadSign");
+        return scanResult.get(RRS_MATCHER);
     }
 
     public List<File> loadFlags(IProgressWatcher par1) {
         par1.setValue(0, 3, "Loading Flag");
-        Pattern pattern = Pattern.compile("Flag_.*\\.json");
-        return NGTFileLoader.findFile((file) -> pattern.matcher(file.getName()).matches());
+        return NGTFileLoader.findFile(FLAG_MATCHER);
+    }
+
+    public List<File> loadFlags(IProgressWatcher par1, ScanResult scanResult) {
+        par1.setValue(0, 3, "Loading Flag");
+        return scanResult.get(FLAG_MATCHER);
     }
 
     public void registerRailRoadSigns(IProgressWatcher par1, List<File> fileList, ExecutorService executor) {
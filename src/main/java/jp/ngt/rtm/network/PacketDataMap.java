@@ -0,0 +1,120 @@
+package jp.ngt.rtm.network;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import io.netty.buffer.ByteBuf;
+import jp.ngt.ngtlib.io.NGTLog;
+import jp.ngt.ngtlib.util.NGTUtil;
+import jp.ngt.rtm.modelpack.IModelSelector;
+import jp.ngt.rtm.modelpack.state.DataEntry;
+import jp.ngt.rtm.modelpack.state.DataMap;
+import jp.ngt.rtm.modelpack.state.DataType;
+import net.minecraft.entity.Entity;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EntityのDataMapの変更をまとめて同期
+ */
+public class PacketDataMap implements IMessage, IMessageHandler<PacketDataMap, IMessage> {
+    private static final int VARINT_SIZE = 5;
+    private static final DataType[] TYPES = DataType.values();
+
+    /**
+     * Client, キー番号 -> キー
+     */
+    private static final Map<Integer, String> KEYS = new HashMap<>();
+
+    private int entityId;
+    private final List<Object[]> entries = new ArrayList<>();
+
+    public PacketDataMap() {
+    }
+
+    public PacketDataMap(int entityId) {
+        this.entityId = entityId;
+    }
+
+    /**
+     * @param key 送信済みのキーならnull
+     */
+    public void addEntry(int keyId, String key, DataEntry value) {
+        this.entries.add(new Object[]{keyId, key, value});
+    }
+
+    @Override
+    public void toBytes(ByteBuf buffer) {
+        ByteBufUtils.writeVarInt(buffer, this.entityId, VARINT_SIZE);
+        ByteBufUtils.writeVarInt(buffer, this.entries.size(), VARINT_SIZE);
+        for (Object[] entry : this.entries) {
+            int keyId = (Integer) entry[0];
+            String key = (String) entry[1];
+            DataEntry value = (DataEntry) entry[2];
+            //下位1bit:キー文字列の有無
+            ByteBufUtils.writeVarInt(buffer, (keyId << 1) | (key != null ? 1 : 0), VARINT_SIZE);
+            if (key != null) {
+                ByteBufUtils.writeUTF8String(buffer, key);
+            }
+            buffer.writeByte(value.getType().ordinal());
+            buffer.writeByte(value.flag);
+            DataEntry.writeToBuf(value, buffer);
+        }
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buffer) {
+        this.entityId = ByteBufUtils.readVarInt(buffer, VARINT_SIZE);
+        int size = ByteBufUtils.readVarInt(buffer, VARINT_SIZE);
+        for (int i = 0; i < size; ++i) {
+            int header = ByteBufUtils.readVarInt(buffer, VARINT_SIZE);
+            int keyId = header >>> 1;
+            String key = null;
+            if ((header & 1) != 0) {
+                key = ByteBufUtils.readUTF8String(buffer);
+                synchronized (KEYS) {
+                    KEYS.put(keyId, key);
+                }
+            }
+            DataType type = TYPES[buffer.readByte()];
+            int flag = buffer.readByte() & DataMap.SAVE_FLAG;//Client側では再送しない
+            DataEntry value = DataEntry.readFromBuf(type, buffer, flag);
+            this.entries.add(new Object[]{keyId, key, value});
+        }
+    }
+
+    @Override
+    public IMessage onMessage(PacketDataMap message, MessageContext ctx) {
+        World world = NGTUtil.getClientWorld();
+        if (world == null) {
+            return null;
+        }
+
+        Entity entity = world.getEntityByID(message.entityId);
+        if (!(entity instanceof IModelSelector)) {
+            return null;
+        }
+
+        DataMap dataMap = ((IModelSelector) entity).getResourceState().getDataMap();
+        for (Object[] entry : message.entries) {
+            String key = (String) entry[1];
+            if (key == null) {
+                synchronized (KEYS) {
+                    key = KEYS.get((Integer) entry[0]);
+                }
+            }
+
+            if (key != null) {
+                dataMap.receiveEntry(key, (DataEntry) entry[2]);
+            } else {
+                NGTLog.debug("[DataMap] Unknown key id : %d", entry[0]);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,235 @@
+package jp.ngt.rtm.network;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import io.netty.buffer.ByteBuf;
+import net.minecraft.entity.Entity;
+import net.minecraft.world.World;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 編成内の車両と台車の移動をまとめて送信<br>
+ * 座標は前回送信時からの差分, 角度は16bitに量子化し, 変化の無い項目は省略する
+ */
+public class PacketFormationMovement implements IMessage, IMessageHandler<PacketFormationMovement, IMessage> {
+    public static final int FLAG_KEY = 1;
+    public static final int FLAG_X = 1 << 1;
+    public static final int FLAG_Y = 1 << 2;
+    public static final int FLAG_Z = 1 << 3;
+    public static final int FLAG_YAW = 1 << 4;
+    public static final int FLAG_PITCH = 1 << 5;
+    public static final int FLAG_ROLL = 1 << 6;
+    public static final int FLAG_SPEED = 1 << 7;
+
+    /**
+     * x, y, z(*32), yaw, pitch, roll(16bit), speed(floatのbit列)
+     */
+    public static final int VALUE_COUNT = 7;
+    public static final int V_X = 0, V_Y = 1, V_Z = 2, V_YAW = 3, V_PITCH = 4, V_ROLL = 5, V_SPEED = 6;
+
+    private static final int VARINT_SIZE = 5;
+    private static final float ANGLE_TO_SHORT = 65536.0F / 360.0F;
+    private static final float SHORT_TO_ANGLE = 360.0F / 65536.0F;
+
+    /**
+     * Client, 最後に受信した状態
+     */
+    private static final Map<Entity, int[]> BASELINES = Collections.synchronizedMap(new WeakHashMap<>());
+    /**
+     * Client, 受信したがまだ処理していないもの (ネットワークのスレッドから追加)
+     */
+    private static final Queue<PacketFormationMovement> RECEIVED = new ConcurrentLinkedQueue<>();
+    /**
+     * Client, Entityの生成より先に届いた状態 (エンティティID -> 状態と経過tick)<br>
+     * 生成パケットとの順序は保証されないので, キーフレームを捨てずに取っておく
+     */
+    private static final Map<Integer, int[]> UNRESOLVED = new HashMap<>();
+    /**
+     * これ以上Entityが現れなければ破棄
+     */
+    private static final int UNRESOLVED_TIMEOUT = 100;
+
+    private int count;
+    private int[] entityIds = new int[8];
+    private byte[] flags = new byte[8];
+    private int[] values = new int[8 * VALUE_COUNT];
+
+    public PacketFormationMovement() {
+    }
+
+    /**
+     * @param value 差分の場合, 座標は前回との差
+     */
+    public void addRecord(int entityId, int flag, int[] value) {
+        if (this.count == this.entityIds.length) {
+            int size = this.count << 1;
+            this.entityIds = Arrays.copyOf(this.entityIds, size);
+            this.flags = Arrays.copyOf(this.flags, size);
+            this.values = Arrays.copyOf(this.values, size * VALUE_COUNT);
+        }
+        this.entityIds[this.count] = entityId;
+        this.flags[this.count] = (byte) flag;
+        System.arraycopy(value, 0, this.values, this.count * VALUE_COUNT, VALUE_COUNT);
+        ++this.count;
+    }
+
+    public int getRecordCount() {
+        return this.count;
+    }
+
+    public static int quantizeAngle(float angle) {
+        return (short) Math.round(angle * ANGLE_TO_SHORT);
+    }
+
+    @Override
+    public void toBytes(ByteBuf buffer) {
+        ByteBufUtils.writeVarInt(buffer, this.count, VARINT_SIZE);
+        for (int i = 0; i < this.count; ++i) {
+            int flag = this.flags[i] & 0xFF;
+            int offset = i * VALUE_COUNT;
+            ByteBufUtils.writeVarInt(buffer, this.entityIds[i], VARINT_SIZE);
+            buffer.writeByte(flag);
+            for (int j = V_X; j <= V_Z; ++j) {
+                if ((flag & (FLAG_X << j)) != 0) {
+                    ByteBufUtils.writeVarInt(buffer, encodeZigZag(this.values[offset + j]), VARINT_SIZE);
+                }
+            }
+            for (int j = V_YAW; j <= V_ROLL; ++j) {
+                if ((flag & (FLAG_X << j)) != 0) {
+                    buffer.writeShort(this.values[offset + j]);
+                }
+            }
+            if ((flag & FLAG_SPEED) != 0) {
+                buffer.writeInt(this.values[offset + V_SPEED]);
+            }
+        }
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buffer) {
+        this.count = ByteBufUtils.readVarInt(buffer, VARINT_SIZE);
+        this.entityIds = new int[this.count];
+        this.flags = new byte[this.count];
+        this.values = new int[this.count * VALUE_COUNT];
+        for (int i = 0; i < this.count; ++i) {
+            int offset = i * VALUE_COUNT;
+            this.entityIds[i] = ByteBufUtils.readVarInt(buffer, VARINT_SIZE);
+            int flag = buffer.readUnsignedByte();
+            this.flags[i] = (byte) flag;
+            for (int j = V_X; j <= V_Z; ++j) {
+                if ((flag & (FLAG_X << j)) != 0) {
+                    this.values[offset + j] = decodeZigZag(ByteBufUtils.readVarInt(buffer, VARINT_SIZE));
+                }
+            }
+            for (int j = V_YAW; j <= V_ROLL; ++j) {
+                if ((flag & (FLAG_X << j)) != 0) {
+                    this.values[offset + j] = buffer.readShort();
+                }
+            }
+            if ((flag & FLAG_SPEED) != 0) {
+                this.values[offset + V_SPEED] = buffer.readInt();
+            }
+        }
+    }
+
+    private static int encodeZigZag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    private static int decodeZigZag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    @Override
+    public IMessage onMessage(PacketFormationMovement message, MessageContext ctx) {
+        RECEIVED.add(message);
+        return null;
+    }
+
+    /**
+     * Client, tickの開始時に受信したものを処理
+     */
+    public static void processReceived(World world) {
+        PacketFormationMovement message;
+        while ((message = RECEIVED.poll()) != null) {
+            message.apply(world);
+        }
+
+        if (UNRESOLVED.isEmpty()) {
+            return;
+        }
+
+        Iterator<Map.Entry<Integer, int[]>> iterator = UNRESOLVED.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, int[]> entry = iterator.next();
+            int[] state = entry.getValue();
+            Entity entity = world.getEntityByID(entry.getKey());
+            if (entity != null) {
+                iterator.remove();
+                BASELINES.put(entity, state);
+                applyState(entity, state);
+            } else if (++state[VALUE_COUNT] > UNRESOLVED_TIMEOUT) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void apply(World world) {
+        for (int i = 0; i < this.count; ++i) {
+            int id = this.entityIds[i];
+            int flag = this.flags[i] & 0xFF;
+            Entity entity = world.getEntityByID(id);
+            int[] state;
+            if ((flag & FLAG_KEY) != 0) {
+                state = new int[VALUE_COUNT + 1];
+                if (entity != null) {
+                    UNRESOLVED.remove(id);
+                    BASELINES.put(entity, state);
+                } else {
+                    UNRESOLVED.put(id, state);
+                }
+            } else {
+                state = entity != null ? BASELINES.get(entity) : null;
+                if (state == null) {
+                    state = UNRESOLVED.get(id);
+                    if (state == null) {
+                        continue;//次のキーフレームを待つ
+                    }
+                    if (entity != null) {
+                        UNRESOLVED.remove(id);
+                        BASELINES.put(entity, state);
+                    }
+                }
+            }
+
+            int offset = i * VALUE_COUNT;
+            for (int j = 0; j < VALUE_COUNT; ++j) {
+                if ((flag & (FLAG_X << j)) != 0) {
+                    int value = this.values[offset + j];
+                    boolean isDelta = j <= V_Z && (flag & FLAG_KEY) == 0;
+                    state[j] = isDelta ? state[j] + value : value;
+                }
+            }
+
+            if (entity != null) {
+                applyState(entity, state);
+            }
+        }
+    }
+
+    private static void applyState(Entity entity, int[] state) {
+        PacketVehicleMovement.applyMovement(entity, state[V_X], state[V_Y], state[V_Z],
+                (float) state[V_YAW] * SHORT_TO_ANGLE, (float) state[V_PITCH] * SHORT_TO_ANGLE,
+                Float.intBitsToFloat(state[V_SPEED]), (float) state[V_ROLL] * SHORT_TO_ANGLE);
+    }
+}
@@ -5,54 +5,148 @@ import cpw.mods.fml.common.network.simpleimpl.IMessage;
 import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
 import cpw.mods.fml.common.network.simpleimpl.MessageContext;
 import io.netty.buffer.ByteBuf;
-import jp.ngt.rtm.RTMCore;
+import io.netty.buffer.PooledByteBufAllocator;
+import jp.ngt.rtm.modelpack.ModelPackEntry;
 import jp.ngt.rtm.modelpack.ModelPackWriter;
 
-import java.nio.ByteBuffer;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * サーバーからクライアントへのモデルパック配布<br>
+ * manifest -> (クライアントが{@link PacketModelPackRequest}で要求) -> chunk... -> finish
+ */
 public class PacketModelPack implements IMessage, IMessageHandler<PacketModelPack, IMessage> {
     public static final ModelPackWriter writer = new ModelPackWriter();
 
+    private static final byte TYPE_MANIFEST = 0;
+    private static final byte TYPE_CHUNK = 1;
+    private static final byte TYPE_FINISH = 2;
+
+    private byte type;
+    private List<ModelPackEntry> entries;
     private String name;
     private long size;
-    private byte[] bytes;
+    private long offset;
+    /**
+     * 送信側はプールされたダイレクトバッファ, 受信側は受信したバッファのスライス
+     */
+    private ByteBuf data;
 
     public PacketModelPack() {
     }
 
-    public PacketModelPack(String par1, long par2, ByteBuffer par3) {
-        this.name = par1;
-        this.size = par2;
-        this.bytes = par3.array();
+    private PacketModelPack(byte type) {
+        this.type = type;
+    }
+
+    /**
+     * サーバーにある全てのモデルパック
+     */
+    public static PacketModelPack manifest(List<ModelPackEntry> entries) {
+        PacketModelPack packet = new PacketModelPack(TYPE_MANIFEST);
+        packet.entries = entries;
+        return packet;
+    }
+
+    /**
+     * ファイルのoffsetからlengthバイトを直接ダイレクトバッファに読み込む<br>
+     * 送信後に{@link #release()}すること
+     */
+    public static PacketModelPack chunk(String name, long size, long offset, FileChannel channel, int length) throws IOException {
+        ByteBuf data = PooledByteBufAllocator.DEFAULT.directBuffer(length, length);
+        try {
+            channel.position(offset);
+            while (data.isWritable()) {
+                if (data.writeBytes(channel, data.writableBytes()) < 0) {
+                    throw new EOFException("Unexpected end of " + name);
+                }
+            }
+        } catch (IOException e) {
+            data.release();
+            throw e;
+        }
+
+        PacketModelPack packet = new PacketModelPack(TYPE_CHUNK);
+        packet.name = name;
+        packet.size = size;
+        packet.offset = offset;
+        packet.data = data;
+        return packet;
+    }
+
+    /**
+     * バッファをプールに戻す
+     */
+    public void release() {
+        if (this.data != null) {
+            this.data.release();
+            this.data = null;
+        }
+    }
+
+    /**
+     * 要求されたモデルパックを全て送った
+     */
+    public static PacketModelPack finish() {
+        return new PacketModelPack(TYPE_FINISH);
     }
 
     @Override
     public void toBytes(ByteBuf buffer) {
-        ByteBufUtils.writeUTF8String(buffer, this.name);
-        buffer.writeLong(this.size);
-        buffer.writeBytes(this.bytes);
+        buffer.writeByte(this.type);
+        switch (this.type) {
+            case TYPE_MANIFEST:
+                buffer.writeInt(this.entries.size());
+                this.entries.forEach(entry -> entry.writeTo(buffer));
+                break;
+            case TYPE_CHUNK:
+                ByteBufUtils.writeUTF8String(buffer, this.name);
+                buffer.writeLong(this.size);
+                buffer.writeLong(this.offset);
+                buffer.writeInt(this.data.readableBytes());
+                buffer.writeBytes(this.data, this.data.readerIndex(), this.data.readableBytes());
+                break;
+        }
     }
 
     @Override
     public void fromBytes(ByteBuf buffer) {
-        this.name = ByteBufUtils.readUTF8String(buffer);
-        this.size = buffer.readLong();
-        this.readBytesFromBuffer(buffer);
-    }
-
-    private void readBytesFromBuffer(ByteBuf buffer) {
-        int index = RTMCore.PacketSize;
-        int i0 = buffer.writerIndex() - buffer.readerIndex();
-        if (index > i0) {
-            index = i0;
+        this.type = buffer.readByte();
+        switch (this.type) {
+            case TYPE_MANIFEST:
+                int count = buffer.readInt();
+                this.entries = new ArrayList<>(count);
+                for (int i = 0; i < count; ++i) {
+                    this.entries.add(ModelPackEntry.readFrom(buffer));
+                }
+                break;
+            case TYPE_CHUNK:
+                this.name = ByteBufUtils.readUTF8String(buffer);
+                this.size = buffer.readLong();
+                this.offset = buffer.readLong();
+                //onMessageは受信直後に同じスレッドで呼ばれるのでコピーしない
+                this.data = buffer.readSlice(buffer.readInt());
+                break;
         }
-        this.bytes = new byte[index];
-        buffer.readBytes(bytes);
     }
 
     @Override
     public IMessage onMessage(PacketModelPack message, MessageContext ctx) {
-        writer.onPacket(message.name, message.size, message.bytes);
+        switch (message.type) {
+            case TYPE_MANIFEST:
+                writer.onManifest(message.entries);
+                break;
+            case TYPE_CHUNK:
+                writer.onChunk(message.name, message.size, message.offset, message.data.nioBuffer());
+                break;
+            case TYPE_FINISH:
+                writer.onFinish();
+                break;
+        }
         return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,54 @@
+package jp.ngt.rtm.network;
+
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import io.netty.buffer.ByteBuf;
+import jp.ngt.rtm.modelpack.ModelPackEntry;
+import jp.ngt.rtm.modelpack.ModelPackUploadThread;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * クライアントに無い, または内容が異なるモデルパックの要求<br>
+ * offsetは途中まで受信済みのバイト数 (切断後の再開用)
+ */
+public class PacketModelPackRequest implements IMessage, IMessageHandler<PacketModelPackRequest, IMessage> {
+    private List<ModelPackEntry> entries;
+    private long[] offsets;
+
+    public PacketModelPackRequest() {
+    }
+
+    public PacketModelPackRequest(List<ModelPackEntry> entries, long[] offsets) {
+        this.entries = entries;
+        this.offsets = offsets;
+    }
+
+    @Override
+    public void toBytes(ByteBuf buffer) {
+        buffer.writeInt(this.entries.size());
+        for (int i = 0; i < this.entries.size(); ++i) {
+            this.entries.get(i).writeTo(buffer);
+            buffer.writeLong(this.offsets[i]);
+        }
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buffer) {
+        int count = buffer.readInt();
+        this.entries = new ArrayList<>(count);
+        this.offsets = new long[count];
+        for (int i = 0; i < count; ++i) {
+            this.entries.add(ModelPackEntry.readFrom(buffer));
+            this.offsets[i] = buffer.readLong();
+        }
+    }
+
+    @Override
+    public IMessage onMessage(PacketModelPackRequest message, MessageContext ctx) {
+        ModelPackUploadThread.request(ctx.getServerHandler().playerEntity, message.entries, message.offsets);
+        return null;
+    }
+}
@@ -30,8 +30,8 @@ public class PacketNoticeHandlerServer implements IMessageHandler<PacketNotice,
             if (message.notice.equals("isConnected")) {
                 RTMCore.NETWORK_WRAPPER.sendToAll(new PacketNotice(PacketNotice.Side_CLIENT, "setConnected"));
             } else if (message.notice.startsWith("getModelPack")) {
-                RTMCore.NETWORK_WRAPPER.sendToAll(new PacketNotice(PacketNotice.Side_CLIENT, "setConnected"));
-                ModelPackUploadThread.startThread();
+                RTMCore.NETWORK_WRAPPER.sendTo(new PacketNotice(PacketNotice.Side_CLIENT, "setConnected"), ctx.getServerHandler().playerEntity);
+                ModelPackUploadThread.sendManifest(ctx.getServerHandler().playerEntity);
             } else if (message.notice.startsWith("StartCrafting")) {
                 TileEntity tile = message.getTileEntity(world);
                 if (tile instanceof TileEntityTrainWorkBench) {
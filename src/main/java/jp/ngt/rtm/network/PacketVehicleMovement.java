@@ -79,20 +79,27 @@ public class PacketVehicleMovement implements IMessage, IMessageHandler<PacketVe
 
         Entity entity = world.getEntityByID(message.entityId);
         if (entity != null) {
-            entity.serverPosX = message.trainX;
-            entity.serverPosY = message.trainY;
-            entity.serverPosZ = message.trainZ;
-            double x = (double) entity.serverPosX * DIV_32;
-            double y = (double) entity.serverPosY * DIV_32;
-            double z = (double) entity.serverPosZ * DIV_32;
-
-            entity.setPositionAndRotation2(x, y, z, message.trainYaw, message.trainPitch, RTMEntity.FREQ_VEHICLE);
-            if (entity instanceof EntityVehicleBase) {
-                ((EntityVehicleBase) entity).setRollAndSpeed(message.trainSpeed, message.trainRoll);
-            } else {
-                ((EntityBogie) entity).setRoll(message.trainRoll);
-            }
+            applyMovement(entity, message.trainX, message.trainY, message.trainZ, message.trainYaw, message.trainPitch, message.trainSpeed, message.trainRoll);
         }
         return null;
     }
+
+    /**
+     * Client, 座標は32倍した値
+     */
+    public static void applyMovement(Entity entity, int x, int y, int z, float yaw, float pitch, float speed, float roll) {
+        entity.serverPosX = x;
+        entity.serverPosY = y;
+        entity.serverPosZ = z;
+        double dx = (double) entity.serverPosX * DIV_32;
+        double dy = (double) entity.serverPosY * DIV_32;
+        double dz = (double) entity.serverPosZ * DIV_32;
+
+        entity.setPositionAndRotation2(dx, dy, dz, yaw, pitch, RTMEntity.FREQ_VEHICLE);
+        if (entity instanceof EntityVehicleBase) {
+            ((EntityVehicleBase) entity).setRollAndSpeed(speed, roll);
+        } else if (entity instanceof EntityBogie) {
+            ((EntityBogie) entity).setRoll(roll);
+        }
+    }
 }
\ No newline at end of file
@@ -142,11 +142,9 @@ public class BlockMarker extends BlockContainer {
             if (type == 0) {
                 RailPosition rpS = this.getRailPosition(world, x, y, z);
 
-                List<TileEntity> tileEntityList = ((List<TileEntity>) world.loadedTileEntityList);
-                if (tileEntityList != null && !tileEntityList.isEmpty()) {
-                    RailPosition rpE = tileEntityList.stream()
-                            .filter(TileEntityMarker.class::isInstance)
-                            .map(TileEntityMarker.class::cast)
+                List<TileEntityMarker> markers = MarkerIndex.get(world).getMarkers(x, z, dis1 + 1);
+                if (!markers.isEmpty()) {
+                    RailPosition rpE = markers.stream()
                             .filter(tile -> tile.getMarkerRP() != rpS)
                             .filter(tile -> tile.getBlockType().equals(RTMBlock.marker))
                             .filter(tile -> tile.getDistanceFrom(x, tile.yCoord, z) < dis3)
@@ -161,11 +159,9 @@ public class BlockMarker extends BlockContainer {
                 }
             } else if (type == 1) {
                 List<RailPosition> list = new ArrayList<>();
-                List<TileEntity> tileEntityList = ((List<TileEntity>) world.loadedTileEntityList);
-                if (tileEntityList != null && !tileEntityList.isEmpty()) {
-                    list = tileEntityList.stream()
-                            .filter(TileEntityMarker.class::isInstance)
-                            .map(TileEntityMarker.class::cast)
+                List<TileEntityMarker> markers = MarkerIndex.get(world).getMarkers(x, z, dis1 + 1);
+                if (!markers.isEmpty()) {
+                    list = markers.stream()
                             .filter(tile -> tile.getDistanceFrom(x, tile.yCoord, z) < dis3)
                             .filter(tile -> Math.abs(tile.yCoord - y) < hei1)
                             .sorted(Comparator.comparingInt(o -> Math.abs(o.yCoord - y)))
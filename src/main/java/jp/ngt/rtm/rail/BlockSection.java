@@ -0,0 +1,40 @@
+package jp.ngt.rtm.rail;
+
+import net.minecraft.world.ChunkPosition;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 閉塞区間, 同じ名前を設定されたレールの集まり<br>
+ * {@link RailTopology}が管理する
+ */
+public final class BlockSection {
+    public final String name;
+    final Set<TileEntityLargeRailCore> rails = new LinkedHashSet<>();
+    /**
+     * 区間内にいる台車の数
+     */
+    int occupancy;
+    /**
+     * 区間の端 (区間外のレールと接続している点, または終端), トポロジーの変更で破棄
+     */
+    ChunkPosition[] boundary;
+
+    BlockSection(String name) {
+        this.name = name;
+    }
+
+    public Set<TileEntityLargeRailCore> getRails() {
+        return Collections.unmodifiableSet(this.rails);
+    }
+
+    public int getOccupancy() {
+        return this.occupancy;
+    }
+
+    public boolean isOccupied() {
+        return this.occupancy > 0;
+    }
+}
@@ -0,0 +1,86 @@
+package jp.ngt.rtm.rail;
+
+import net.minecraft.util.LongHashMap;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * ワールドごとのマーカーのチャンク単位の索引<br>
+ * {@link TileEntityMarker}のvalidate/invalidate/onChunkUnloadで更新される
+ */
+public final class MarkerIndex {
+    private static final Map<World, MarkerIndex> INDICES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * チャンク -> マーカー
+     */
+    private final LongHashMap chunks = new LongHashMap();
+
+    private MarkerIndex() {
+    }
+
+    public static MarkerIndex get(World world) {
+        return INDICES.computeIfAbsent(world, key -> new MarkerIndex());
+    }
+
+    public static void remove(World world) {
+        INDICES.remove(world);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void add(TileEntityMarker marker) {
+        long key = getChunkKey(marker.xCoord, marker.zCoord);
+        List<TileEntityMarker> list = (List<TileEntityMarker>) this.chunks.getValueByKey(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            this.chunks.add(key, list);
+        }
+        if (!list.contains(marker)) {
+            list.add(marker);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void remove(TileEntityMarker marker) {
+        long key = getChunkKey(marker.xCoord, marker.zCoord);
+        List<TileEntityMarker> list = (List<TileEntityMarker>) this.chunks.getValueByKey(key);
+        if (list != null) {
+            list.remove(marker);
+            if (list.isEmpty()) {
+                this.chunks.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @param range XZ方向の範囲(ブロック)
+     * @return 指定範囲を含むチャンク内のマーカー, 範囲外のものも含む
+     */
+    @SuppressWarnings("unchecked")
+    public List<TileEntityMarker> getMarkers(int x, int z, int range) {
+        List<TileEntityMarker> markers = new ArrayList<>();
+        int minCX = (x - range) >> 4;
+        int maxCX = (x + range) >> 4;
+        int minCZ = (z - range) >> 4;
+        int maxCZ = (z + range) >> 4;
+        for (int cx = minCX; cx <= maxCX; ++cx) {
+            for (int cz = minCZ; cz <= maxCZ; ++cz) {
+                List<TileEntityMarker> list = (List<TileEntityMarker>) this.chunks.getValueByKey(ChunkCoordIntPair.chunkXZ2Int(cx, cz));
+                if (list != null) {
+                    list.stream().filter(marker -> !marker.isInvalid()).forEach(markers::add);
+                }
+            }
+        }
+        return markers;
+    }
+
+    private static long getChunkKey(int x, int z) {
+        return ChunkCoordIntPair.chunkXZ2Int(x >> 4, z >> 4);
+    }
+}
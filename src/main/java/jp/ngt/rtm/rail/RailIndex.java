@@ -0,0 +1,116 @@
+package jp.ngt.rtm.rail;
+
+import net.minecraft.util.LongHashMap;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.World;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * ワールドごとのレールブロックの位置の索引<br>
+ * {@link TileEntityLargeRailBase}のvalidate/invalidate/onChunkUnloadで更新される
+ */
+public final class RailIndex {
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private static final Map<World, RailIndex> INDICES = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * チャンク -> 列(x & 15 | (z & 15) << 4) -> 昇順のY座標
+     */
+    private final LongHashMap chunks = new LongHashMap();
+
+    private RailIndex() {
+    }
+
+    public static RailIndex get(World world) {
+        return INDICES.computeIfAbsent(world, key -> new RailIndex());
+    }
+
+    public static void remove(World world) {
+        INDICES.remove(world);
+    }
+
+    public void add(int x, int y, int z) {
+        long key = getChunkKey(x, z);
+        int[][] columns = (int[][]) this.chunks.getValueByKey(key);
+        if (columns == null) {
+            columns = new int[256][];
+            this.chunks.add(key, columns);
+        }
+
+        int column = getColumn(x, z);
+        int[] ys = columns[column] == null ? EMPTY : columns[column];
+        int i = Arrays.binarySearch(ys, y);
+        if (i < 0) {
+            i = -i - 1;
+            int[] newYs = new int[ys.length + 1];
+            System.arraycopy(ys, 0, newYs, 0, i);
+            newYs[i] = y;
+            System.arraycopy(ys, i, newYs, i + 1, ys.length - i);
+            columns[column] = newYs;
+        }
+    }
+
+    public void remove(int x, int y, int z) {
+        long key = getChunkKey(x, z);
+        int[][] columns = (int[][]) this.chunks.getValueByKey(key);
+        if (columns == null) {
+            return;
+        }
+
+        int column = getColumn(x, z);
+        int[] ys = columns[column];
+        if (ys == null) {
+            return;
+        }
+
+        int i = Arrays.binarySearch(ys, y);
+        if (i >= 0) {
+            if (ys.length == 1) {
+                columns[column] = null;
+                if (Arrays.stream(columns).allMatch(entry -> entry == null)) {
+                    this.chunks.remove(key);
+                }
+            } else {
+                int[] newYs = new int[ys.length - 1];
+                System.arraycopy(ys, 0, newYs, 0, i);
+                System.arraycopy(ys, i + 1, newYs, i, ys.length - i - 1);
+                columns[column] = newYs;
+            }
+        }
+    }
+
+    /**
+     * @return 指定座標以下(Y >= 0)で最も高いレールブロックのY座標, 無ければ{@link #NONE}
+     */
+    public int getRailY(int x, int y, int z) {
+        int[][] columns = (int[][]) this.chunks.getValueByKey(getChunkKey(x, z));
+        if (columns == null) {
+            return NONE;
+        }
+
+        int[] ys = columns[getColumn(x, z)];
+        if (ys == null) {
+            return NONE;
+        }
+
+        int i = Arrays.binarySearch(ys, y);
+        if (i < 0) {
+            i = -i - 2;//y未満で最大の要素
+        }
+        return (i >= 0 && ys[i] >= 0) ? ys[i] : NONE;
+    }
+
+    private static long getChunkKey(int x, int z) {
+        return ChunkCoordIntPair.chunkXZ2Int(x >> 4, z >> 4);
+    }
+
+    private static int getColumn(int x, int z) {
+        return (x & 15) | ((z & 15) << 4);
+    }
+}
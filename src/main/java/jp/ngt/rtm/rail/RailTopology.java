@@ -0,0 +1,344 @@
+package jp.ngt.rtm.rail;
+
+import jp.ngt.rtm.electric.SignalLevel;
+import jp.ngt.rtm.electric.TileEntitySignal;
+import jp.ngt.rtm.entity.train.EntityBogie;
+import jp.ngt.rtm.rail.util.RailPosition;
+import net.minecraft.world.ChunkPosition;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * ワールドごとのレールの接続と閉塞区間 (Server Only)<br>
+ * ノードは{@link RailPosition}の位置, 辺はレール(分岐は全ての端を繋ぐ).
+ * 台車がレールを移る度に区間の在線を更新し, 変化があったtickの終わりに
+ * 区間に割り当てられた信号機の現示を計算して, 変わったものだけ送る
+ */
+public final class RailTopology {
+    private static final Map<World, RailTopology> TOPOLOGIES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final World world;
+    private final Map<ChunkPosition, List<TileEntityLargeRailCore>> nodes = new HashMap<>();
+    private final Map<TileEntityLargeRailCore, ChunkPosition[]> rails = new HashMap<>();
+    private final Map<String, BlockSection> sections = new LinkedHashMap<>();
+    private final Map<EntityBogie, Occupant> occupants = new HashMap<>();
+    private final Map<TileEntitySignal, SignalBinding> signals = new HashMap<>();
+    /**
+     * 在線または接続が変わった, 次のtickで現示を計算し直す
+     */
+    private boolean dirty;
+
+    private RailTopology(World world) {
+        this.world = world;
+    }
+
+    public static RailTopology get(World world) {
+        return TOPOLOGIES.computeIfAbsent(world, RailTopology::new);
+    }
+
+    public static void remove(World world) {
+        TOPOLOGIES.remove(world);
+    }
+
+    /**
+     * ワールドのtick終了時に呼ぶ
+     */
+    public static void tick(World world) {
+        RailTopology topology = TOPOLOGIES.get(world);
+        if (topology != null) {
+            topology.update();
+        }
+    }
+
+    public Collection<BlockSection> getSections() {
+        return Collections.unmodifiableCollection(this.sections.values());
+    }
+
+    public BlockSection getSection(String name) {
+        return name.isEmpty() ? null : this.sections.get(name);
+    }
+
+    private BlockSection getOrCreateSection(String name) {
+        return name.isEmpty() ? null : this.sections.computeIfAbsent(name, BlockSection::new);
+    }
+
+    //**レール*****************************************************************************/
+
+    /**
+     * 登録済みの場合は登録し直す (RailPositionや区間の変更時)
+     */
+    public void addRail(TileEntityLargeRailCore rail) {
+        this.removeRail(rail);
+        if (!rail.isLoaded()) {
+            return;
+        }
+
+        RailPosition[] positions = rail.getRailPositions();
+        ChunkPosition[] keys = new ChunkPosition[positions.length];
+        for (int i = 0; i < positions.length; ++i) {
+            keys[i] = new ChunkPosition(positions[i].blockX, positions[i].blockY, positions[i].blockZ);
+            this.nodes.computeIfAbsent(keys[i], key -> new ArrayList<>(2)).add(rail);
+        }
+        this.rails.put(rail, keys);
+
+        BlockSection section = this.getOrCreateSection(rail.getBlockSection());
+        if (section != null) {
+            section.rails.add(rail);
+        }
+        this.onRailChanged(rail);
+    }
+
+    public void removeRail(TileEntityLargeRailCore rail) {
+        ChunkPosition[] keys = this.rails.remove(rail);
+        if (keys == null) {
+            return;
+        }
+
+        for (ChunkPosition key : keys) {
+            List<TileEntityLargeRailCore> list = this.nodes.get(key);
+            if (list != null) {
+                list.remove(rail);
+                if (list.isEmpty()) {
+                    this.nodes.remove(key);
+                }
+            }
+        }
+        //レールが無くなった区間は破棄, 信号機は名前で区間を探すので残す必要はない
+        Iterator<BlockSection> iterator = this.sections.values().iterator();
+        while (iterator.hasNext()) {
+            BlockSection section = iterator.next();
+            if (section.rails.remove(rail) && section.rails.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        this.onRailChanged(rail);
+    }
+
+    /**
+     * 区間の端を破棄し, 変更されたレール上の台車を数え直す
+     */
+    private void onRailChanged(TileEntityLargeRailCore rail) {
+        this.sections.values().forEach(section -> section.boundary = null);
+        this.occupants.values().stream()
+                .filter(occupant -> occupant.rail == rail)
+                .forEach(occupant -> occupant.setSection(this.getSectionOf(rail)));
+        this.dirty = true;
+    }
+
+    /**
+     * 登録されていないレールはどの区間にも属さない
+     */
+    private BlockSection getSectionOf(TileEntityLargeRailCore rail) {
+        return this.rails.containsKey(rail) ? this.getSection(rail.getBlockSection()) : null;
+    }
+
+    //**在線*****************************************************************************/
+
+    /**
+     * {@link EntityBogie#onChangeRail(TileEntityLargeRailCore)}から呼ばれる
+     */
+    public void onBogieChangeRail(EntityBogie bogie, TileEntityLargeRailCore rail) {
+        Occupant occupant = this.occupants.computeIfAbsent(bogie, key -> new Occupant());
+        occupant.rail = rail;
+        if (occupant.setSection(this.getSectionOf(rail))) {
+            this.dirty = true;
+        }
+    }
+
+    public void removeBogie(EntityBogie bogie) {
+        Occupant occupant = this.occupants.remove(bogie);
+        if (occupant != null && occupant.setSection(null)) {
+            this.dirty = true;
+        }
+    }
+
+    //**信号機*****************************************************************************/
+
+    public void addSignal(TileEntitySignal signal) {
+        this.removeSignal(signal);
+        if (!signal.getBlockSection().isEmpty()) {
+            this.signals.put(signal, new SignalBinding(signal.getBlockSection()));
+            this.dirty = true;
+        }
+    }
+
+    public void removeSignal(TileEntitySignal signal) {
+        this.signals.remove(signal);
+    }
+
+    //**現示の計算*****************************************************************************/
+
+    private void update() {
+        //アンロード, 削除された台車
+        Iterator<Map.Entry<EntityBogie, Occupant>> iterator = this.occupants.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<EntityBogie, Occupant> entry = iterator.next();
+            EntityBogie bogie = entry.getKey();
+            if (bogie.isDead || this.world.getEntityByID(bogie.getEntityId()) != bogie) {
+                if (entry.getValue().setSection(null)) {
+                    this.dirty = true;
+                }
+                iterator.remove();
+            }
+        }
+
+        if (!this.dirty) {
+            return;
+        }
+        this.dirty = false;
+
+        this.signals.forEach((signal, binding) -> {
+            if (signal.isInvalid()) {
+                return;
+            }
+
+            int aspect = this.getAspect(signal, this.getSection(binding.section));
+            if (aspect != binding.aspect) {
+                binding.aspect = aspect;
+                signal.setSignalLevel(aspect);
+            }
+        });
+    }
+
+    /**
+     * 停止 + 先の空いている区間の数, 信号機の最大現示まで
+     */
+    private int getAspect(TileEntitySignal signal, BlockSection section) {
+        int stop = SignalLevel.STOP.level;
+        if (section == null || section.rails.isEmpty()) {
+            return stop;
+        }
+
+        int limit = signal.getModelSet().maxSignalLevel - stop;
+        if (limit <= 0) {
+            return stop;
+        }
+
+        ChunkPosition entrance = this.getNearestBoundary(section, signal.xCoord, signal.yCoord, signal.zCoord);
+        return stop + this.countClearSections(section, entrance, limit);
+    }
+
+    /**
+     * entranceから入ってsectionを抜けた先で, 連続して空いている区間の数<br>
+     * 分岐の先は最も制限の厳しいものを採用
+     *
+     * @param limit これ以上は数えない
+     */
+    private int countClearSections(BlockSection section, ChunkPosition entrance, int limit) {
+        if (section.isOccupied()) {
+            return 0;
+        }
+        if (limit <= 1) {
+            return 1;
+        }
+
+        int ahead = Integer.MAX_VALUE;
+        for (ChunkPosition exit : this.getBoundary(section)) {
+            if (exit.equals(entrance)) {
+                continue;
+            }
+
+            //区間の無いレール, 終端の先は数えない
+            int count = 0;
+            Set<BlockSection> nextSections = this.getSectionsAt(exit, section);
+            if (!nextSections.isEmpty()) {
+                count = Integer.MAX_VALUE;
+                for (BlockSection next : nextSections) {
+                    count = Math.min(count, this.countClearSections(next, exit, limit - 1));
+                }
+            }
+            ahead = Math.min(ahead, count);
+        }
+        return 1 + (ahead == Integer.MAX_VALUE ? 0 : ahead);
+    }
+
+    private Set<BlockSection> getSectionsAt(ChunkPosition node, BlockSection except) {
+        Set<BlockSection> set = new HashSet<>();
+        for (TileEntityLargeRailCore rail : this.nodes.getOrDefault(node, Collections.emptyList())) {
+            BlockSection section = this.getSectionOf(rail);
+            if (section != except) {
+                set.add(section);
+            }
+        }
+        //区間の無いレールがあれば先は数えない
+        return set.contains(null) ? Collections.emptySet() : set;
+    }
+
+    private ChunkPosition getNearestBoundary(BlockSection section, int x, int y, int z) {
+        ChunkPosition nearest = null;
+        double min = Double.MAX_VALUE;
+        for (ChunkPosition node : this.getBoundary(section)) {
+            double dx = node.chunkPosX - x;
+            double dy = node.chunkPosY - y;
+            double dz = node.chunkPosZ - z;
+            double d = dx * dx + dy * dy + dz * dz;
+            if (d < min) {
+                min = d;
+                nearest = node;
+            }
+        }
+        return nearest;
+    }
+
+    private ChunkPosition[] getBoundary(BlockSection section) {
+        if (section.boundary == null) {
+            Set<ChunkPosition> boundary = new HashSet<>();
+            for (TileEntityLargeRailCore rail : section.rails) {
+                for (ChunkPosition node : this.rails.getOrDefault(rail, new ChunkPosition[0])) {
+                    List<TileEntityLargeRailCore> list = this.nodes.get(node);
+                    if (list.size() == 1 || !section.rails.containsAll(list)) {
+                        boundary.add(node);
+                    }
+                }
+            }
+            section.boundary = boundary.toArray(new ChunkPosition[0]);
+        }
+        return section.boundary;
+    }
+
+    private static final class Occupant {
+        private TileEntityLargeRailCore rail;
+        private BlockSection section;
+
+        /**
+         * @return 区間が変わった場合true
+         */
+        private boolean setSection(BlockSection section) {
+            if (this.section == section) {
+                return false;
+            }
+
+            if (this.section != null) {
+                --this.section.occupancy;
+            }
+            if (section != null) {
+                ++section.occupancy;
+            }
+            this.section = section;
+            return true;
+        }
+    }
+
+    private static final class SignalBinding {
+        private final String section;
+        /**
+         * 最後に送った現示
+         */
+        private int aspect = -1;
+
+        private SignalBinding(String section) {
+            this.section = section;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
 import jp.ngt.rtm.modelpack.modelset.ModelSetRailClient;
 import jp.ngt.rtm.rail.util.RailProperty;
+import jp.ngt.rtm.render.ModelObject;
 import jp.ngt.rtm.render.RailPartsRenderer;
 import net.minecraft.client.renderer.tileentity.TileEntitySpecialRenderer;
 import net.minecraft.tileentity.TileEntity;
@@ -35,12 +36,17 @@ public class RenderLargeRail extends TileEntitySpecialRenderer {
 
         try {
             ModelSetRailClient modelSet = (ModelSetRailClient) tileEntity.getProperty().getModelSet();
-            RailPartsRenderer renderer = (RailPartsRenderer) modelSet.model.renderer;
-            renderer.renderRail(tileEntity, 0, par2, par4, par6, par8);
+            if (modelSet.model.ensureLoaded()) {
+                RailPartsRenderer renderer = (RailPartsRenderer) modelSet.model.renderer;
+                renderer.renderRail(tileEntity, 0, par2, par4, par6, par8);
+            }
             IntStream.range(0, tileEntity.subRails.size()).forEach(i -> {
                 RailProperty property = tileEntity.subRails.get(i);
-                RailPartsRenderer subRenderer = (RailPartsRenderer) ((ModelSetRailClient) property.getModelSet()).model.renderer;
-                subRenderer.renderRail(tileEntity, i + 1, par2, par4, par6, par8);
+                ModelObject subModel = ((ModelSetRailClient) property.getModelSet()).model;
+                if (subModel.ensureLoaded()) {
+                    RailPartsRenderer subRenderer = (RailPartsRenderer) subModel.renderer;
+                    subRenderer.renderRail(tileEntity, i + 1, par2, par4, par6, par8);
+                }
             });
         } catch (ClassCastException ignored) {
         }
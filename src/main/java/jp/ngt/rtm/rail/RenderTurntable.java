@@ -45,8 +45,10 @@ public class RenderTurntable extends RenderLargeRail {
             GL11.glTranslatef(-(float) (par2 + 0.5F), -(float) (par4), -(float) (par6 + 0.5F));
 
             try {
-                RailPartsRenderer renderer = (RailPartsRenderer) modelSet.model.renderer;
-                renderer.renderRail(tileEntity, 0, par2, par4, par6, par8);
+                if (modelSet.model.ensureLoaded()) {
+                    RailPartsRenderer renderer = (RailPartsRenderer) modelSet.model.renderer;
+                    renderer.renderRail(tileEntity, 0, par2, par4, par6, par8);
+                }
             } catch (ClassCastException ignored) {
             }
         }
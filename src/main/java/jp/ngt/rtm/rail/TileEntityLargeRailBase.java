@@ -59,6 +59,24 @@ public class TileEntityLargeRailBase extends TileEntityCustom implements ILargeR
         this.startPoint[2] = z;
     }
 
+    @Override
+    public void validate() {
+        super.validate();
+        RailIndex.get(this.worldObj).add(this.xCoord, this.yCoord, this.zCoord);
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        RailIndex.get(this.worldObj).remove(this.xCoord, this.yCoord, this.zCoord);
+    }
+
+    @Override
+    public void onChunkUnload() {
+        super.onChunkUnload();
+        RailIndex.get(this.worldObj).remove(this.xCoord, this.yCoord, this.zCoord);
+    }
+
     public boolean isTrainOnRail() {
         TileEntityLargeRailCore tile = this.getRailCore();
         if (tile != null) {
@@ -106,6 +124,18 @@ public class TileEntityLargeRailBase extends TileEntityCustom implements ILargeR
         int x = MathHelper.floor_double(px);
         int y = MathHelper.floor_double(py);
         int z = MathHelper.floor_double(pz);
+
+        int railY = RailIndex.get(world).getRailY(x, y, z);
+        if (railY != RailIndex.NONE) {
+            TileEntity tile = world.getTileEntity(x, railY, z);
+            if (tile instanceof TileEntityLargeRailBase) {
+                return (TileEntityLargeRailBase) tile;
+            }
+        } else if (!world.isRemote && world.getChunkProvider().chunkExists(x >> 4, z >> 4)) {
+            return null;//読み込み済みチャンクのTileEntityは全て索引に登録されている
+        }
+
+        //索引に無い場合はブロックを走査
         while (y > 0) {
             Block block = world.getBlock(x, y, z);
             if (block instanceof BlockLargeRailBase) {
@@ -28,6 +28,10 @@ public abstract class TileEntityLargeRailCore extends TileEntityLargeRailBase {
     protected boolean isCollidedTrain = false;
     public boolean colliding = false;
     private int signal = 0;
+    /**
+     * 閉塞区間の名前, 空なら区間に属さない
+     */
+    private String blockSection = "";
 
     //private byte railShape;
     private byte railShapeTemp = -1;
@@ -66,6 +70,7 @@ public abstract class TileEntityLargeRailCore extends TileEntityLargeRailBase {
         //this.railShape = nbt.getByte("railShape");
         this.readRailProperties(nbt);
         this.readRailData(nbt);
+        this.blockSection = nbt.getString("BlockSection");
     }
 
     public void readRailProperties(NBTTagCompound nbt) {
@@ -115,6 +120,7 @@ public abstract class TileEntityLargeRailCore extends TileEntityLargeRailBase {
         //nbt.setByte("railShape", this.railShape);
         this.writeRailProperties(nbt);
         this.writeRailData(nbt);
+        nbt.setString("BlockSection", this.blockSection);
     }
 
     public void writeRailProperties(NBTTagCompound nbt) {
@@ -156,6 +162,9 @@ public abstract class TileEntityLargeRailCore extends TileEntityLargeRailBase {
 
     public void setRailPositions(RailPosition[] par1) {
         this.railPositions = par1;
+        if (this.worldObj != null && !this.worldObj.isRemote && !this.isInvalid()) {
+            RailTopology.get(this.worldObj).addRail(this);
+        }
     }
 
     public RailProperty getProperty() {
@@ -178,6 +187,19 @@ public abstract class TileEntityLargeRailCore extends TileEntityLargeRailBase {
         this.signal = par1;
     }
 
+    public String getBlockSection() {
+        return this.blockSection;
+    }
+
+    /**
+     * Server Only
+     */
+    public void setBlockSection(String name) {
+        this.blockSection = name;
+        RailTopology.get(this.worldObj).addRail(this);
+        this.markDirty();
+    }
+
     @Override
     public TileEntityLargeRailCore getRailCore() {
         return this;
@@ -190,10 +212,28 @@ public abstract class TileEntityLargeRailCore extends TileEntityLargeRailBase {
         this.shouldRerenderRail = true;
     }
 
+    @Override
+    public void validate() {
+        super.validate();
+        if (!this.worldObj.isRemote) {
+            RailTopology.get(this.worldObj).addRail(this);
+        }
+    }
+
     @Override
     public void onChunkUnload() {
+        super.onChunkUnload();
         if (this.worldObj.isRemote) {
             this.deleteGLList();
+        } else {
+            RailTopology.get(this.worldObj).removeRail(this);
+        }
+        this.releaseRailMapCache();
+    }
+
+    protected void releaseRailMapCache() {
+        if (this.railmap != null) {
+            this.railmap.releaseCache();
         }
     }
 
@@ -233,9 +273,13 @@ public abstract class TileEntityLargeRailCore extends TileEntityLargeRailBase {
 
     @Override
     public void invalidate() {
+        super.invalidate();
         if (this.worldObj.isRemote) {
             this.deleteGLList();
+        } else {
+            RailTopology.get(this.worldObj).removeRail(this);
         }
+        this.releaseRailMapCache();
     }
 
     @Override
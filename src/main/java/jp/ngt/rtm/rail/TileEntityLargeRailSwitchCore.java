@@ -8,6 +8,7 @@ import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.MathHelper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.IntStream;
 
@@ -134,6 +135,13 @@ public class TileEntityLargeRailSwitchCore extends TileEntityLargeRailCore {
         return st.getRailMap(entity);
     }
 
+    @Override
+    protected void releaseRailMapCache() {
+        if (this.switchObj != null) {
+            Arrays.stream(this.switchObj.getAllRailMap()).forEach(RailMap::releaseCache);
+        }
+    }
+
     @Override
     public RailMapSwitch[] getAllRailMaps() {
         if (this.getSwitch() != null) {
@@ -94,6 +94,24 @@ public class TileEntityMarker extends TileEntity {
         }
     }
 
+    @Override
+    public void validate() {
+        super.validate();
+        MarkerIndex.get(this.worldObj).add(this);
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        MarkerIndex.get(this.worldObj).remove(this);
+    }
+
+    @Override
+    public void onChunkUnload() {
+        super.onChunkUnload();
+        MarkerIndex.get(this.worldObj).remove(this);
+    }
+
     @Override
     public void updateEntity() {
         super.updateEntity();
@@ -0,0 +1,120 @@
+package jp.ngt.rtm.rail.util;
+
+import net.minecraft.block.Block;
+import net.minecraft.init.Blocks;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.Facing;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * レールの設置/破壊時のブロック変更をまとめて行う<br>
+ * ブロックはチャンクごとにまとめて変更し, 範囲内同士の隣接ブロック通知と
+ * loadedTileEntityListの走査を1回にする
+ */
+public final class RailEditBatch {
+    private final World world;
+    private final List<int[]> positions = new ArrayList<>();
+    private final Set<Long> positionSet = new HashSet<>();
+    private final Set<TileEntity> removedTileEntities = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public RailEditBatch(World world) {
+        this.world = world;
+    }
+
+    public void add(int x, int y, int z) {
+        if (this.positionSet.add(pack(x, y, z))) {
+            this.positions.add(new int[]{x, y, z});
+        }
+    }
+
+    public void addAll(List<int[]> list) {
+        list.forEach(pos -> this.add(pos[0], pos[1], pos[2]));
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return this.positionSet.contains(pack(x, y, z));
+    }
+
+    /**
+     * {@link #removeTileEntities()}でloadedTileEntityListから取り除く
+     */
+    public void markTileEntityRemoved(TileEntity tile) {
+        this.removedTileEntities.add(tile);
+    }
+
+    /**
+     * チャンク順に処理
+     */
+    public void forEach(Consumer<int[]> action) {
+        this.positions.sort(Comparator.<int[]>comparingLong(pos -> ChunkCoordIntPair.chunkXZ2Int(pos[0] >> 4, pos[2] >> 4)).thenComparingInt(pos -> pos[1]));
+        this.positions.forEach(action);
+    }
+
+    /**
+     * loadedTileEntityListを1回だけ走査して取り除く
+     */
+    @SuppressWarnings("unchecked")
+    public void removeTileEntities() {
+        if (!this.removedTileEntities.isEmpty()) {
+            ((List<TileEntity>) this.world.loadedTileEntityList).removeIf(this.removedTileEntities::contains);
+            this.removedTileEntities.clear();
+        }
+    }
+
+    /**
+     * TileEntityをチャンクから外してから空気に置き換える (flag 2相当)<br>
+     * breakBlock()とWorld.removeTileEntity()を通さないので, loadedTileEntityListは走査しない.
+     * レールは光を遮らないので明るさの再計算は不要
+     */
+    public void clearBlocks() {
+        this.forEach(pos -> {
+            if (pos[1] < 0 || pos[1] >= 256) {
+                return;
+            }
+
+            Chunk chunk = this.world.getChunkFromBlockCoords(pos[0], pos[2]);
+            int x = pos[0] & 15;
+            int z = pos[2] & 15;
+            chunk.removeTileEntity(x, pos[1], z);
+            ExtendedBlockStorage storage = chunk.getBlockStorageArray()[pos[1] >> 4];
+            if (storage != null) {
+                storage.func_150818_a(x, pos[1] & 15, z, Blocks.air);
+                storage.setExtBlockMetadata(x, pos[1] & 15, z, 0);
+            }
+            chunk.setChunkModified();
+            this.world.markBlockForUpdate(pos[0], pos[1], pos[2]);
+        });
+    }
+
+    /**
+     * 変更範囲の外側にあるブロックにのみ隣接ブロック変更を通知
+     */
+    public void notifyNeighbors(Block block) {
+        this.positions.forEach(pos -> {
+            for (int side = 0; side < 6; ++side) {
+                int x = pos[0] + Facing.offsetsXForSide[side];
+                int y = pos[1] + Facing.offsetsYForSide[side];
+                int z = pos[2] + Facing.offsetsZForSide[side];
+                if (!this.contains(x, y, z)) {
+                    this.world.notifyBlockOfNeighborChange(x, y, z, block);
+                }
+            }
+        });
+    }
+
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (long) (y & 0xFFF);
+    }
+}
@@ -9,18 +9,32 @@ import jp.ngt.rtm.rail.BlockMarker;
 import jp.ngt.rtm.rail.TileEntityLargeRailBase;
 import jp.ngt.rtm.rail.TileEntityLargeRailCore;
 import net.minecraft.block.Block;
+import net.minecraft.init.Blocks;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.LongHashMap;
 import net.minecraft.util.MathHelper;
 import net.minecraft.util.Vec3;
+import net.minecraft.world.ChunkCoordIntPair;
 import net.minecraft.world.World;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.stream.IntStream;
 
 public abstract class RailMap {
+    private static final int REMOVED_BLOCK = Integer.MIN_VALUE;
+
     protected final List<int[]> rails = new ArrayList<>();
+    /**
+     * 作成中の道床ブロックの索引, XZ -> {x, y, z}
+     */
+    private LongHashMap railBlockIndex;
+    private int[] startNeighborPos;
+    private int[] endNeighborPos;
+    /**
+     * railsを作成した時の道床幅, 未作成なら-1
+     */
+    private int railListWidth = -1;
 
     public boolean equals(Object obj) {
         if (obj instanceof RailMap) {
@@ -40,6 +54,19 @@ public abstract class RailMap {
 
     public abstract double[] getRailPos(int paramInt1, int paramInt2);
 
+    /**
+     * {@link #getRailPos(int, int)}の配列を生成しない版
+     *
+     * @param dest 結果の格納先(長さ2以上)
+     * @return dest = {z, x}
+     */
+    public double[] getRailPos(int split, int index, double[] dest) {
+        double[] pos = this.getRailPos(split, index);
+        dest[0] = pos[0];
+        dest[1] = pos[1];
+        return dest;
+    }
+
     public abstract double getRailHeight(int paramInt1, int paramInt2);
 
     public abstract float getRailYaw(int paramInt1, int paramInt2);
@@ -59,6 +86,42 @@ public abstract class RailMap {
     }
 
 
+    /**
+     * 計算結果のキャッシュを破棄<br>
+     * レールが取り除かれた時に呼ばれる
+     */
+    public void releaseCache() {
+        this.clearRailList();
+    }
+
+    /**
+     * 道床ブロックのリストを破棄, 次の{@link #prepareRailList(RailProperty)}で作り直す
+     */
+    protected final void clearRailList() {
+        this.rails.clear();
+        this.railListWidth = -1;
+    }
+
+    /**
+     * 道床ブロックのリストを作成済みでなければ作成
+     */
+    protected final List<int[]> prepareRailList(RailProperty prop) {
+        int width = prop.getModelSet().getConfig().ballastWidth;
+        if (this.railListWidth != width) {
+            this.rails.clear();
+            this.railBlockIndex = new LongHashMap();
+            this.startNeighborPos = this.getStartRP().getNeighborPos();
+            this.endNeighborPos = this.getEndRP().getNeighborPos();
+            this.createRailList(prop);
+            this.rails.removeIf(pos -> pos[1] == REMOVED_BLOCK);
+            this.railBlockIndex = null;
+            this.startNeighborPos = null;
+            this.endNeighborPos = null;
+            this.railListWidth = width;
+        }
+        return this.rails;
+    }
+
     /**
      * RailMapの端同士が繋げられるかどうか(=連続した曲線になるか)<br>
      * 同一RailMapの場合はtrue
@@ -86,7 +149,7 @@ public abstract class RailMap {
 
     /**
      * 道床ブロックのリストを作成<br>
-     * レールの生成時と破壊時に呼ばれる
+     * {@link #prepareRailList(RailProperty)}から呼ばれる
      */
     protected void createRailList(RailProperty prop) {
         ModelSetRail modelSet = prop.getModelSet();
@@ -119,45 +182,59 @@ public abstract class RailMap {
         });
     }
 
+    /**
+     * 同じXZには最も低いブロックのみ残す
+     */
     protected void addRailBlock(int x, int y, int z) {
-        for (int i = 0; i < this.rails.size(); i++) {
-            int[] ia = this.rails.get(i);
-            if (ia[0] == x && ia[2] == z) {
-                if (ia[1] <= y) {
-                    return;
-                } else {
-                    this.rails.remove(i);
-                    --i;
-                }
-            }
+        if (this.railBlockIndex == null) {
+            this.railBlockIndex = new LongHashMap();
+            this.rails.forEach(pos -> this.railBlockIndex.add(ChunkCoordIntPair.chunkXZ2Int(pos[0], pos[2]), pos));
         }
-        int[] pos = new int[]{x, y, z};
-        if (!Arrays.equals(pos, this.getStartRP().getNeighborPos()) && !Arrays.equals(pos, this.getEndRP().getNeighborPos())) {
-            this.rails.add(new int[]{x, y, z});//始点と終点に接する位置にはブロック生成しないように
+
+        long key = ChunkCoordIntPair.chunkXZ2Int(x, z);
+        int[] pos = (int[]) this.railBlockIndex.getValueByKey(key);
+        if (pos != null && pos[1] != REMOVED_BLOCK && pos[1] <= y) {
+            return;
         }
+
+        //始点と終点に接する位置にはブロック生成しないように
+        boolean isNeighbor = this.isNeighborPos(this.startNeighborPos, this.getStartRP(), x, y, z)
+                || this.isNeighborPos(this.endNeighborPos, this.getEndRP(), x, y, z);
+        if (pos != null) {
+            pos[1] = isNeighbor ? REMOVED_BLOCK : y;
+        } else if (!isNeighbor) {
+            pos = new int[]{x, y, z};
+            this.railBlockIndex.add(key, pos);
+            this.rails.add(pos);
+        }
+    }
+
+    private boolean isNeighborPos(int[] neighbor, RailPosition rp, int x, int y, int z) {
+        int[] pos = neighbor != null ? neighbor : rp.getNeighborPos();
+        return pos[0] == x && pos[1] == y && pos[2] == z;
     }
 
     /**
      * ブロックの設置
      */
     public void setRail(World world, Block block, int x0, int y0, int z0, RailProperty prop) {
-        this.createRailList(prop);
+        this.prepareRailList(prop);
 //		setBaseBlock(world, x0, y0, z0);
+        RailEditBatch batch = new RailEditBatch(world);
         this.rails.forEach(rail -> {
-            int x = rail[0];
-            int y = rail[1];
-            int z = rail[2];
-            Block block2 = world.getBlock(x, y, z);
+            Block block2 = world.getBlock(rail[0], rail[1], rail[2]);
             if (!(block2 instanceof BlockLargeRailBase) || block2 == block)//異なる種類のレールを上書きしない
             {
-                world.setBlock(x, y, z, block, 0, 2);
-                TileEntityLargeRailBase tile = (TileEntityLargeRailBase) world.getTileEntity(x, y, z);
-                if (tile != null) {
-                    tile.setStartPoint(x0, y0, z0);
-                }
+                batch.add(rail[0], rail[1], rail[2]);
+            }
+        });
+        batch.forEach(pos -> {
+            world.setBlock(pos[0], pos[1], pos[2], block, 0, 2);
+            TileEntityLargeRailBase tile = (TileEntityLargeRailBase) world.getTileEntity(pos[0], pos[1], pos[2]);
+            if (tile != null) {
+                tile.setStartPoint(x0, y0, z0);
             }
         });
-        this.rails.clear();
     }
 
     private void setBaseBlock(World world, int x0, int y0, int z0) {
@@ -203,8 +280,8 @@ public abstract class RailMap {
      * ブロックの破壊
      */
     public void breakRail(World world, RailProperty prop, TileEntityLargeRailCore core) {
-        this.createRailList(prop);
-        List<int[]> posList = new ArrayList<>();
+        this.prepareRailList(prop);
+        RailEditBatch batch = new RailEditBatch(world);
         this.rails.forEach(anInt -> {
             int x = anInt[0];
             int y = anInt[1];
@@ -219,25 +296,21 @@ public abstract class RailMap {
                 //coreが既に破壊さている場合は続行
                 TileEntityLargeRailCore core2 = ((TileEntityLargeRailBase) rail).getRailCore();
                 if (core2 == null || core2 == core) {
-                    posList.add(new int[]{x, y, z});
-                    ((List<TileEntity>) world.loadedTileEntityList).remove(rail);
-
+                    batch.add(x, y, z);
+                    batch.markTileEntityRemoved(rail);
                 }
             }
         });
-        posList.forEach(pos -> {
-            world.setBlockToAir(pos[0], pos[1], pos[2]);
-            world.removeTileEntity(pos[0], pos[1], pos[2]);
-        });
-        world.setBlockToAir(core.xCoord, core.yCoord, core.zCoord);
-        world.removeTileEntity(core.xCoord, core.yCoord, core.zCoord);
-        ((List<TileEntity>) world.loadedTileEntityList).remove(core);
+        batch.add(core.xCoord, core.yCoord, core.zCoord);
+        batch.markTileEntityRemoved(core);
 
-        this.rails.clear();
+        batch.removeTileEntities();
+        batch.clearBlocks();
+        batch.notifyNeighbors(Blocks.air);
     }
 
     public boolean canPlaceRail(World world, boolean isCreative, RailProperty prop) {
-        this.createRailList(prop);
+        this.prepareRailList(prop);
         boolean flag = true;
         for (int[] rail : this.rails) {
             int x = rail[0];
@@ -255,8 +328,7 @@ public abstract class RailMap {
     }
 
     public List<int[]> getRailBlockList(RailProperty prop) {
-        this.createRailList(prop);
-        return new ArrayList<>(this.rails);
+        return new ArrayList<>(this.prepareRailList(prop));
     }
 
     public void showRailProp() {
@@ -28,6 +28,11 @@ public class RailMapBasic extends RailMap {
     // version 1: KaizPatch 1.7.0...
     public final int fixRTMRailMapVersion;
     public static int fixRTMRailMapVersionCurrent = 1;
+    /**
+     * 1つのRailMapで保持する分割数ごとのキャッシュの数
+     */
+    private static final int MAX_SAMPLES = 4;
+    private final RailMapSamples[] samples = new RailMapSamples[MAX_SAMPLES];
 
     /**
      * @deprecated use {@link #RailMapBasic(RailPosition, RailPosition, int)}
@@ -51,6 +56,7 @@ public class RailMapBasic extends RailMap {
     }
 
     public void rebuild() {
+        this.releaseCache();
         this.createLine();
     }
 
@@ -144,7 +150,17 @@ public class RailMapBasic extends RailMap {
      * @return {z, x}
      */
     public double[] getRailPos(int par1, int par2) {
-        return this.lineHorizontal.getPoint(par1, par2);
+        return this.getRailPos(par1, par2, new double[2]);
+    }
+
+    @Override
+    public double[] getRailPos(int par1, int par2, double[] dest) {
+        RailMapSamples s = this.getSamples(par1, par2);
+        return s != null ? s.getRailPos(par2, dest) : this.computeRailPos(par1, par2, dest);
+    }
+
+    protected double[] computeRailPos(int par1, int par2, double[] dest) {
+        return this.lineHorizontal.getPoint(par1, par2, dest);
     }
 
     /**
@@ -153,9 +169,13 @@ public class RailMapBasic extends RailMap {
      * @return y
      */
     public double getRailHeight(int par1, int par2) {
+        RailMapSamples s = this.getSamples(par1, par2);
+        return s != null ? s.getRailHeight(par2) : this.computeRailHeight(par1, par2, this.getCant(par1, par2));
+    }
+
+    protected double computeRailHeight(int par1, int par2, float cant) {
         float railWidth = 3.0F;//本来はRailConfigから取得すべし
         double height = this.lineVertical.getPoint(par1, par2)[1];
-        float cant = this.getCant(par1, par2);
         if (cant != 0.0F) {
             double h2 = Math.abs(NGTMath.sin(cant) * railWidth * 0.5F);
             height += h2;
@@ -167,6 +187,11 @@ public class RailMapBasic extends RailMap {
      * @return 0~360
      */
     public float getRailYaw(int par1, int par2) {
+        RailMapSamples s = this.getSamples(par1, par2);
+        return s != null ? s.getRailYaw(par2) : this.computeRailYaw(par1, par2);
+    }
+
+    protected float computeRailYaw(int par1, int par2) {
         return NGTMath.toDegrees((float) this.lineHorizontal.getSlope(par1, par2));
     }
 
@@ -176,6 +201,11 @@ public class RailMapBasic extends RailMap {
      * @return 0~360
      */
     public float getRailPitch(int par1, int par2) {
+        RailMapSamples s = this.getSamples(par1, par2);
+        return s != null ? s.getRailPitch(par2) : this.computeRailPitch(par1, par2);
+    }
+
+    protected float computeRailPitch(int par1, int par2) {
         return NGTMath.toDegrees((float) this.lineVertical.getSlope(par1, par2));
     }
 
@@ -183,6 +213,11 @@ public class RailMapBasic extends RailMap {
      * @return カント
      */
     public float getRailRoll(int split, int t) {
+        RailMapSamples s = this.getSamples(split, t);
+        return s != null ? s.getRailRoll(t) : this.computeRailRoll(split, t);
+    }
+
+    protected float computeRailRoll(int split, int t) {
         float ft = 2.0F * t / split;
         float c1 = (ft <= 1.0F) ? ((1.0F - ft) * this.startRP.cantEdge) : ((ft - 1.0F) * -this.endRP.cantEdge);
         float c2 = (ft <= 1.0F) ? (ft * this.startRP.cantCenter) : ((2.0F - ft) * this.startRP.cantCenter);
@@ -196,6 +231,68 @@ public class RailMapBasic extends RailMap {
         return cunt + rand;
     }
 
+    /**
+     * 値が変化し続けるRailMapではfalseを返すこと
+     */
+    protected boolean useSampleCache() {
+        return true;
+    }
+
+    /**
+     * @return キャッシュできない場合はnull
+     */
+    private RailMapSamples getSamples(int split, int index) {
+        if (!this.useSampleCache()) {
+            return null;
+        }
+
+        //各スロットは1回だけ読む
+        int slot = -1;
+        RailMapSamples oldest = null;
+        for (int i = 0; i < MAX_SAMPLES; ++i) {
+            RailMapSamples s = this.samples[i];
+            if (s != null && s.isEvicted()) {
+                this.samples[i] = null;
+                s = null;
+            }
+
+            if (s == null) {
+                if (slot < 0 || oldest != null) {
+                    slot = i;
+                    oldest = null;
+                }
+            } else if (s.split == split) {
+                s.touch();
+                return s.contains(index) ? s : null;
+            } else if (slot < 0 || (oldest != null && s.getLastAccess() < oldest.getLastAccess())) {
+                slot = i;
+                oldest = s;
+            }
+        }
+
+        RailMapSamples s = RailMapSamples.create(this, split);
+        if (s != null) {
+            if (oldest != null) {
+                oldest.release();
+            }
+            this.samples[slot] = s;
+            return s.contains(index) ? s : null;
+        }
+        return null;
+    }
+
+    @Override
+    public void releaseCache() {
+        super.releaseCache();
+        for (int i = 0; i < MAX_SAMPLES; ++i) {
+            RailMapSamples s = this.samples[i];
+            if (s != null) {
+                s.release();
+                this.samples[i] = null;
+            }
+        }
+    }
+
     public boolean hasPoint(int x, int z) {
         boolean flag1 = this.startRP.blockX == x && this.startRP.blockZ == z;
         boolean flag2 = this.endRP.blockX == x && this.endRP.blockZ == z;
@@ -0,0 +1,187 @@
+package jp.ngt.rtm.rail.util;
+
+import jp.ngt.rtm.RTMConfig;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 分割数ごとのRailMapの座標, 高さ, 角度のキャッシュ<br>
+ * 各点は初回参照時に計算する
+ */
+public final class RailMapSamples {
+    /**
+     * 1点あたりのバイト数(x, z, y: double, yaw, pitch, roll: float)
+     */
+    private static final int BYTES_PER_SAMPLE = 8 * 3 + 4 * 3;
+
+    private static final Set<RailMapSamples> ALL_SAMPLES = new LinkedHashSet<>();
+    private static long totalBytes;
+    /**
+     * 参照順の目安, 厳密なLRUは不要なので同期しない
+     */
+    private static long accessClock;
+
+    private final RailMapBasic owner;
+    public final int split;
+    private final double[] x;
+    private final double[] z;
+    private final double[] y;
+    private final float[] yaw;
+    private final float[] pitch;
+    private final float[] roll;
+    private final long[] filled;
+    private long lastAccess;
+    /**
+     * 他のスレッドから破棄される場合があるのでvolatile, 所有するRailMapが次の参照時に外す
+     */
+    private volatile boolean evicted;
+
+    private RailMapSamples(RailMapBasic owner, int split) {
+        this.owner = owner;
+        this.split = split;
+        int size = split + 1;
+        this.x = new double[size];
+        this.z = new double[size];
+        this.y = new double[size];
+        this.yaw = new float[size];
+        this.pitch = new float[size];
+        this.roll = new float[size];
+        this.filled = new long[(size + 63) >> 6];
+    }
+
+    /**
+     * @return キャッシュ無効時はnull
+     */
+    static RailMapSamples create(RailMapBasic owner, int split) {
+        long limit = getLimitBytes();
+        long bytes = getByteSize(split);
+        if (split <= 0 || bytes > limit) {
+            return null;
+        }
+
+        RailMapSamples samples = new RailMapSamples(owner, split);
+        samples.touch();
+        synchronized (ALL_SAMPLES) {
+            ALL_SAMPLES.add(samples);
+            totalBytes += bytes;
+            if (totalBytes > limit) {
+                evict(limit - (limit >> 2));
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * 参照が古いものから, 合計がtargetBytes以下になるまで破棄
+     */
+    private static void evict(long targetBytes) {
+        List<RailMapSamples> list = new ArrayList<>(ALL_SAMPLES);
+        list.sort(Comparator.comparingLong(samples -> samples.lastAccess));
+        for (RailMapSamples samples : list) {
+            if (totalBytes <= targetBytes) {
+                break;
+            }
+            samples.release();
+        }
+    }
+
+    /**
+     * 全てのキャッシュを破棄
+     */
+    public static void clearAll() {
+        synchronized (ALL_SAMPLES) {
+            new ArrayList<>(ALL_SAMPLES).forEach(RailMapSamples::release);
+        }
+    }
+
+    public static long getTotalBytes() {
+        synchronized (ALL_SAMPLES) {
+            return totalBytes;
+        }
+    }
+
+    private static long getLimitBytes() {
+        return (long) RTMConfig.railSampleCacheSize << 20;
+    }
+
+    private static long getByteSize(int split) {
+        return (long) (split + 1) * BYTES_PER_SAMPLE;
+    }
+
+    /**
+     * キャッシュから外す<br>
+     * 所有するRailMapからの参照は, そのRailMapのスレッドで{@link #isEvicted()}を見て切る
+     */
+    void release() {
+        synchronized (ALL_SAMPLES) {
+            if (ALL_SAMPLES.remove(this)) {
+                totalBytes -= getByteSize(this.split);
+            }
+        }
+        this.evicted = true;
+    }
+
+    boolean isEvicted() {
+        return this.evicted;
+    }
+
+    long getLastAccess() {
+        return this.lastAccess;
+    }
+
+    void touch() {
+        this.lastAccess = ++accessClock;
+    }
+
+    boolean contains(int index) {
+        return index >= 0 && index <= this.split;
+    }
+
+    private void prepare(int index) {
+        long mask = 1L << (index & 63);
+        if ((this.filled[index >> 6] & mask) == 0L) {
+            double[] pos = this.owner.computeRailPos(this.split, index, new double[2]);
+            this.z[index] = pos[0];
+            this.x[index] = pos[1];
+            this.roll[index] = this.owner.computeRailRoll(this.split, index);
+            this.y[index] = this.owner.computeRailHeight(this.split, index, this.roll[index]);
+            this.yaw[index] = this.owner.computeRailYaw(this.split, index);
+            this.pitch[index] = this.owner.computeRailPitch(this.split, index);
+            this.filled[index >> 6] |= mask;
+        }
+    }
+
+    /**
+     * @return {z, x}
+     */
+    double[] getRailPos(int index, double[] dest) {
+        this.prepare(index);
+        dest[0] = this.z[index];
+        dest[1] = this.x[index];
+        return dest;
+    }
+
+    double getRailHeight(int index) {
+        this.prepare(index);
+        return this.y[index];
+    }
+
+    float getRailYaw(int index) {
+        this.prepare(index);
+        return this.yaw[index];
+    }
+
+    float getRailPitch(int index) {
+        this.prepare(index);
+        return this.pitch[index];
+    }
+
+    float getRailRoll(int index) {
+        this.prepare(index);
+        return this.roll[index];
+    }
+}
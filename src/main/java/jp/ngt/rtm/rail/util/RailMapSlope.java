@@ -53,7 +53,7 @@ public class RailMapSlope extends RailMapBasic {
             TileEntityLargeRailSlopeBase tile = (TileEntityLargeRailSlopeBase) world.getTileEntity(x, y, z);
             tile.setStartPoint(x0, y0, z0);
         });
-        this.rails.clear();
+        this.clearRailList();
     }
 
     private int getHeight(int x, int z) {
@@ -89,17 +89,20 @@ public class RailMapSlope extends RailMapBasic {
     }
 
     @Override
-    public double[] getRailPos(int par1, int par2) {
+    public double[] getRailPos(int par1, int par2, double[] dest) {
         double t = (double) par2 / (double) par1;
         t = t < 0 ? 0.0D : (t > 1 ? 1.0D : t);
         double tp = 1 - t;
         double x = tp * this.startRP.posZ + t * this.endRP.posZ;
         double y = tp * this.startRP.posX + t * this.endRP.posX;
         if (this.startRP.direction == 2 || this.startRP.direction == 6) {
-            return new double[]{(double) this.startRP.blockZ + 0.5D, y};
+            dest[0] = (double) this.startRP.blockZ + 0.5D;
+            dest[1] = y;
         } else {
-            return new double[]{x, (double) this.startRP.blockX + 0.5D};
+            dest[0] = x;
+            dest[1] = (double) this.startRP.blockX + 0.5D;
         }
+        return dest;
     }
 
     @Override
@@ -127,6 +130,11 @@ public class RailMapSlope extends RailMapBasic {
         }
     }
 
+    @Override
+    protected boolean useSampleCache() {
+        return false;//直線なので計算の方が軽い
+    }
+
     @Override
     public double getLength() {
         switch (this.slopeType) {
@@ -80,9 +80,9 @@ public final class RailMapTurntable extends RailMapBasic {
     }
 
     @Override
-    public double[] getRailPos(int par1, int par2) {
+    public double[] getRailPos(int par1, int par2, double[] dest) {
         this.recreateLine();
-        return super.getRailPos(par1, par2);
+        return super.getRailPos(par1, par2, dest);
     }
 
     @Override
@@ -102,6 +102,11 @@ public final class RailMapTurntable extends RailMapBasic {
         return super.canConnect(railMap);
     }
 
+    @Override
+    protected boolean useSampleCache() {
+        return false;//回転するため
+    }
+
     public void setRotation(float par1) {
         this.rotation = par1;
     }
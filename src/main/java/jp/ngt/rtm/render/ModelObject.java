@@ -3,12 +3,15 @@ package jp.ngt.rtm.render;
 import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
 import jp.ngt.ngtlib.io.FileType;
+import jp.ngt.ngtlib.io.NGTLog;
 import jp.ngt.ngtlib.renderer.GLHelper;
 import jp.ngt.ngtlib.renderer.model.IModelNGT;
 import jp.ngt.ngtlib.renderer.model.MCModel;
 import jp.ngt.ngtlib.renderer.model.Material;
 import jp.ngt.ngtlib.renderer.model.TextureSet;
 import jp.ngt.ngtlib.util.NGTUtilClient;
+import jp.ngt.rtm.RTMConfig;
+import jp.ngt.rtm.RTMCore;
 import jp.ngt.rtm.modelpack.ModelPackException;
 import jp.ngt.rtm.modelpack.ModelPackManager;
 import jp.ngt.rtm.modelpack.cfg.ModelConfig;
@@ -22,36 +25,86 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * モデルデータとテクスチャを管理
+ * モデルデータとテクスチャを管理<br>
+ * {@link RTMConfig#lazyModelLoading}が有効な場合, モデルは最初に描画する時に別スレッドで読み込む.
+ * 読み込み中と読み込みに失敗した場合は代わりにMissingModelを描画する
  */
 @SideOnly(Side.CLIENT)
 public class ModelObject {
-    /*ポリゴンモデル*/
-    public final IModelNGT model;
-    /*材質ごとのテクスチャ*/
-    public final TextureSet[] textures;
-    /*専用レンダラ*/
-    public final PartsRenderer renderer;
-
-    public final boolean light;
-    public final boolean alphaBlend;
-    private final boolean useTexture;
-
-    public ModelObject(ModelSource par1, ModelSetBase par2, PartsRenderer par3, Object... args) {
-        String filePath = par1.modelFile;
-        this.model = ModelPackManager.INSTANCE.loadModel(filePath, GL11.GL_TRIANGLES, true, par2.getConfig());
-
-        Material[] materials = this.getMaterials(this.getTextureMap(par1.textures));
-        this.textures = new TextureSet[materials.length];
+    /*ポリゴンモデル, 読み込み前はnull*/
+    public IModelNGT model;
+    /*材質ごとのテクスチャ, 読み込み前はnull*/
+    public TextureSet[] textures;
+    /*専用レンダラ, 読み込み前はnull*/
+    public PartsRenderer renderer;
+
+    public boolean light;
+    public boolean alphaBlend;
+    private boolean useTexture;
+
+    private final ModelSource source;
+    private final ModelSetBase modelSet;
+    private final Supplier<PartsRenderer> rendererFactory;
+    private final Object[] args;
+
+    private CompletableFuture<IModelNGT> loading;
+    private boolean loaded;
+    private boolean failed;
+    private long lastUsed;
+
+    /**
+     * @param par3 レンダラの生成 (nullの場合はrendererPathから生成). 再読み込み時にも使用
+     */
+    public ModelObject(ModelSource par1, ModelSetBase par2, Supplier<PartsRenderer> par3, Object... args) {
+        this.source = par1;
+        this.modelSet = par2;
+        this.rendererFactory = par3;
+        this.args = args;
+
+        if (RTMConfig.lazyModelLoading) {
+            ModelPackManager.INSTANCE.addLazyModel(this);
+        } else {
+            this.setup(ModelPackManager.INSTANCE.loadModel(par1.modelFile, GL11.GL_TRIANGLES, true, par2.getConfig()));
+        }
+    }
+
+    /**
+     * MissingModel用
+     */
+    public ModelObject(IModelNGT par1, TextureSet[] par2, ModelSetBase par3) {
+        this.source = null;
+        this.modelSet = par3;
+        this.rendererFactory = null;
+        this.args = new Object[0];
+
+        this.model = par1;
+        this.textures = par2;
+        this.light = false;
+        this.alphaBlend = false;
+        this.useTexture = true;
+
+        this.renderer = this.getPartsRenderer(null, par1);
+        this.renderer.init(par3, this);
+        this.loaded = true;
+    }
+
+    private void setup(IModelNGT par1) {
+        this.model = par1;
+
+        ModelSource par2 = this.source;
+        Material[] materials = this.getMaterials(this.getTextureMap(par2.textures));
+        TextureSet[] textureSets = new TextureSet[materials.length];
         boolean flag_l = false;
         boolean flag_a = false;
-        int size = (materials.length != par1.textures.length) ? 1 : materials.length;
+        int size = (materials.length != par2.textures.length) ? 1 : materials.length;
         for (int i = 0; i < size; ++i) {
             Material mat = materials[i];
-            String[] sa = par1.textures[size == 1 ? 0 : mat.id];
+            String[] sa = par2.textures[size == 1 ? 0 : mat.id];
             boolean flag0 = sa.length >= 3 && sa[2].contains("Light");
             boolean flag1 = sa.length >= 3 && sa[2].contains("AlphaBlend");
             int texSize = (flag0 ? 3 : 0);
@@ -63,35 +116,87 @@ public class ModelObject {
                 texSize = lightTextureNames.length;
             }
 
-            this.textures[mat.id] = new TextureSet(mat, texSize, flag1, lightTextureNames);
+            textureSets[mat.id] = new TextureSet(mat, texSize, flag1, lightTextureNames);
             flag_l |= flag0;
             flag_a |= flag1;
         }
+
+        if (textureSets[0] == null)//もしものため([0]で参照した場合)
+        {
+            textureSets[0] = new TextureSet(new Material((byte) 0, new ResourceLocation("hoge")), 0, false);
+        }
+        this.textures = textureSets;
         this.light = flag_l;
         this.alphaBlend = flag_a;
         this.useTexture = !(this.model.getType() == FileType.NGTO || this.model.getType() == FileType.NGTZ);
 
-        if (this.textures[0] == null)//もしものため([0]で参照した場合)
-        {
-            this.textures[0] = new TextureSet(new Material((byte) 0, new ResourceLocation("hoge")), 0, false);
+        this.renderer = (this.rendererFactory == null) ? this.getPartsRenderer(par2.rendererPath, this.model, this.args) : this.rendererFactory.get();
+        this.renderer.init(this.modelSet, this);
+        this.loaded = true;
+    }
+
+    /**
+     * 読み込みが終わっていなければ開始する. 描画スレッドから呼ぶ
+     *
+     * @return 描画可能な場合はtrue
+     */
+    public boolean ensureLoaded() {
+        this.lastUsed = System.currentTimeMillis();
+        if (this.loaded) {
+            return true;
+        }
+
+        this.prefetch();
+        if (this.loading == null || !this.loading.isDone()) {
+            return false;
         }
 
-        this.renderer = (par3 == null) ? this.getPartsRenderer(par1.rendererPath, this.model, args) : par3;
-        this.renderer.init(par2, this);
+        CompletableFuture<IModelNGT> future = this.loading;
+        this.loading = null;
+        try {
+            this.setup(future.join());
+            return true;
+        } catch (Exception e) {
+            //描画中にクラッシュさせないため, 以降はMissingModelを描画する
+            this.failed = true;
+            NGTLog.debug("[ModelObject] Can't load model : %s", this.source.modelFile);
+            e.printStackTrace();
+            return false;
+        }
     }
 
     /**
-     * MissingModel用
+     * 別スレッドで読み込みを開始 (選択GUI等)
      */
-    public ModelObject(IModelNGT par1, TextureSet[] par2, ModelSetBase par3) {
-        this.model = par1;
-        this.textures = par2;
+    public void prefetch() {
+        if (!this.loaded && !this.failed && this.loading == null) {
+            this.loading = ModelPackManager.INSTANCE.loadModelAsync(this.source.modelFile, GL11.GL_TRIANGLES, this.modelSet.getConfig());
+        }
+    }
+
+    public boolean isLoaded() {
+        return this.loaded;
+    }
+
+    /**
+     * 一定時間描画されていなければ, モデル, レンダラを破棄して読み込み前に戻す
+     *
+     * @return 破棄した場合はtrue
+     */
+    public boolean unloadIfIdle(long now, long idleTime) {
+        if (!this.loaded || this.source == null || now - this.lastUsed < idleTime) {
+            return false;
+        }
+
+        this.renderer.dispose();
+        ModelPackManager.INSTANCE.unloadModelFile(this.source.modelFile, this.model);
+        this.model = null;
+        this.textures = null;
+        this.renderer = null;
         this.light = false;
         this.alphaBlend = false;
-        this.useTexture = true;
-
-        this.renderer = this.getPartsRenderer(null, par1);
-        this.renderer.init(par3, this);
+        this.loaded = false;
+        return true;
     }
 
     private PartsRenderer getPartsRenderer(String path, IModelNGT par2, Object... args) {
@@ -115,6 +220,11 @@ public class ModelObject {
      * @param pass 0:通常, 1:透過、発光
      */
     public void render(Object entity, ModelConfig cfg, int pass, float par3) {
+        if (!this.ensureLoaded()) {
+            this.renderPlaceholder(pass);
+            return;
+        }
+
         GL11.glPushMatrix();
 
         this.renderer.preRender(entity, cfg.smoothing, cfg.doCulling, par3);
@@ -159,6 +269,11 @@ public class ModelObject {
      * スムージング、アルファブレンド等行わず
      */
     public void renderWithTexture(Object entity, int pass, float par3) {
+        if (!this.ensureLoaded()) {
+            this.renderPlaceholder(pass);
+            return;
+        }
+
         Arrays.stream(this.textures).filter(Objects::nonNull).forEach(texture -> {
             if (this.useTexture) {
                 if (pass == 0) {
@@ -180,6 +295,15 @@ public class ModelObject {
         });
     }
 
+    /**
+     * 読み込み中, 読み込み失敗時の代わり, 通常のpassでのみ描画
+     */
+    private void renderPlaceholder(int pass) {
+        if (pass == 0) {
+            RTMCore.proxy.renderMissingModel();
+        }
+    }
+
     public Material[] getMaterials(Map<String, String> map) {
         Map<String, Material> matMap = this.model.getMaterials();
         Material[] materials;
@@ -26,6 +26,17 @@ public class Parts {
         this.gLists = new DisplayList[renderer.modelObj.textures.length];
     }
 
+    /**
+     * ディスプレイリストを削除
+     */
+    public void dispose() {
+        if (this.gLists != null) {
+            Arrays.stream(this.gLists).forEach(GLHelper::deleteGLList);
+            this.gLists = null;
+        }
+        this.objs = null;
+    }
+
     public GroupObject[] getObjects(IModelNGT model) {
         if (this.objs == null) {
             this.objs = new GroupObject[this.objNames.length];
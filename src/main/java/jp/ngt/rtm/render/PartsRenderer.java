@@ -89,6 +89,13 @@ public abstract class PartsRenderer<T, MS extends ModelSetBase> {
         this.partsList.forEach(parts -> parts.init(this));
     }
 
+    /**
+     * モデルを破棄する時に呼ばれる, 以降このレンダラは使用しない
+     */
+    public void dispose() {
+        this.partsList.forEach(Parts::dispose);
+    }
+
     public void preRender(T t, boolean smoothing, boolean culling, float par3) {
     }
 
@@ -2,11 +2,11 @@ package jp.ngt.rtm.render;
 
 import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
-import jp.ngt.ngtlib.io.ScriptUtil;
+import jp.ngt.ngtlib.io.ScriptFunctionHandle;
 import jp.ngt.ngtlib.math.NGTMath;
 import jp.ngt.ngtlib.renderer.*;
-import jp.ngt.ngtlib.renderer.model.Face;
 import jp.ngt.ngtlib.renderer.model.GroupObject;
+import jp.ngt.rtm.modelpack.ScriptProfiler;
 import jp.ngt.rtm.modelpack.modelset.ModelSetRailClient;
 import jp.ngt.rtm.rail.TileEntityLargeRailCore;
 import jp.ngt.rtm.rail.TileEntityLargeRailSwitchCore;
@@ -24,6 +24,10 @@ import java.util.stream.IntStream;
 
 @SideOnly(Side.CLIENT)
 public class RailPartsRenderer extends TileEntityPartsRenderer<ModelSetRailClient> {
+    private static final ScriptFunctionHandle<RenderRailStatic> RENDER_RAIL_STATIC = ScriptFunctionHandle.of(RenderRailStatic.class);
+    private static final ScriptFunctionHandle<RenderRailDynamic> RENDER_RAIL_DYNAMIC = ScriptFunctionHandle.of(RenderRailDynamic.class);
+    private static final ScriptFunctionHandle<ShouldRenderObject> SHOULD_RENDER_OBJECT = ScriptFunctionHandle.of(ShouldRenderObject.class);
+
     protected int currentRailIndex;
     private final FloatBuffer convBuf;
 
@@ -59,14 +63,24 @@ public class RailPartsRenderer extends TileEntityPartsRenderer<ModelSetRailClien
      * 形状固定の部分を描画
      */
     protected void renderRailStatic(TileEntityLargeRailCore tileEntity, double x, double y, double z, float par8) {
-        ScriptUtil.doScriptFunction(this.script, "renderRailStatic", tileEntity, x, y, z, par8, 0);
+        RenderRailStatic func = RENDER_RAIL_STATIC.get(this.script);
+        if (func != null) {
+            long time = ScriptProfiler.start();
+            func.renderRailStatic(tileEntity, x, y, z, par8, 0);
+            ScriptProfiler.end(this.modelSet.getConfig().getName(), "renderRailStatic", time);
+        }
     }
 
     /**
      * 形状が変化する部分を描画
      */
     protected void renderRailDynamic(TileEntityLargeRailCore tileEntity, double x, double y, double z, float par8) {
-        ScriptUtil.doScriptFunction(this.script, "renderRailDynamic", tileEntity, x, y, z, par8, 0);
+        RenderRailDynamic func = RENDER_RAIL_DYNAMIC.get(this.script);
+        if (func != null) {
+            long time = ScriptProfiler.start();
+            func.renderRailDynamic(tileEntity, x, y, z, par8, 0);
+            ScriptProfiler.end(this.modelSet.getConfig().getName(), "renderRailDynamic", time);
+        }
     }
 
     /**
@@ -77,7 +91,8 @@ public class RailPartsRenderer extends TileEntityPartsRenderer<ModelSetRailClien
      * @param pos     何番目のセグメントか
      */
     protected boolean shouldRenderObject(TileEntityLargeRailCore tileEntity, String objName, int len, int pos) {
-        return (Boolean) ScriptUtil.doScriptFunction(this.script, "shouldRenderObject", tileEntity, objName, len, pos);
+        ShouldRenderObject func = SHOULD_RENDER_OBJECT.get(this.script);
+        return func == null || func.shouldRenderObject(tileEntity, objName, len, pos);
     }
 
     /****************************************************************************************************/
@@ -249,10 +264,7 @@ public class RailPartsRenderer extends TileEntityPartsRenderer<ModelSetRailClien
                     continue;
                 }//描画するかスクリプト側で判断
 
-                for (int k = 0; k < group.faces.size(); ++k) {
-                    Face face = group.faces.get(k);
-                    NGTRenderHelper.addFaceWithMatrix(face, tessellator, matrix, i, false);
-                }
+                group.tessellate(tessellator, matrix, i, -1, false);
             }
         }
         tessellator.draw();
@@ -303,4 +315,16 @@ public class RailPartsRenderer extends TileEntityPartsRenderer<ModelSetRailClien
     public void setBrightness(int par1) {
         GLHelper.setBrightness(par1);
     }
-}
\ No newline at end of file
+
+    public interface RenderRailStatic {
+        void renderRailStatic(TileEntityLargeRailCore tileEntity, double x, double y, double z, float par8, int pass);
+    }
+
+    public interface RenderRailDynamic {
+        void renderRailDynamic(TileEntityLargeRailCore tileEntity, double x, double y, double z, float par8, int pass);
+    }
+
+    public interface ShouldRenderObject {
+        boolean shouldRenderObject(TileEntityLargeRailCore tileEntity, String objName, int len, int pos);
+    }
+}
@@ -2,12 +2,13 @@ package jp.ngt.rtm.render;
 
 import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
-import jp.ngt.ngtlib.io.ScriptUtil;
+import jp.ngt.ngtlib.io.ScriptFunctionHandle;
 import jp.ngt.ngtlib.math.NGTMath;
 import jp.ngt.ngtlib.math.Vec3;
 import jp.ngt.rtm.electric.Connection;
 import jp.ngt.rtm.electric.TileEntityElectricalWiring;
 import jp.ngt.rtm.modelpack.cfg.WireConfig;
+import jp.ngt.rtm.modelpack.ScriptProfiler;
 import jp.ngt.rtm.modelpack.modelset.ModelSetWireClient;
 import net.minecraft.util.MathHelper;
 import org.lwjgl.opengl.GL11;
@@ -17,6 +18,10 @@ import java.util.stream.IntStream;
 
 @SideOnly(Side.CLIENT)
 public class WirePartsRenderer extends TileEntityPartsRenderer<ModelSetWireClient> {
+    private static final ScriptFunctionHandle<RenderWireStatic> RENDER_WIRE_STATIC = ScriptFunctionHandle.of(RenderWireStatic.class);
+    private static final ScriptFunctionHandle<RenderWireDynamic> RENDER_WIRE_DYNAMIC = ScriptFunctionHandle.of(RenderWireDynamic.class);
+    private static final ScriptFunctionHandle<ShouldRenderObject> SHOULD_RENDER_OBJECT = ScriptFunctionHandle.of(ShouldRenderObject.class);
+
     private final boolean useScript;
 
     public WirePartsRenderer(String... par1) {
@@ -41,14 +46,24 @@ public class WirePartsRenderer extends TileEntityPartsRenderer<ModelSetWireClien
 
     protected void renderWireStatic(TileEntityElectricalWiring tileEntity, Connection connection, Vec3 target, float par8, int pass) {
         if (this.useScript) {
-            ScriptUtil.doScriptFunction(this.script, "renderWireStatic", tileEntity, connection, target, par8, pass);
+            RenderWireStatic func = RENDER_WIRE_STATIC.get(this.script);
+            if (func != null) {
+                long time = ScriptProfiler.start();
+                func.renderWireStatic(tileEntity, connection, target, par8, pass);
+                ScriptProfiler.end(this.modelSet.getConfig().getName(), "renderWireStatic", time);
+            }
         } else {
         }
     }
 
     protected void renderWireDynamic(TileEntityElectricalWiring tileEntity, Connection connection, Vec3 target, float par8, int pass) {
         if (this.useScript) {
-            ScriptUtil.doScriptFunction(this.script, "renderWireDynamic", tileEntity, connection, target, par8, pass);
+            RenderWireDynamic func = RENDER_WIRE_DYNAMIC.get(this.script);
+            if (func != null) {
+                long time = ScriptProfiler.start();
+                func.renderWireDynamic(tileEntity, connection, target, par8, pass);
+                ScriptProfiler.end(this.modelSet.getConfig().getName(), "renderWireDynamic", time);
+            }
         } else if (pass == RenderPass.NORMAL.id) {//スクリプトなしモデルでの発光防止
             WireConfig cfg = connection.getModelSet().getConfig();
             if (cfg.deflectionCoefficient > 0.0F) {
@@ -189,9 +204,22 @@ public class WirePartsRenderer extends TileEntityPartsRenderer<ModelSetWireClien
 
     private boolean shouldRenderObject(TileEntityElectricalWiring tileEntity, int len, int pos, int pass) {
         if (this.useScript) {
-            return (Boolean) ScriptUtil.doScriptFunction(this.getScript(), "shouldRenderObject", tileEntity, len, pos, pass);
+            ShouldRenderObject func = SHOULD_RENDER_OBJECT.get(this.getScript());
+            return func == null || func.shouldRenderObject(tileEntity, len, pos, pass);
         } else {
             return true;
         }
     }
-}
\ No newline at end of file
+
+    public interface RenderWireStatic {
+        void renderWireStatic(TileEntityElectricalWiring tileEntity, Connection connection, Vec3 target, float par8, int pass);
+    }
+
+    public interface RenderWireDynamic {
+        void renderWireDynamic(TileEntityElectricalWiring tileEntity, Connection connection, Vec3 target, float par8, int pass);
+    }
+
+    public interface ShouldRenderObject {
+        boolean shouldRenderObject(TileEntityElectricalWiring tileEntity, int len, int pos, int pass);
+    }
+}
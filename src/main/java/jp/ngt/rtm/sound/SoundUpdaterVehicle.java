@@ -2,11 +2,12 @@ package jp.ngt.rtm.sound;
 
 import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
-import jp.ngt.ngtlib.io.ScriptUtil;
+import jp.ngt.ngtlib.io.ScriptFunctionHandle;
 import jp.ngt.rtm.RTMConfig;
 import jp.ngt.rtm.entity.train.EntityTrainBase;
 import jp.ngt.rtm.entity.vehicle.EntityVehicleBase;
 import jp.ngt.rtm.entity.vehicle.IUpdateVehicle;
+import jp.ngt.rtm.modelpack.ScriptProfiler;
 import jp.ngt.rtm.modelpack.modelset.ModelSetVehicleBaseClient;
 import net.minecraft.client.audio.ISound;
 import net.minecraft.client.audio.SoundHandler;
@@ -22,6 +23,8 @@ import java.util.Map;
 
 @SideOnly(Side.CLIENT)
 public class SoundUpdaterVehicle implements IUpdateVehicle {
+    private static final ScriptFunctionHandle<OnUpdate> ON_UPDATE = ScriptFunctionHandle.of(OnUpdate.class);
+
     protected final SoundHandler theSoundHandler;
     protected final EntityVehicleBase theVehicle;
 
@@ -41,8 +44,18 @@ public class SoundUpdaterVehicle implements IUpdateVehicle {
     public void update() {
         ModelSetVehicleBaseClient modelset = (ModelSetVehicleBaseClient) this.theVehicle.getModelSet();
         if (modelset.se != null) {
-            //RTMUtil.doScriptFunction(modelset.se, "onUpdate", this);
-            ScriptUtil.doScriptIgnoreError(modelset.se, "onUpdate", this);
+            OnUpdate func = ON_UPDATE.get(modelset.se);
+            if (func != null) {
+                String name = modelset.getConfig().getName();
+                long time = ScriptProfiler.start();
+                try {
+                    func.onUpdate(this);
+                } catch (Exception e) {
+                    ScriptProfiler.onError(name, "sound#onUpdate");
+                    e.printStackTrace();
+                }
+                ScriptProfiler.end(name, "sound#onUpdate", time);
+            }
         } else {
             if (this.theVehicle.isDead) {
                 if (this.prevSound != null) {
@@ -179,4 +192,8 @@ public class SoundUpdaterVehicle implements IUpdateVehicle {
     public Entity getEntity() {
         return this.theVehicle;
     }
-}
\ No newline at end of file
+
+    public interface OnUpdate {
+        void onUpdate(SoundUpdaterVehicle updater);
+    }
+}